@@ -0,0 +1,86 @@
+package org.example.benchmarks;
+
+import org.example.Services.SessionManager;
+import org.example.Services.TrainService;
+import org.example.Services.UserBookingService;
+import org.example.entities.SeatMap;
+import org.example.entities.Train;
+import org.example.entities.User;
+import org.example.persistence.BookingLog;
+import org.example.util.UserServiceUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end {@link UserBookingService#bookTrainSeat} including the durable log append.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Dlogin.rate.global=1e9", "-Dlogin.rate.perUser=1e9"})
+public class BookingBenchmark {
+    private static final int TRAINS = 100;
+    private static final int STOPS = 20;
+    private static final int[] ROW_LENGTHS = {50, 50, 50, 50, 50, 50, 50, 50, 50, 50};
+
+    private List<Train> trains;
+    private TrainService trainService;
+    private UserBookingService userBookingService;
+    private String token;
+    private int iteration;
+    private String dateOfTravel;
+    private final Random random = new Random(3);
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        File directory = Files.createTempDirectory("booking-bench").toFile();
+        trains = SyntheticData.trains(TRAINS, STOPS, 500, ROW_LENGTHS.length, 50, 11);
+        trainService = new TrainService(trains);
+        userBookingService = new UserBookingService(new File(directory, "users.json"), trainService,
+                new BookingLog(new File(directory, "bookings.log")), new SessionManager(Duration.ofHours(1)));
+        User user = new User("bench", "secret", UserServiceUtil.hashPassword("secret"), new ArrayList<>(), UUID.randomUUID().toString());
+        userBookingService.signUp(user);
+        token = userBookingService.login("bench", "secret").orElseThrow();
+    }
+
+    // Each iteration books a fresh travel date, so no iteration runs against a sold-out train.
+    @Setup(Level.Iteration)
+    public void nextDate() {
+        dateOfTravel = LocalDate.of(2024, 1, 1).plusDays(iteration++).toString();
+    }
+
+    @Benchmark
+    public Boolean bookTrainSeat() {
+        Train train = trains.get(random.nextInt(TRAINS));
+        List<String> stations = train.getStations();
+        int from = random.nextInt(STOPS - 1);
+        int to = from + 1 + random.nextInt(STOPS - 1 - from);
+        long seat = trainService.seatsFor(train, dateOfTravel).findFreeSeat(from, to);
+        if (seat < 0) {
+            return false;
+        }
+        return userBookingService.bookTrainSeat(token, train, SeatMap.rowOf(seat), SeatMap.seatOf(seat),
+                stations.get(from), stations.get(to), dateOfTravel);
+    }
+}
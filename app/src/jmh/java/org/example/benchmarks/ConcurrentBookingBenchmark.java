@@ -0,0 +1,104 @@
+package org.example.benchmarks;
+
+import org.example.entities.SeatMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Book-then-release throughput on one shared 1000-seat, 19-leg train, comparing the
+ * compare-and-set path with the same operations behind a single lock.
+ * Each invocation releases what it booked so the map stays at a steady load.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConcurrentBookingBenchmark {
+    private static final int COACHES = 20;
+    private static final int SEATS_PER_COACH = 50;
+    private static final int LEGS = 19;
+
+    private SeatMap seatMap;
+    private final Object lock = new Object();
+
+    @Setup
+    public void setUp() {
+        int[] rowLengths = new int[COACHES];
+        Arrays.fill(rowLengths, SEATS_PER_COACH);
+        seatMap = new SeatMap(rowLengths, LEGS);
+    }
+
+    private boolean casBookAndRelease() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int row = random.nextInt(COACHES);
+        int seat = random.nextInt(SEATS_PER_COACH);
+        int from = random.nextInt(LEGS);
+        int to = from + 1 + random.nextInt(LEGS - from);
+        if (seatMap.book(row, seat, from, to)) {
+            seatMap.release(row, seat, from, to);
+            return true;
+        }
+        return false;
+    }
+
+    private boolean lockedBookAndRelease() {
+        synchronized (lock) {
+            return casBookAndRelease();
+        }
+    }
+
+    @Benchmark @Threads(1)
+    public boolean cas_01() {
+        return casBookAndRelease();
+    }
+
+    @Benchmark @Threads(4)
+    public boolean cas_04() {
+        return casBookAndRelease();
+    }
+
+    @Benchmark @Threads(16)
+    public boolean cas_16() {
+        return casBookAndRelease();
+    }
+
+    @Benchmark @Threads(64)
+    public boolean cas_64() {
+        return casBookAndRelease();
+    }
+
+    @Benchmark @Threads(1)
+    public boolean locked_01() {
+        return lockedBookAndRelease();
+    }
+
+    @Benchmark @Threads(4)
+    public boolean locked_04() {
+        return lockedBookAndRelease();
+    }
+
+    @Benchmark @Threads(16)
+    public boolean locked_16() {
+        return lockedBookAndRelease();
+    }
+
+    @Benchmark @Threads(64)
+    public boolean locked_64() {
+        return lockedBookAndRelease();
+    }
+}
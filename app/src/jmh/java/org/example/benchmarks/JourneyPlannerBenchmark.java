@@ -0,0 +1,71 @@
+package org.example.benchmarks;
+
+import org.example.Services.JourneyPlanner;
+import org.example.entities.Journey;
+import org.example.entities.Train;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/** Sampled so the JSON report carries p50/p99 per query, not just the mean. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JourneyPlannerBenchmark {
+    private static final int STATION_POOL = 2_000;
+    private static final int STOPS_PER_TRAIN = 12;
+    private static final int MIN_CONNECTION_SECONDS = 5 * 60;
+
+    @Param({"1000", "10000"})
+    public int trainCount;
+
+    private JourneyPlanner planner;
+    private String[] sources;
+    private String[] destinations;
+    private int[] departures;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        List<Train> trains = SyntheticData.trains(trainCount, STOPS_PER_TRAIN, STATION_POOL, 1, 1, 42);
+        planner = new JourneyPlanner(trains);
+
+        sources = new String[1024];
+        destinations = new String[1024];
+        departures = new int[1024];
+        for (int i = 0; i < sources.length; i++) {
+            sources[i] = SyntheticData.stationName(random.nextInt(STATION_POOL));
+            destinations[i] = SyntheticData.stationName(random.nextInt(STATION_POOL));
+            departures[i] = random.nextInt(12 * 3600);
+        }
+    }
+
+    @Benchmark
+    public Optional<Journey> earliestArrival() {
+        int i = next++ & (sources.length - 1);
+        return planner.earliestArrival(sources[i], destinations[i], departures[i], MIN_CONNECTION_SECONDS);
+    }
+
+    @Benchmark
+    public Optional<Journey> fewestTransfers() {
+        int i = next++ & (sources.length - 1);
+        return planner.fewestTransfers(sources[i], destinations[i], departures[i], MIN_CONNECTION_SECONDS, 3);
+    }
+}
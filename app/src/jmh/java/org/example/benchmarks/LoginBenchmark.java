@@ -0,0 +1,61 @@
+package org.example.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.Services.SessionManager;
+import org.example.Services.TrainService;
+import org.example.Services.UserBookingService;
+import org.example.persistence.BookingLog;
+import org.example.util.UserServiceUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link UserBookingService#login(String, String)} against user bases of different
+ * sizes; the cost is dominated by the single bcrypt verify.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Dlogin.rate.global=1e9", "-Dlogin.rate.perUser=1e9"})
+public class LoginBenchmark {
+
+    @Param({"10000", "100000"})
+    public int userCount;
+
+    private UserBookingService userBookingService;
+    private final Random random = new Random(5);
+
+    @Setup
+    public void setUp() throws Exception {
+        File directory = Files.createTempDirectory("login-bench").toFile();
+        File usersFile = new File(directory, "users.json");
+        new ObjectMapper().writeValue(usersFile,
+                SyntheticData.users(userCount, 0, UserServiceUtil.hashPassword("secret"), List.of(), 5));
+        userBookingService = new UserBookingService(usersFile, new TrainService(List.of()),
+                new BookingLog(new File(directory, "bookings.log")), new SessionManager(Duration.ofMinutes(5)));
+    }
+
+    @Benchmark
+    public Optional<String> login() {
+        return userBookingService.login(SyntheticData.userName(random.nextInt(userCount)), "secret");
+    }
+}
@@ -0,0 +1,77 @@
+package org.example.benchmarks;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.Services.SessionManager;
+import org.example.Services.TrainService;
+import org.example.Services.UserBookingService;
+import org.example.entities.Train;
+import org.example.entities.User;
+import org.example.persistence.BookingLog;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full JSON snapshot write of users.json and Jackson loads of trains.json/users.json.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PersistenceBenchmark {
+
+    @Param({"10000", "100000"})
+    public int recordCount;
+
+    @Param({"20"})
+    public int stationsPerTrain;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private File trainsFile;
+    private File usersFile;
+    private UserBookingService userBookingService;
+
+    @Setup
+    public void setUp() throws Exception {
+        File directory = Files.createTempDirectory("persistence-bench").toFile();
+        trainsFile = new File(directory, "trains.json");
+        usersFile = new File(directory, "users.json");
+        List<Train> trains = SyntheticData.trains(recordCount, stationsPerTrain, 5_000, 4, 18, 1);
+        objectMapper.writeValue(trainsFile, trains);
+        objectMapper.writeValue(usersFile, SyntheticData.users(recordCount, 2, "$2a$10$placeholderplaceholderplaceholderplaceholderpla", trains, 1));
+        userBookingService = new UserBookingService(usersFile, new TrainService(List.of()),
+                new BookingLog(new File(directory, "bookings.log")), new SessionManager(Duration.ofMinutes(5)));
+    }
+
+    @Benchmark
+    public void saveUserList() throws Exception {
+        userBookingService.saveUserList();
+    }
+
+    @Benchmark
+    public List<Train> loadTrains() throws Exception {
+        return objectMapper.readValue(trainsFile, new TypeReference<List<Train>>() {});
+    }
+
+    @Benchmark
+    public List<User> loadUsers() throws Exception {
+        return objectMapper.readValue(usersFile, new TypeReference<List<User>>() {});
+    }
+}
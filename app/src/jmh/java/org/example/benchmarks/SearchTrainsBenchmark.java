@@ -0,0 +1,86 @@
+package org.example.benchmarks;
+
+import org.example.Services.RouteIndex;
+import org.example.Services.TrainService;
+import org.example.entities.Train;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SearchTrainsBenchmark {
+    private static final int STATION_POOL = 2_000;
+    private static final int STOPS_PER_TRAIN = 12;
+
+    @Param({"1000", "10000", "100000"})
+    public int trainCount;
+
+    private List<Train> trains;
+    private RouteIndex routeIndex;
+    private TrainService trainService;
+    private String[] sources;
+    private String[] destinations;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        trains = SyntheticData.trains(trainCount, STOPS_PER_TRAIN, STATION_POOL, 1, 1, 42);
+        routeIndex = new RouteIndex();
+        trains.forEach(routeIndex::addOrReplace);
+        trainService = new TrainService(trains);
+
+        sources = new String[1024];
+        destinations = new String[1024];
+        for (int i = 0; i < sources.length; i++) {
+            List<String> route = trains.get(random.nextInt(trainCount)).getStations();
+            int from = random.nextInt(route.size() - 1);
+            sources[i] = route.get(from);
+            destinations[i] = route.get(from + 1 + random.nextInt(route.size() - from - 1));
+        }
+    }
+
+    @Benchmark
+    public List<Train> streamFilter() {
+        int i = next++ & (sources.length - 1);
+        String source = sources[i];
+        String destination = destinations[i];
+        return trains.stream().filter(train -> {
+            List<String> stationOrder = train.getStations();
+            int sourceIndex = stationOrder.indexOf(source.toLowerCase());
+            int destinationIndex = stationOrder.indexOf(destination.toLowerCase());
+            return sourceIndex != -1 && destinationIndex != -1 && sourceIndex < destinationIndex;
+        }).collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<Train> routeIndex() {
+        int i = next++ & (sources.length - 1);
+        return routeIndex.search(sources[i], destinations[i]);
+    }
+
+    /** 1024 repeating pairs, so after warmup every search is a cache hit. */
+    @Benchmark
+    public List<Train> cachedSearch() {
+        int i = next++ & (sources.length - 1);
+        return trainService.searchTrains(sources[i], destinations[i]);
+    }
+}
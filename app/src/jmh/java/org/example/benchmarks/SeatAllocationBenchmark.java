@@ -0,0 +1,82 @@
+package org.example.benchmarks;
+
+import org.example.entities.SeatMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * "Any seat free on legs i..j" queries on a 20-stop train with 1000 seats
+ * (20 coaches of 50), partly sold on random segments.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SeatAllocationBenchmark {
+    private static final int STOPS = 20;
+    private static final int LEGS = STOPS - 1;
+    private static final int COACHES = 20;
+    private static final int SEATS_PER_COACH = 50;
+
+    @Param({"0.5", "0.9"})
+    public double loadFactor;
+
+    private SeatMap seatMap;
+    private int[] fromLegs;
+    private int[] toLegs;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(7);
+        int[] rowLengths = new int[COACHES];
+        Arrays.fill(rowLengths, SEATS_PER_COACH);
+        seatMap = new SeatMap(rowLengths, LEGS);
+        int bookings = (int) (COACHES * SEATS_PER_COACH * LEGS * loadFactor / 4);
+        for (int i = 0; i < bookings; i++) {
+            int from = random.nextInt(LEGS);
+            int to = from + 1 + random.nextInt(Math.min(8, LEGS - from));
+            seatMap.book(random.nextInt(COACHES), random.nextInt(SEATS_PER_COACH), from, to);
+        }
+        fromLegs = new int[1024];
+        toLegs = new int[1024];
+        for (int i = 0; i < fromLegs.length; i++) {
+            fromLegs[i] = random.nextInt(LEGS);
+            toLegs[i] = fromLegs[i] + 1 + random.nextInt(LEGS - fromLegs[i]);
+        }
+    }
+
+    @Benchmark
+    public long bitsetQuery() {
+        int i = next++ & (fromLegs.length - 1);
+        return seatMap.findFreeSeat(fromLegs[i], toLegs[i]);
+    }
+
+    @Benchmark
+    public long perSeatScan() {
+        int i = next++ & (fromLegs.length - 1);
+        for (int row = 0; row < COACHES; row++) {
+            for (int seat = 0; seat < SEATS_PER_COACH; seat++) {
+                if (seatMap.isFree(row, seat, fromLegs[i], toLegs[i])) {
+                    return SeatMap.pack(row, seat);
+                }
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,77 @@
+package org.example.benchmarks;
+
+import org.example.entities.SeatMap;
+import org.example.entities.Ticket;
+import org.example.entities.Train;
+import org.example.entities.User;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Deterministic generators for benchmark data sets of any size, shaped like
+ * data/trains.json and data/users.json.
+ */
+public final class SyntheticData {
+
+    private SyntheticData() {
+    }
+
+    public static String stationName(int id) {
+        return "station-" + id;
+    }
+
+    public static List<Train> trains(int count, int stationsPerTrain, int stationPool, int rows, int seatsPerRow, long seed) {
+        Random random = new Random(seed);
+        int[] rowLengths = new int[rows];
+        Arrays.fill(rowLengths, seatsPerRow);
+        List<Train> trains = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Set<String> route = new LinkedHashSet<>();
+            while (route.size() < stationsPerTrain) {
+                route.add(stationName(random.nextInt(stationPool)));
+            }
+            List<String> stations = new ArrayList<>(route);
+            Map<String, String> stationTimes = new HashMap<>();
+            int minuteOfDay = random.nextInt(24 * 60);
+            for (String station : stations) {
+                stationTimes.put(station, String.format("%02d:%02d:00", (minuteOfDay / 60) % 24, minuteOfDay % 60));
+                minuteOfDay += 20 + random.nextInt(90);
+            }
+            trains.add(new Train("train-" + i, String.valueOf(10000 + i),
+                    new SeatMap(rowLengths, stationsPerTrain - 1), stationTimes, stations));
+        }
+        return trains;
+    }
+
+    /**
+     * Users named {@code user-<n>} that all share one precomputed bcrypt hash, since
+     * hashing a million passwords would dominate setup.
+     */
+    public static List<User> users(int count, int ticketsPerUser, String hashedPassword, List<Train> trains, long seed) {
+        Random random = new Random(seed);
+        List<User> users = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String userId = "uid-" + i;
+            List<Ticket> tickets = new ArrayList<>(ticketsPerUser);
+            for (int t = 0; t < ticketsPerUser && !trains.isEmpty(); t++) {
+                Train train = trains.get(random.nextInt(trains.size()));
+                List<String> stations = train.getStations();
+                tickets.add(new Ticket("ticket-" + i + "-" + t, userId, stations.get(0),
+                        stations.get(stations.size() - 1), "2024-01-01", train.getTrainId()));
+            }
+            users.add(new User(userName(i), null, hashedPassword, tickets, userId));
+        }
+        return users;
+    }
+
+    public static String userName(int index) {
+        return "user-" + index;
+    }
+}
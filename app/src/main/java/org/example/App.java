@@ -1,10 +1,16 @@
 package org.example;
 
 import org.example.Services.UserBookingService;
+import org.example.entities.SeatMap;
+import org.example.entities.SeatRequest;
+import org.example.entities.Ticket;
 import org.example.entities.Train;
 import org.example.entities.User;
+import org.example.persistence.SeatInventoryStore;
+import org.example.util.Metrics;
 import org.example.util.UserServiceUtil;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
@@ -15,6 +21,8 @@ import java.util.UUID;
 public class App {
     private static String source = null;
     private static String dest = null;
+    private static final int MIN_CONNECTION_SECONDS = 10 * 60;
+    private static final File METRICS_FILE = new File("data/metrics.json");
 
     public static void main(String[] args) {
         System.out.println("Running Train Booking System");
@@ -22,9 +30,11 @@ public class App {
         Scanner scanner = new Scanner(System.in);
         int option = 0;
         UserBookingService userBookingService;
+        String sessionToken = null;
         Train trainSelectedForBooking = null;
         try {
-            userBookingService = new UserBookingService();
+            userBookingService = UserBookingService.getInstance();
+            Metrics.startSnapshots(METRICS_FILE);
         } catch (IOException ex) {
             System.err.println("Error initializing service: " + ex.getMessage());
             ex.printStackTrace();
@@ -40,13 +50,14 @@ public class App {
             System.out.println("5. Book a Seat");
             System.out.println("6. Cancel my Booking");
             System.out.println("7. Exit the App");
+            System.out.println("8. Show metrics");
             System.out.print("Enter your choice: ");
             // Read input as a string to handle non-integer input safely
             String input = scanner.nextLine().trim();
             try {
                 option = Integer.parseInt(input);
             } catch (NumberFormatException e) {
-                System.out.println("Invalid input. Please enter a number between 1 and 7.");
+                System.out.println("Invalid input. Please enter a number between 1 and 8.");
                 continue;
             }
             switch (option) {
@@ -64,7 +75,6 @@ public class App {
                     try {
                         if (userBookingService.signUp(userToSignup)) {
                             System.out.println("Sign up successful! You can now log in.");
-                            userBookingService = new UserBookingService(userToSignup);
                         } else {
                             System.out.println("Sign up failed!");
                         }
@@ -82,28 +92,21 @@ public class App {
                         System.out.println("Username and password cannot be empty.");
                         break;
                     }
-                    User userToLogin = new User(nameToLogin, passwordToLogin,
-                            UserServiceUtil.hashPassword(passwordToLogin), new ArrayList<>(), UUID.randomUUID().toString());
-                    try {
-                        userBookingService = new UserBookingService(userToLogin);
-                        if (userBookingService.loginUser()) {
-                            System.out.println("Login successful!");
-                        } else {
-                            System.out.println("Login failed: Invalid username or password");
-                            userBookingService = new UserBookingService();
-                        }
-                    } catch (IOException ex) {
-                        System.err.println("Error during login: " + ex.getMessage());
-                        ex.printStackTrace();
+                    userBookingService.logout(sessionToken);
+                    sessionToken = userBookingService.login(nameToLogin, passwordToLogin).orElse(null);
+                    if (sessionToken != null) {
+                        System.out.println("Login successful!");
+                    } else {
+                        System.out.println("Login failed: Invalid username or password");
                     }
                     break;
                 case 3:
                     System.out.println("Fetching your bookings");
-                    if (userBookingService.getUser() == null) {
+                    if (sessionToken == null) {
                         System.out.println("Please log in first.");
                         break;
                     }
-                    userBookingService.fetchBookings();
+                    userBookingService.fetchBookings(sessionToken);
                     break;
                 case 4:
                     System.out.println("Type your source station");
@@ -120,6 +123,8 @@ public class App {
                     List<Train> trains = userBookingService.getTrains(source, dest);
                     if (trains.isEmpty()) {
                         System.out.println("No trains found for the given route.");
+                        userBookingService.planJourney(source, dest, 0, MIN_CONNECTION_SECONDS)
+                                .ifPresent(journey -> System.out.println("Connecting journey: " + journey.getJourneyInfo()));
                         trainSelectedForBooking = null;
                         source = null;
                         dest = null;
@@ -156,16 +161,30 @@ public class App {
                         System.out.println("No train selected or source/destination not set. Please search for a train first.");
                         break;
                     }
-                    if (userBookingService.getUser() == null) {
+                    if (sessionToken == null) {
                         System.out.println("Please log in first.");
                         break;
                     }
+                    System.out.println("Enter the date of travel (e.g., 2023-12-08T18:30:00Z)");
+                    String dateOfTravel = scanner.nextLine().trim();
+                    if (dateOfTravel.isEmpty()) {
+                        System.out.println("Date of travel cannot be empty.");
+                        break;
+                    }
+                    if (!SeatInventoryStore.isTravelDate(dateOfTravel)) {
+                        System.out.println("Date of travel must be YYYY-MM-DD.");
+                        break;
+                    }
+                    System.out.println(userBookingService.availableSeats(trainSelectedForBooking, source, dest, dateOfTravel)
+                            + " seats free from " + source + " to " + dest);
                     System.out.println("Select a seat out of these seats (0 = available, 1 = booked)");
-                    List<List<Integer>> seats = userBookingService.fetchSeats(trainSelectedForBooking);
-                    for (int i = 0; i < seats.size(); i++) {
-                        System.out.println("Row " + (i + 1) + ": " + seats.get(i));
+                    SeatMap seats = userBookingService.fetchSeats(trainSelectedForBooking, dateOfTravel);
+                    int fromLeg = trainSelectedForBooking.stationIndex(source);
+                    int toLeg = trainSelectedForBooking.stationIndex(dest);
+                    for (int i = 0; i < seats.rowCount(); i++) {
+                        System.out.println("Row " + (i + 1) + ": " + seats.formatRow(i, fromLeg, toLeg));
                     }
-                    System.out.println("Enter the row number");
+                    System.out.println("Enter the row number (0 to let us pick the best available seats)");
                     int row;
                     try {
                         row = Integer.parseInt(scanner.nextLine().trim());
@@ -173,6 +192,28 @@ public class App {
                         System.out.println("Invalid row input.");
                         break;
                     }
+                    if (row == 0) {
+                        System.out.println("How many seats?");
+                        SeatRequest request;
+                        try {
+                            request = new SeatRequest(Integer.parseInt(scanner.nextLine().trim()));
+                        } catch (IllegalArgumentException e) {
+                            System.out.println("Invalid number of seats.");
+                            break;
+                        }
+                        System.out.println("Seat the party together in one row? (y/n)");
+                        request.together(scanner.nextLine().trim().equalsIgnoreCase("y"));
+                        System.out.println("Prefer window seats? (y/n)");
+                        request.window(scanner.nextLine().trim().equalsIgnoreCase("y"));
+                        List<Ticket> tickets = userBookingService.bookBestAvailable(sessionToken, trainSelectedForBooking, source, dest, dateOfTravel, request);
+                        if (tickets.isEmpty()) {
+                            System.out.println("Cannot book these seats.");
+                            offerWaitlist(scanner, userBookingService, sessionToken, trainSelectedForBooking, dateOfTravel, request);
+                        } else {
+                            System.out.println("Booked! Enjoy your journey");
+                        }
+                        break;
+                    }
                     System.out.println("Enter the column number");
                     int col;
                     try {
@@ -181,19 +222,14 @@ public class App {
                         System.out.println("Invalid column input.");
                         break;
                     }
-                    System.out.println("Enter the date of travel (e.g., 2023-12-08T18:30:00Z)");
-                    String dateOfTravel = scanner.nextLine().trim();
-                    if (dateOfTravel.isEmpty()) {
-                        System.out.println("Date of travel cannot be empty.");
-                        break;
-                    }
                     System.out.println("Booking your seat...");
                     try {
-                        Boolean booked = userBookingService.bookTrainSeat(trainSelectedForBooking, row - 1, col - 1, source, dest, dateOfTravel);
+                        Boolean booked = userBookingService.bookTrainSeat(sessionToken, trainSelectedForBooking, row - 1, col - 1, source, dest, dateOfTravel);
                         if (booked) {
                             System.out.println("Booked! Enjoy your journey");
                         } else {
                             System.out.println("Cannot book this seat.");
+                            offerWaitlist(scanner, userBookingService, sessionToken, trainSelectedForBooking, dateOfTravel, new SeatRequest(1));
                         }
                     } catch (Exception ex) {
                         System.err.println("Error booking seat: " + ex.getMessage());
@@ -201,7 +237,7 @@ public class App {
                     }
                     break;
                 case 6:
-                    if (userBookingService.getUser() == null) {
+                    if (sessionToken == null) {
                         System.out.println("Please log in first.");
                         break;
                     }
@@ -211,16 +247,34 @@ public class App {
                         System.out.println("Ticket ID cannot be empty.");
                         break;
                     }
-                    userBookingService.cancelBooking(ticketId);
+                    userBookingService.cancelBooking(sessionToken, ticketId);
                     break;
                 case 7:
                     System.out.println("Exiting the application.");
+                    try {
+                        Metrics.writeSnapshot(METRICS_FILE);
+                    } catch (IOException ex) {
+                        System.err.println("Error writing metrics snapshot: " + ex.getMessage());
+                    }
+                    break;
+                case 8:
+                    System.out.print(Metrics.dump());
                     break;
                 default:
-                    System.out.println("Invalid option. Please choose between 1 and 7.");
+                    System.out.println("Invalid option. Please choose between 1 and 8.");
                     break;
             }
         }
         scanner.close();
     }
-}
\ No newline at end of file
+
+    private static void offerWaitlist(Scanner scanner, UserBookingService userBookingService, String sessionToken,
+                                      Train train, String dateOfTravel, SeatRequest request) {
+        System.out.println("Join the waitlist and get the first matching seats that free up? (y/n)");
+        if (!scanner.nextLine().trim().equalsIgnoreCase("y")) {
+            return;
+        }
+        userBookingService.joinWaitlist(sessionToken, train, source, dest, dateOfTravel, request, 0)
+                .thenAccept(tickets -> tickets.forEach(ticket -> System.out.println("Waitlist booked: " + ticket.getTicketInfo())));
+    }
+}
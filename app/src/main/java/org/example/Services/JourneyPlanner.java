@@ -0,0 +1,480 @@
+package org.example.Services;
+
+import org.example.entities.Journey;
+import org.example.entities.StationDictionary;
+import org.example.entities.Train;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Journey planner over the timetable in {@code stations} and {@code station_times}.
+ * <p>
+ * Each timed train is one trip whose stops are laid out back to back, each stop's time
+ * and station packed in one long. Every stop but a trip's last is a departure; they are
+ * kept twice, grouped by station and in one list sorted by time.
+ * <p>
+ * Earliest-arrival queries scan the time-sorted list once, as in the Connection Scan
+ * Algorithm. The scan reads only each departure's time and station and moves on unless
+ * the station has been reached by then; a trip already boarded has always reached the
+ * stop it leaves, so that one test also passes every stop of a boarded trip. Once the
+ * destination has an arrival, the scan ends after the last departure that reaches the
+ * destination any earlier, since nothing leaving later could improve on it.
+ * <p>
+ * Fewest-transfer queries go in rounds, as in RAPTOR: round k boards only from the
+ * stations that round k - 1 improved, taking each trip from the station's own
+ * departures, so the first round to reach the destination has the fewest trains.
+ * <p>
+ * Queries work in per-thread arrays that are reset only where the previous query
+ * wrote, so a query allocates nothing proportional to the network.
+ * <p>
+ * A station time is taken as both arrival and departure at that stop. Times that go
+ * backwards along a route roll over to the next day. Changing trains needs the minimum
+ * connection time at the station; staying on a train does not.
+ */
+public class JourneyPlanner {
+    private static final int UNREACHED = Integer.MAX_VALUE;
+    private static final int DAY_SECONDS = 86_400;
+
+    /** Stations are {@link StationDictionary} ids below this bound. */
+    private final int stationCount = StationDictionary.size();
+    private final String[] tripIds;
+    /** Trip t's stops are [tripStart[t], tripStart[t + 1]) in the stop arrays. */
+    private final int[] tripStart;
+    /** Each stop as (time << 32 | station), so a ride reads one array. */
+    private final long[] stops;
+    private final int[] stopTrip;
+    /** Stops a trip leaves from, by station; station s owns [departuresFrom[s], departuresFrom[s + 1]). */
+    private final int[] departuresFrom;
+    /**
+     * Departure d is (time << 32 | stop) at 2d and (trip << 32 | the trip's last stop) at
+     * 2d + 1, sorted by time within its station, so boarding reads one record.
+     */
+    private final long[] departures;
+    /**
+     * Every departure sorted by time: connection c is (time << 32 | station) at 2c and the
+     * next stop's (time << 32 | station) at 2c + 1. The scan reads the first half of each.
+     */
+    private final long[] connections;
+    private final int[] connectionStops;
+    private final int[] connectionTrips;
+    /** Connections arriving at a station, in scan order; station s owns [arrivalsAt[s], arrivalsAt[s + 1]). */
+    private final int[] arrivalsAt;
+    private final int[] arrivals;
+    private final ThreadLocal<Scratch> scratch;
+
+    public JourneyPlanner(List<Train> trains) {
+        List<String> trips = new ArrayList<>();
+        List<int[]> routes = new ArrayList<>();
+        List<int[]> timetables = new ArrayList<>();
+        int stops = 0;
+        for (Train train : trains) {
+            int[] times = stopTimes(train);
+            if (times == null) {
+                continue;
+            }
+            trips.add(train.getTrainId());
+            routes.add(train.stationIds());
+            timetables.add(times);
+            stops += times.length;
+        }
+        this.tripIds = trips.toArray(new String[0]);
+        this.tripStart = new int[tripIds.length + 1];
+        this.stops = new long[stops];
+        this.stopTrip = new int[stops];
+        for (int trip = 0; trip < tripIds.length; trip++) {
+            int first = tripStart[trip];
+            int[] route = routes.get(trip);
+            int[] times = timetables.get(trip);
+            for (int i = 0; i < route.length; i++) {
+                this.stops[first + i] = (long) times[i] << 32 | route[i];
+            }
+            Arrays.fill(stopTrip, first, first + route.length, trip);
+            tripStart[trip + 1] = first + route.length;
+        }
+        // Every stop but a trip's last is a departure; sort by time, then bucket by station.
+        long[] order = new long[stops - tripIds.length];
+        int departures = 0;
+        for (int trip = 0; trip < tripIds.length; trip++) {
+            for (int stop = tripStart[trip]; stop + 1 < tripStart[trip + 1]; stop++) {
+                order[departures++] = timeAt(stop) << 32 | stop;
+            }
+        }
+        Arrays.sort(order);
+        this.departuresFrom = new int[stationCount + 1];
+        for (long departure : order) {
+            departuresFrom[stationAt((int) departure) + 1]++;
+        }
+        for (int station = 0; station < stationCount; station++) {
+            departuresFrom[station + 1] += departuresFrom[station];
+        }
+        this.departures = new long[2 * departures];
+        int[] filled = Arrays.copyOf(departuresFrom, stationCount);
+        for (long departure : order) {
+            int stop = (int) departure;
+            int at = 2 * filled[stationAt(stop)]++;
+            int trip = stopTrip[stop];
+            this.departures[at] = departure;
+            this.departures[at + 1] = (long) trip << 32 | tripStart[trip + 1] - 1;
+        }
+        this.connections = new long[2 * departures];
+        this.connectionStops = new int[departures];
+        this.connectionTrips = new int[departures];
+        this.arrivalsAt = new int[stationCount + 1];
+        for (int c = 0; c < departures; c++) {
+            int stop = (int) order[c];
+            connections[2 * c] = this.stops[stop];
+            connections[2 * c + 1] = this.stops[stop + 1];
+            connectionStops[c] = stop;
+            connectionTrips[c] = stopTrip[stop];
+            arrivalsAt[stationAt(stop + 1) + 1]++;
+        }
+        for (int station = 0; station < stationCount; station++) {
+            arrivalsAt[station + 1] += arrivalsAt[station];
+        }
+        this.arrivals = new int[departures];
+        filled = Arrays.copyOf(arrivalsAt, stationCount);
+        for (int c = 0; c < departures; c++) {
+            arrivals[filled[stationAt(connectionStops[c] + 1)]++] = c;
+        }
+        int trainCount = tripIds.length;
+        this.scratch = ThreadLocal.withInitial(() -> new Scratch(stationCount, trainCount));
+    }
+
+    /** Arrays for one query at a time; entries a query touches are listed so only they are reset. */
+    private static final class Scratch {
+        final int[] earliest;
+        /** The stop a station was last improved at, and the stop its trip was boarded at. */
+        final int[] exitStop;
+        final int[] enterStop;
+        final int[] boardedAt;
+        final int[] touchedStations;
+        final int[] touchedTrips;
+        int stationsTouched;
+        int tripsTouched;
+        /** Fewest-transfers only: the round each station was last improved in, and every improvement in order. */
+        final int[] improvedIn;
+        final int[] improved;
+        int improvedCount;
+        final int[] marked;
+        final int[] markedTimes;
+        int markedCount;
+        int round = -1;
+        int[] log = new int[192];
+        int logged;
+
+        Scratch(int stations, int trips) {
+            earliest = new int[stations];
+            exitStop = new int[stations];
+            enterStop = new int[stations];
+            boardedAt = new int[trips];
+            touchedStations = new int[stations];
+            touchedTrips = new int[trips];
+            improvedIn = new int[stations];
+            improved = new int[stations];
+            marked = new int[stations];
+            markedTimes = new int[stations];
+            Arrays.fill(earliest, UNREACHED);
+            Arrays.fill(boardedAt, -1);
+            Arrays.fill(improvedIn, -1);
+        }
+
+        void reach(int station, int time) {
+            if (earliest[station] == UNREACHED) {
+                touchedStations[stationsTouched++] = station;
+            }
+            earliest[station] = time;
+        }
+
+        void board(int trip, int stop) {
+            if (boardedAt[trip] < 0) {
+                touchedTrips[tripsTouched++] = trip;
+            }
+            boardedAt[trip] = stop;
+        }
+
+        void improve(int station, int time, int exit, int enter) {
+            reach(station, time);
+            exitStop[station] = exit;
+            enterStop[station] = enter;
+            if (round < 0) {
+                return;
+            }
+            if (improvedIn[station] != round) {
+                improvedIn[station] = round;
+                improved[improvedCount++] = station;
+            }
+            if (logged + 3 > log.length) {
+                log = Arrays.copyOf(log, log.length * 2);
+            }
+            log[logged++] = station;
+            log[logged++] = exit;
+            log[logged++] = enter;
+        }
+
+        /** Makes the stations the last round improved the ones to board from, at their labels so far. */
+        void nextRound() {
+            round++;
+            for (int i = 0; i < improvedCount; i++) {
+                marked[i] = improved[i];
+                markedTimes[i] = earliest[improved[i]];
+            }
+            markedCount = improvedCount;
+            improvedCount = 0;
+            releaseTrips();
+        }
+
+        void releaseTrips() {
+            for (int i = 0; i < tripsTouched; i++) {
+                boardedAt[touchedTrips[i]] = -1;
+            }
+            tripsTouched = 0;
+        }
+
+        void reset() {
+            for (int i = 0; i < stationsTouched; i++) {
+                earliest[touchedStations[i]] = UNREACHED;
+                improvedIn[touchedStations[i]] = -1;
+            }
+            stationsTouched = 0;
+            releaseTrips();
+            improvedCount = 0;
+            markedCount = 0;
+            round = -1;
+            logged = 0;
+        }
+    }
+
+    /** Stop-to-stop hops over all timed trains. */
+    public int connectionCount() {
+        return stops.length - tripIds.length;
+    }
+
+    /** The journey that arrives first, however many changes it needs. */
+    public Optional<Journey> earliestArrival(String source, String destination, int departAfter, int minConnectionSeconds) {
+        int origin = StationDictionary.idOf(source);
+        int target = StationDictionary.idOf(destination);
+        if (!isKnown(origin) || !isKnown(target) || origin == target) {
+            return Optional.empty();
+        }
+        int first = firstDeparture(origin, departAfter);
+        if (first == departuresFrom[origin + 1]) {
+            return Optional.empty();
+        }
+        Scratch query = scratch.get();
+        try {
+            int[] earliest = query.earliest;
+            int[] boardedAt = query.boardedAt;
+            // Backdating the origin by one connection time lets every boarding use the same test.
+            query.reach(origin, departAfter - minConnectionSeconds);
+            int best = UNREACHED;
+            int end = connectionStops.length;
+            for (int c = firstConnection((int) (departures[2 * first] >> 32)); c < end; c++) {
+                long leaves = connections[2 * c];
+                int departure = (int) (leaves >> 32);
+                int ready = earliest[(int) leaves];
+                // A boarded trip reached this stop at this very time, so neither boarding nor staying on is possible.
+                if (ready > departure) {
+                    continue;
+                }
+                long reaches = connections[2 * c + 1];
+                // Later stops of the same train arrive later still, so it need not be boarded either.
+                int arrival = (int) (reaches >> 32);
+                if (arrival >= best) {
+                    continue;
+                }
+                int trip = connectionTrips[c];
+                if (boardedAt[trip] < 0) {
+                    if (ready + minConnectionSeconds > departure) {
+                        continue;
+                    }
+                    query.board(trip, connectionStops[c]);
+                }
+                int station = (int) reaches;
+                if (arrival < earliest[station]) {
+                    query.improve(station, arrival, connectionStops[c] + 1, boardedAt[trip]);
+                    if (station == target) {
+                        best = arrival;
+                        end = lastArrivalBefore(target, best, end) + 1;
+                    }
+                }
+            }
+            if (earliest[target] == UNREACHED) {
+                return Optional.empty();
+            }
+            List<Journey.Leg> legs = new ArrayList<>();
+            for (int station = target; station != origin; ) {
+                int enter = query.enterStop[station];
+                legs.add(leg(enter, query.exitStop[station]));
+                station = stationAt(enter);
+            }
+            Collections.reverse(legs);
+            return Optional.of(new Journey(legs));
+        } finally {
+            query.reset();
+        }
+    }
+
+    /** The journey with the fewest changes, and among those the one that arrives first. */
+    public Optional<Journey> fewestTransfers(String source, String destination, int departAfter, int minConnectionSeconds, int maxTransfers) {
+        int origin = StationDictionary.idOf(source);
+        int target = StationDictionary.idOf(destination);
+        if (!isKnown(origin) || !isKnown(target) || origin == target) {
+            return Optional.empty();
+        }
+        Scratch query = scratch.get();
+        try {
+            query.reach(origin, departAfter - minConnectionSeconds);
+            query.improved[query.improvedCount++] = origin;
+            int[] roundEnds = new int[maxTransfers + 1];
+            for (int round = 0; round <= maxTransfers; round++) {
+                query.nextRound();
+                if (query.markedCount == 0) {
+                    break;
+                }
+                for (int i = 0; i < query.markedCount; i++) {
+                    boardFrom(query, query.marked[i], query.markedTimes[i] + minConnectionSeconds, target);
+                }
+                roundEnds[round] = query.logged;
+                if (query.earliest[target] != UNREACHED) {
+                    return Optional.of(new Journey(legsFromRounds(query, origin, target, round, roundEnds)));
+                }
+            }
+            return Optional.empty();
+        } finally {
+            query.reset();
+        }
+    }
+
+    /** Boards every trip leaving {@code station} from {@code ready} on that could still beat the target's arrival. */
+    private void boardFrom(Scratch query, int station, int ready, int target) {
+        int end = departuresFrom[station + 1];
+        for (int at = firstDeparture(station, ready); at < end && departures[2 * at] >> 32 < query.earliest[target]; at++) {
+            ride(query, at, target);
+        }
+    }
+
+    /** Rides the trip from a departure's stop, improving the stops after it, unless it was boarded there or earlier. */
+    private void ride(Scratch query, int departure, int target) {
+        int[] earliest = query.earliest;
+        int enter = (int) departures[2 * departure];
+        long trip = departures[2 * departure + 1];
+        int boarded = query.boardedAt[(int) (trip >> 32)];
+        if (boarded >= 0 && boarded <= enter) {
+            return;
+        }
+        // The stops after an earlier boarding already have this trip's times.
+        int last = boarded >= 0 ? boarded : (int) trip;
+        query.board((int) (trip >> 32), enter);
+        for (int stop = enter + 1; stop <= last; stop++) {
+            int arrival = (int) (stops[stop] >> 32);
+            int station = (int) stops[stop];
+            if (arrival >= earliest[target]) {
+                break;
+            }
+            if (arrival < earliest[station]) {
+                query.improve(station, arrival, stop, enter);
+            }
+        }
+    }
+
+    /** Walks back from the target, taking each station's last improvement in the latest round up to the current one. */
+    private List<Journey.Leg> legsFromRounds(Scratch query, int origin, int target, int round, int[] roundEnds) {
+        List<Journey.Leg> legs = new ArrayList<>();
+        int station = target;
+        for (int r = round; station != origin && r >= 0; r--) {
+            int from = r == 0 ? 0 : roundEnds[r - 1];
+            for (int at = roundEnds[r] - 3; at >= from; at -= 3) {
+                if (query.log[at] == station) {
+                    int enter = query.log[at + 2];
+                    legs.add(leg(enter, query.log[at + 1]));
+                    station = stationAt(enter);
+                    break;
+                }
+            }
+        }
+        Collections.reverse(legs);
+        return legs;
+    }
+
+    /** Leg from the stop where the trip was boarded to the stop where it was left. */
+    private Journey.Leg leg(int enter, int exit) {
+        return new Journey.Leg(tripIds[stopTrip[enter]],
+                StationDictionary.nameOf(stationAt(enter)), StationDictionary.nameOf(stationAt(exit)),
+                (int) timeAt(enter), (int) timeAt(exit));
+    }
+
+    private int stationAt(int stop) {
+        return (int) stops[stop];
+    }
+
+    private long timeAt(int stop) {
+        return stops[stop] >> 32;
+    }
+
+    /** Index of the first connection leaving at or after {@code time}. */
+    private int firstConnection(int time) {
+        int low = 0;
+        int high = connectionStops.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (connections[2 * mid] >> 32 < time) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /** The last connection before {@code end} arriving at {@code station} before {@code time}; -1 if none. */
+    private int lastArrivalBefore(int station, int time, int end) {
+        for (int at = arrivalsAt[station + 1] - 1; at >= arrivalsAt[station]; at--) {
+            int c = arrivals[at];
+            if (c < end && connections[2 * c + 1] >> 32 < time) {
+                return c;
+            }
+        }
+        return -1;
+    }
+
+    /** Index of the first departure from {@code station} at or after {@code time}. */
+    private int firstDeparture(int station, int time) {
+        int low = departuresFrom[station];
+        int high = departuresFrom[station + 1];
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (departures[2 * mid] >> 32 < time) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private boolean isKnown(int station) {
+        return station >= 0 && station < stationCount;
+    }
+
+    /** Seconds after midnight for each stop, rolled over past midnight; null if a stop has no time. */
+    private static int[] stopTimes(Train train) {
+        if (train.stopCount() < 2) {
+            return null;
+        }
+        int[] times = new int[train.stopCount()];
+        for (int stop = 0; stop < times.length; stop++) {
+            times[stop] = train.departureTime(stop);
+            if (times[stop] == Train.NO_TIME) {
+                return null;
+            }
+            while (stop > 0 && times[stop] < times[stop - 1]) {
+                times[stop] += DAY_SECONDS;
+            }
+        }
+        return times;
+    }
+}
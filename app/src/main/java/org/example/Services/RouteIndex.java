@@ -0,0 +1,168 @@
+package org.example.Services;
+
+import org.example.entities.StationDictionary;
+import org.example.entities.Train;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Inverted index from station to the trains that stop there.
+ * Posting lists are indexed by {@link StationDictionary} id and hold (train ordinal, stop position)
+ * pairs packed into a long and kept sorted by ordinal, so a source/destination query
+ * is a merge of two sorted arrays plus a position check.
+ */
+public class RouteIndex {
+    private final List<PostingList> postings = new ArrayList<>();
+    private int stationCount;
+    private final List<Train> trainsByOrdinal = new ArrayList<>();
+    private final List<int[]> stopsByOrdinal = new ArrayList<>();
+    private final Map<String, Integer> ordinalsByTrainId = new HashMap<>();
+
+    public void addOrReplace(Train train) {
+        String key = train.getTrainId().toLowerCase();
+        Integer ordinal = ordinalsByTrainId.get(key);
+        if (ordinal == null) {
+            ordinal = trainsByOrdinal.size();
+            trainsByOrdinal.add(train);
+            stopsByOrdinal.add(new int[0]);
+            ordinalsByTrainId.put(key, ordinal);
+        } else {
+            unindex(ordinal);
+            trainsByOrdinal.set(ordinal, train);
+        }
+        index(ordinal, train);
+    }
+
+    public void remove(String trainId) {
+        Integer ordinal = ordinalsByTrainId.remove(trainId.toLowerCase());
+        if (ordinal != null) {
+            unindex(ordinal);
+            trainsByOrdinal.set(ordinal, null);
+            stopsByOrdinal.set(ordinal, new int[0]);
+        }
+    }
+
+    public List<Train> search(String source, String destination) {
+        PostingList from = postingsOf(StationDictionary.idOf(source));
+        PostingList to = postingsOf(StationDictionary.idOf(destination));
+        if (from == null || to == null) {
+            return new ArrayList<>();
+        }
+        List<Train> result = new ArrayList<>();
+        int i = 0;
+        int j = 0;
+        while (i < from.size && j < to.size) {
+            int fromOrdinal = ordinal(from.entries[i]);
+            int toOrdinal = ordinal(to.entries[j]);
+            if (fromOrdinal < toOrdinal) {
+                i++;
+            } else if (fromOrdinal > toOrdinal) {
+                j++;
+            } else {
+                // First entry per ordinal is the lowest stop position, matching List.indexOf.
+                if (position(from.entries[i]) < position(to.entries[j])) {
+                    result.add(trainsByOrdinal.get(fromOrdinal));
+                }
+                while (i < from.size && ordinal(from.entries[i]) == fromOrdinal) {
+                    i++;
+                }
+                while (j < to.size && ordinal(to.entries[j]) == toOrdinal) {
+                    j++;
+                }
+            }
+        }
+        return result;
+    }
+
+    public int stationCount() {
+        return stationCount;
+    }
+
+    private void index(int ordinal, Train train) {
+        int[] stops = train.stationIds().clone();
+        for (int position = 0; position < stops.length; position++) {
+            postingsFor(stops[position]).insert(pack(ordinal, position));
+        }
+        // Remember what was indexed so a later replace can unindex even if the old
+        // Train instance was mutated in place.
+        stopsByOrdinal.set(ordinal, stops);
+    }
+
+    private void unindex(int ordinal) {
+        int[] stops = stopsByOrdinal.get(ordinal);
+        for (int position = 0; position < stops.length; position++) {
+            postings.get(stops[position]).remove(pack(ordinal, position));
+        }
+    }
+
+    private PostingList postingsOf(int stationId) {
+        return stationId < 0 || stationId >= postings.size() ? null : postings.get(stationId);
+    }
+
+    private PostingList postingsFor(int stationId) {
+        while (postings.size() <= stationId) {
+            postings.add(null);
+        }
+        PostingList list = postings.get(stationId);
+        if (list == null) {
+            list = new PostingList();
+            postings.set(stationId, list);
+            stationCount++;
+        }
+        return list;
+    }
+
+    private static long pack(int ordinal, int position) {
+        return ((long) ordinal << 32) | (position & 0xFFFFFFFFL);
+    }
+
+    private static int ordinal(long entry) {
+        return (int) (entry >>> 32);
+    }
+
+    private static int position(long entry) {
+        return (int) entry;
+    }
+
+    private static final class PostingList {
+        private long[] entries = new long[4];
+        private int size;
+
+        void insert(long entry) {
+            // New trains get the highest ordinal, so the common case is a plain append.
+            if (size == 0 || entries[size - 1] < entry) {
+                ensureCapacity();
+                entries[size++] = entry;
+                return;
+            }
+            int at = Arrays.binarySearch(entries, 0, size, entry);
+            if (at >= 0) {
+                return;
+            }
+            at = -at - 1;
+            ensureCapacity();
+            System.arraycopy(entries, at, entries, at + 1, size - at);
+            entries[at] = entry;
+            size++;
+        }
+
+        void remove(long entry) {
+            int at = Arrays.binarySearch(entries, 0, size, entry);
+            if (at < 0) {
+                return;
+            }
+            System.arraycopy(entries, at + 1, entries, at, size - at - 1);
+            size--;
+        }
+
+        private void ensureCapacity() {
+            if (size == entries.length) {
+                entries = Arrays.copyOf(entries, size * 2);
+            }
+        }
+    }
+}
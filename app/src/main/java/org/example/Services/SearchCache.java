@@ -0,0 +1,131 @@
+package org.example.Services;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.collect.ImmutableList;
+import org.example.entities.Train;
+import org.example.persistence.SeatInventoryStore;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+import java.util.function.IntSupplier;
+
+/**
+ * Caches train search results per (source, destination) pair and free-seat counts per
+ * train, date and segment.
+ * <p>
+ * Route results are weighed by the number of trains they hold, so a few very popular
+ * pairs with long result lists cannot crowd out the rest; Guava evicts least recently
+ * used entries once the total weight is reached. Invalidation is precise: a changed train
+ * drops only the pairs it serves (before and after the change), and a booking drops only
+ * the counts of that train on that date.
+ * <p>
+ * Seat counts live in one entry per train and date, holding a small map by segment, so a
+ * booking invalidates a single key. A count is stored in the entry it was looked up in;
+ * if a booking invalidates that entry while the count is being taken, the count lands in
+ * the discarded entry and is never served.
+ */
+public class SearchCache {
+    private final Cache<Map.Entry<String, String>, List<Train>> routes;
+    private final Cache<String, SeatCounts> availability;
+    private final LongAdder availabilityHits = new LongAdder();
+    private final LongAdder availabilityMisses = new LongAdder();
+
+    /** Free seats of one train on one date, by segment {@code fromLeg << 8 | toLeg}. */
+    private static final class SeatCounts {
+        final Map<Integer, Integer> bySegment = new ConcurrentHashMap<>(4);
+    }
+
+    public SearchCache() {
+        this(Integer.getInteger("search.cache.weight", 100_000), Integer.getInteger("availability.cache.size", 100_000));
+    }
+
+    public SearchCache(long maxRouteWeight, long maxAvailabilityEntries) {
+        this.routes = CacheBuilder.newBuilder()
+                .maximumWeight(maxRouteWeight)
+                .weigher((Map.Entry<String, String> key, List<Train> trains) -> 1 + trains.size())
+                .recordStats()
+                .build();
+        this.availability = CacheBuilder.newBuilder()
+                .maximumSize(maxAvailabilityEntries)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Cached result for the pair, or the result of {@code search} on the normalized names,
+     * which is then cached. Callers must hold off train changes while searching so no
+     * stale result is stored.
+     */
+    public List<Train> trains(String source, String destination, BiFunction<String, String, List<Train>> search) {
+        Map.Entry<String, String> key = Map.entry(normalize(source), normalize(destination));
+        List<Train> cached = routes.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+        List<Train> result = ImmutableList.copyOf(search.apply(key.getKey(), key.getValue()));
+        routes.put(key, result);
+        return result;
+    }
+
+    public int availableSeats(String trainId, String dateOfTravel, int fromLeg, int toLeg, IntSupplier count) {
+        SeatCounts counts = availability.asMap().computeIfAbsent(SeatInventoryStore.key(trainId, dateOfTravel),
+                key -> new SeatCounts());
+        int segment = fromLeg << 8 | toLeg;
+        Integer cached = counts.bySegment.get(segment);
+        if (cached != null) {
+            availabilityHits.increment();
+            return cached;
+        }
+        availabilityMisses.increment();
+        int free = count.getAsInt();
+        counts.bySegment.put(segment, free);
+        return free;
+    }
+
+    /** Drops the cached pairs the train serves, and all its seat counts. */
+    public void trainChanged(Train train) {
+        if (train.getStations() != null) {
+            routes.asMap().keySet().removeIf(key -> serves(train, key.getKey(), key.getValue()));
+        }
+        String prefix = train.getTrainId().toLowerCase() + '|';
+        availability.asMap().keySet().removeIf(key -> key.startsWith(prefix));
+    }
+
+    /** Drops the seat counts of one train on one date after a booking or release. */
+    public void seatsChanged(String trainId, String dateOfTravel) {
+        availability.invalidate(SeatInventoryStore.key(trainId, dateOfTravel));
+    }
+
+    public CacheStats routeStats() {
+        return routes.stats();
+    }
+
+    /** Hits and misses per segment looked up; evictions per train and date. */
+    public CacheStats availabilityStats() {
+        CacheStats entries = availability.stats();
+        return new CacheStats(availabilityHits.sum(), availabilityMisses.sum(), entries.loadSuccessCount(),
+                entries.loadExceptionCount(), entries.totalLoadTime(), entries.evictionCount());
+    }
+
+    public long routeEntries() {
+        return routes.size();
+    }
+
+    public long availabilityEntries() {
+        return availability.size();
+    }
+
+    private static boolean serves(Train train, String source, String destination) {
+        int from = train.stationIndex(source);
+        return from >= 0 && train.stationIndex(destination) > from;
+    }
+
+    private static String normalize(String station) {
+        return station.trim().toLowerCase();
+    }
+}
@@ -0,0 +1,193 @@
+package org.example.Services;
+
+import org.example.entities.SeatMap;
+import org.example.entities.SeatRequest;
+
+import java.util.Optional;
+
+/**
+ * Picks and claims the best free seats for a party on one segment of a train.
+ * <p>
+ * Candidates come from the seat map's free bitsets a word at a time: seats that start a
+ * run of {@code k} adjacent free seats are found by AND-ing the free mask with itself
+ * shifted by 1..k-1, so rows are never walked seat by seat. Rows are tried front to
+ * back, and when windows are asked for, a choice touching a window (first or last seat
+ * of the row) beats an earlier row without one.
+ * <p>
+ * The chosen seats are claimed one by one; if a concurrent booking wins any of them the
+ * claimed ones are released and the search runs again on the fresh bitsets.
+ */
+public class SeatAllocator {
+    private static final int MAX_ATTEMPTS = 8;
+
+    /** Claims seats for the request and returns them packed with {@link SeatMap#pack}, or empty if none fit. */
+    public Optional<long[]> allocate(SeatMap seats, int fromLeg, int toLeg, SeatRequest request) {
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            long[] chosen = request.isTogether()
+                    ? findRun(seats, fromLeg, toLeg, request)
+                    : findSeats(seats, fromLeg, toLeg, request);
+            if (chosen == null) {
+                return Optional.empty();
+            }
+            if (claimAll(seats, chosen, fromLeg, toLeg)) {
+                return Optional.of(chosen);
+            }
+        }
+        return Optional.empty();
+    }
+
+    private static long[] findRun(SeatMap seats, int fromLeg, int toLeg, SeatRequest request) {
+        int partySize = request.getPartySize();
+        int firstRow = request.getCoach() == SeatRequest.ANY_COACH ? 0 : request.getCoach();
+        int lastRow = request.getCoach() == SeatRequest.ANY_COACH ? seats.rowCount() - 1 : request.getCoach();
+        if (firstRow < 0 || lastRow >= seats.rowCount()) {
+            return null;
+        }
+        int fallbackRow = -1;
+        int fallbackStart = -1;
+        for (int row = firstRow; row <= lastRow; row++) {
+            int seatsInRow = seats.seatsInRow(row);
+            if (partySize > seatsInRow) {
+                continue;
+            }
+            long[] starts = runStarts(free(seats, row, fromLeg, toLeg), partySize);
+            if (request.isWindow()) {
+                if (isSet(starts, 0) || isSet(starts, seatsInRow - partySize)) {
+                    return run(row, isSet(starts, 0) ? 0 : seatsInRow - partySize, partySize);
+                }
+            }
+            int start = lowestSet(starts);
+            if (start >= 0 && fallbackRow < 0) {
+                if (!request.isWindow()) {
+                    return run(row, start, partySize);
+                }
+                fallbackRow = row;
+                fallbackStart = start;
+            }
+        }
+        return fallbackRow < 0 ? null : run(fallbackRow, fallbackStart, partySize);
+    }
+
+    private static long[] findSeats(SeatMap seats, int fromLeg, int toLeg, SeatRequest request) {
+        int partySize = request.getPartySize();
+        int firstRow = request.getCoach() == SeatRequest.ANY_COACH ? 0 : request.getCoach();
+        int lastRow = request.getCoach() == SeatRequest.ANY_COACH ? seats.rowCount() - 1 : request.getCoach();
+        if (firstRow < 0 || lastRow >= seats.rowCount()) {
+            return null;
+        }
+        // Keep the party in one row when any row has room for everyone, preferring one with a free window.
+        int fallbackRow = -1;
+        for (int row = firstRow; row <= lastRow; row++) {
+            long[] free = free(seats, row, fromLeg, toLeg);
+            if (count(free) < partySize) {
+                continue;
+            }
+            if (!request.isWindow() || isSet(free, 0) || isSet(free, seats.seatsInRow(row) - 1)) {
+                long[] chosen = new long[partySize];
+                take(row, seats.seatsInRow(row), free, request.isWindow(), chosen, 0);
+                return chosen;
+            }
+            if (fallbackRow < 0) {
+                fallbackRow = row;
+            }
+        }
+        if (fallbackRow >= 0) {
+            long[] chosen = new long[partySize];
+            take(fallbackRow, seats.seatsInRow(fallbackRow), free(seats, fallbackRow, fromLeg, toLeg), true, chosen, 0);
+            return chosen;
+        }
+        long[] chosen = new long[partySize];
+        int taken = 0;
+        for (int row = firstRow; row <= lastRow && taken < partySize; row++) {
+            taken = take(row, seats.seatsInRow(row), free(seats, row, fromLeg, toLeg), request.isWindow(), chosen, taken);
+        }
+        return taken == partySize ? chosen : null;
+    }
+
+    /** Fills {@code chosen} from {@code taken} with free seats of the row, windows first if asked. */
+    private static int take(int row, int seatsInRow, long[] free, boolean window, long[] chosen, int taken) {
+        if (window) {
+            for (int seat : new int[]{0, seatsInRow - 1}) {
+                if (taken < chosen.length && isSet(free, seat)) {
+                    chosen[taken++] = SeatMap.pack(row, seat);
+                    free[seat >>> 6] &= ~(1L << seat);
+                }
+            }
+        }
+        for (int word = 0; word < free.length && taken < chosen.length; word++) {
+            long bits = free[word];
+            while (bits != 0 && taken < chosen.length) {
+                chosen[taken++] = SeatMap.pack(row, (word << 6) + Long.numberOfTrailingZeros(bits));
+                bits &= bits - 1;
+            }
+        }
+        return taken;
+    }
+
+    private static boolean claimAll(SeatMap seats, long[] chosen, int fromLeg, int toLeg) {
+        for (int i = 0; i < chosen.length; i++) {
+            if (!seats.book(SeatMap.rowOf(chosen[i]), SeatMap.seatOf(chosen[i]), fromLeg, toLeg)) {
+                for (int claimed = 0; claimed < i; claimed++) {
+                    seats.release(SeatMap.rowOf(chosen[claimed]), SeatMap.seatOf(chosen[claimed]), fromLeg, toLeg);
+                }
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long[] free(SeatMap seats, int row, int fromLeg, int toLeg) {
+        long[] free = new long[seats.wordsInRow(row)];
+        for (int word = 0; word < free.length; word++) {
+            free[word] = seats.freeWord(row, word, fromLeg, toLeg);
+        }
+        return free;
+    }
+
+    /** Bit {@code s} is set when seats {@code s .. s + length - 1} are all free. */
+    static long[] runStarts(long[] free, int length) {
+        long[] starts = free.clone();
+        for (int shift = 1; shift < length; shift++) {
+            int words = shift >>> 6;
+            int bits = shift & 63;
+            for (int word = 0; word < starts.length; word++) {
+                int source = word + words;
+                long shifted = source < free.length ? free[source] >>> bits : 0;
+                if (bits != 0 && source + 1 < free.length) {
+                    shifted |= free[source + 1] << (64 - bits);
+                }
+                starts[word] &= shifted;
+            }
+        }
+        return starts;
+    }
+
+    private static long[] run(int row, int start, int length) {
+        long[] seats = new long[length];
+        for (int i = 0; i < length; i++) {
+            seats[i] = SeatMap.pack(row, start + i);
+        }
+        return seats;
+    }
+
+    private static boolean isSet(long[] words, int bit) {
+        return bit >= 0 && (bit >>> 6) < words.length && (words[bit >>> 6] & (1L << bit)) != 0;
+    }
+
+    private static int lowestSet(long[] words) {
+        for (int word = 0; word < words.length; word++) {
+            if (words[word] != 0) {
+                return (word << 6) + Long.numberOfTrailingZeros(words[word]);
+            }
+        }
+        return -1;
+    }
+
+    private static int count(long[] words) {
+        int count = 0;
+        for (long word : words) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+}
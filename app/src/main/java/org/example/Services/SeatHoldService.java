@@ -0,0 +1,262 @@
+package org.example.Services;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.entities.SeatHold;
+import org.example.entities.SeatMap;
+import org.example.entities.Train;
+import org.example.persistence.BookingLog;
+import org.example.persistence.MutationRecord;
+import org.example.util.Metrics;
+import org.example.util.TimerWheel;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+/**
+ * Seats held for a few minutes while a user checks out.
+ * <p>
+ * A hold takes the seat in the inventory straight away, so nobody else can book it,
+ * and schedules its own expiry on a {@link TimerWheel}; an expired hold releases just
+ * its own seat, with no scan over trains or holds. Confirming turns the hold into a
+ * ticket with the same id, releasing it puts the seat back on sale early.
+ * <p>
+ * Holds are durable like bookings: opening one logs {@code SEAT_HELD}, ending one logs
+ * {@code HOLD_ENDED}, and holds still open at a checkpoint are written to holds.json.
+ * After a restart their timers are armed again for whatever time they have left.
+ */
+public class SeatHoldService {
+    private static final long TICK_MILLIS = Long.getLong("hold.tick.millis", 100);
+    private static final long EXPIRY_RETRY_MILLIS = 1000;
+    private static final LongAdder HOLDS_OPENED = Metrics.counter("holds.opened");
+    private static final LongAdder HOLDS_CONFIRMED = Metrics.counter("holds.confirmed");
+    private static final LongAdder HOLDS_EXPIRED = Metrics.counter("holds.expired");
+
+    private static final class Held {
+        final SeatHold hold;
+        volatile TimerWheel.Timeout expiry;
+
+        Held(SeatHold hold) {
+            this.hold = hold;
+        }
+    }
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, Held> holds = new ConcurrentHashMap<>();
+    private final TrainService trainService;
+    private final BookingLog bookingLog;
+    private final File holdsFile;
+    private final TimerWheel timerWheel;
+    private final BiConsumer<String, String> seatsReleased;
+
+    /**
+     * Loads the holds open at the last checkpoint, replays the log on top and re-arms
+     * their expiry. {@code seatsReleased} hears the train id and travel date whenever a
+     * hold gives its seat back.
+     */
+    public SeatHoldService(TrainService trainService, BookingLog bookingLog, File holdsFile,
+                           BiConsumer<String, String> seatsReleased) throws IOException {
+        this(trainService, bookingLog, holdsFile, seatsReleased,
+                new TimerWheel(TICK_MILLIS, TimeUnit.MILLISECONDS, Executors.newVirtualThreadPerTaskExecutor()));
+        timerWheel.start();
+    }
+
+    SeatHoldService(TrainService trainService, BookingLog bookingLog, File holdsFile,
+                    BiConsumer<String, String> seatsReleased, TimerWheel timerWheel) throws IOException {
+        this.trainService = trainService;
+        this.bookingLog = bookingLog;
+        this.holdsFile = holdsFile;
+        this.seatsReleased = seatsReleased;
+        this.timerWheel = timerWheel;
+        if (holdsFile.exists()) {
+            List<SeatHold> saved = objectMapper.readValue(holdsFile, new TypeReference<List<SeatHold>>() {});
+            saved.forEach(hold -> holds.put(hold.getHoldId(), new Held(hold)));
+        }
+        replay(bookingLog.readAll());
+        holds.values().forEach(this::arm);
+        if (!holds.isEmpty()) {
+            System.out.println("Restored " + holds.size() + " seat holds");
+        }
+        bookingLog.registerSnapshotter("holds", this::writeSnapshot);
+    }
+
+    private void replay(List<MutationRecord> records) {
+        for (MutationRecord record : records) {
+            if (record.getType() == MutationRecord.Type.SEAT_HELD) {
+                holds.put(record.getTicketId(), new Held(record.toSeatHold()));
+            } else if (record.getType() == MutationRecord.Type.HOLD_ENDED) {
+                holds.remove(record.getTicketId());
+            }
+        }
+    }
+
+    /** Takes the seat for the user until the TTL runs out; empty if it is invalid or taken. */
+    public Optional<SeatHold> hold(String userId, Train train, int row, int seat, String source, String dest,
+                                   String dateOfTravel, Duration ttl) throws IOException {
+        int fromLeg = train.stationIndex(source);
+        int toLeg = train.stationIndex(dest);
+        SeatMap seats = trainService.seatsFor(train, dateOfTravel);
+        if (fromLeg < 0 || toLeg <= fromLeg || seats == null || !seats.isValidSeat(row, seat)) {
+            return Optional.empty();
+        }
+        SeatHold hold = new SeatHold(UUID.randomUUID().toString(), userId, train.getTrainId(), dateOfTravel, source, dest,
+                row, seat, fromLeg, toLeg, System.currentTimeMillis() + ttl.toMillis());
+        Held held = new Held(hold);
+        boolean taken = bookingLog.commit(outcome -> {
+            if (!seats.book(row, seat, fromLeg, toLeg)) {
+                return List.of();
+            }
+            outcome.onFailure(() -> seats.release(row, seat, fromLeg, toLeg));
+            holds.put(hold.getHoldId(), held);
+            outcome.onFailure(() -> holds.remove(hold.getHoldId(), held));
+            return List.of(MutationRecord.seatHeld(hold));
+        });
+        if (!taken) {
+            return Optional.empty();
+        }
+        arm(held);
+        HOLDS_OPENED.increment();
+        trainService.seatsChanged(train.getTrainId(), dateOfTravel);
+        return Optional.of(hold);
+    }
+
+    public Optional<SeatHold> find(String holdId) {
+        Held held = holdId == null ? null : holds.get(holdId);
+        return held == null ? Optional.empty() : Optional.of(held.hold);
+    }
+
+    public int size() {
+        return holds.size();
+    }
+
+    /** The holds still open, in no particular order. */
+    public List<SeatHold> open() {
+        List<SeatHold> open = new ArrayList<>(holds.size());
+        holds.values().forEach(held -> open.add(held.hold));
+        return open;
+    }
+
+    /** Expiry timeouts not yet run or cancelled. */
+    public int pendingExpiries() {
+        return timerWheel.pending();
+    }
+
+    /** Turns a hold into whatever the caller books with it, e.g. a ticket. */
+    public interface Confirmation {
+        /** Returns the records of the booking; undo steps go on {@code outcome} as for any mutation. */
+        List<MutationRecord> apply(SeatHold hold, BookingLog.Outcome outcome);
+    }
+
+    /**
+     * Ends the hold and logs {@code confirmation}'s records with it, in one commit. Empty
+     * if the hold had already expired or ended.
+     */
+    public Optional<SeatHold> confirm(String holdId, Confirmation confirmation) throws IOException {
+        Held held = holds.get(holdId);
+        if (held == null) {
+            return Optional.empty();
+        }
+        boolean confirmed = bookingLog.commit(outcome -> {
+            if (!holds.remove(holdId, held)) {
+                return List.of();
+            }
+            outcome.onFailure(() -> holds.put(holdId, held));
+            List<MutationRecord> records = new ArrayList<>(confirmation.apply(held.hold, outcome));
+            records.add(MutationRecord.holdEnded(held.hold.getUserId(), holdId));
+            return records;
+        });
+        if (!confirmed) {
+            return Optional.empty();
+        }
+        cancelExpiry(held);
+        HOLDS_CONFIRMED.increment();
+        return Optional.of(held.hold);
+    }
+
+    /** Puts the held seat back on sale before the hold runs out. */
+    public boolean release(String holdId) throws IOException {
+        Held held = holds.get(holdId);
+        if (held == null || !end(held)) {
+            return false;
+        }
+        cancelExpiry(held);
+        return true;
+    }
+
+    private void arm(Held held) {
+        long delay = held.hold.getExpiresAt() - System.currentTimeMillis();
+        held.expiry = timerWheel.schedule(() -> expire(held), delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void cancelExpiry(Held held) {
+        TimerWheel.Timeout expiry = held.expiry;
+        if (expiry != null) {
+            expiry.cancel();
+        }
+    }
+
+    private void expire(Held held) {
+        try {
+            if (end(held)) {
+                HOLDS_EXPIRED.increment();
+                System.out.println("Hold " + held.hold.getHoldId() + " expired; row " + (held.hold.getRow() + 1)
+                        + " seat " + (held.hold.getSeat() + 1) + " is back on sale.");
+            }
+        } catch (IOException ex) {
+            // end() put the hold back as it was; try again shortly.
+            System.err.println("Error expiring hold " + held.hold.getHoldId() + ", retrying: " + ex.getMessage());
+            held.expiry = timerWheel.schedule(() -> expire(held), EXPIRY_RETRY_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Releases the hold's seat unless the hold has already ended some other way. The seat
+     * goes back on sale only once the release is durable; if it cannot be logged the hold
+     * stays open.
+     */
+    private boolean end(Held held) throws IOException {
+        SeatHold hold = held.hold;
+        boolean ended = bookingLog.commit(outcome -> {
+            if (!holds.remove(hold.getHoldId(), held)) {
+                return List.of();
+            }
+            outcome.onFailure(() -> holds.put(hold.getHoldId(), held));
+            List<MutationRecord> records = new ArrayList<>(2);
+            Optional<Train> train = trainService.findTrain(hold.getTrainId());
+            SeatMap seats = train.isEmpty() ? null : trainService.seatsFor(train.get(), hold.getDateOfTravel());
+            if (seats != null && seats.isValidSeat(hold.getRow(), hold.getSeat())) {
+                outcome.onDurable(() -> seats.release(hold.getRow(), hold.getSeat(), hold.getFromLeg(), hold.getToLeg()));
+                records.add(MutationRecord.seatReleased(hold.getTrainId(), hold.getDateOfTravel(), hold.getRow(),
+                        hold.getSeat(), hold.getFromLeg(), hold.getToLeg()));
+            }
+            records.add(MutationRecord.holdEnded(hold.getUserId(), hold.getHoldId()));
+            return records;
+        });
+        if (ended) {
+            trainService.seatsChanged(hold.getTrainId(), hold.getDateOfTravel());
+            seatsReleased.accept(hold.getTrainId(), hold.getDateOfTravel());
+        }
+        return ended;
+    }
+
+    private void writeSnapshot() throws IOException {
+        holdsFile.getAbsoluteFile().getParentFile().mkdirs();
+        List<SeatHold> open = open();
+        File tempFile = new File(holdsFile.getPath() + ".tmp");
+        objectMapper.writeValue(tempFile, open);
+        Files.move(tempFile.toPath(), holdsFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,55 @@
+package org.example.Services;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.example.entities.User;
+
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Optional;
+
+/**
+ * Issues opaque session tokens after a successful login so later requests skip bcrypt.
+ * Sessions expire after a period without use.
+ */
+public class SessionManager {
+    private static final Duration DEFAULT_IDLE_TIMEOUT = Duration.ofMinutes(30);
+    private static final int TOKEN_BYTES = 32;
+    private static final SessionManager SHARED = new SessionManager(DEFAULT_IDLE_TIMEOUT);
+
+    private final SecureRandom random = new SecureRandom();
+    private final Cache<String, String> userIdsByToken;
+
+    public static SessionManager getInstance() {
+        return SHARED;
+    }
+
+    public SessionManager(Duration idleTimeout) {
+        this.userIdsByToken = CacheBuilder.newBuilder()
+                .expireAfterAccess(idleTimeout)
+                .build();
+    }
+
+    public String createSession(User user) {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        random.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        userIdsByToken.put(token, user.getUserId());
+        return token;
+    }
+
+    /** Returns the user id the token was issued to, if the session is still live. */
+    public Optional<String> validate(String token) {
+        if (token == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(userIdsByToken.getIfPresent(token));
+    }
+
+    public void invalidate(String token) {
+        if (token != null) {
+            userIdsByToken.invalidate(token);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package org.example.Services;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+
+/**
+ * Background thread that asks a {@link TrainService} to reload when the train file
+ * changes on disk.
+ */
+public class TrainFileWatcher implements Runnable {
+    private static final long DEBOUNCE_MILLIS = 200;
+
+    private final TrainService trainService;
+    private final WatchService watchService;
+    private final Path fileName;
+
+    private TrainFileWatcher(TrainService trainService, WatchService watchService, Path fileName) {
+        this.trainService = trainService;
+        this.watchService = watchService;
+        this.fileName = fileName;
+    }
+
+    public static void start(TrainService trainService, File trainFile) {
+        Path directory = trainFile.getAbsoluteFile().getParentFile().toPath();
+        try {
+            directory.toFile().mkdirs();
+            WatchService watchService = FileSystems.getDefault().newWatchService();
+            directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+            Thread thread = new Thread(new TrainFileWatcher(trainService, watchService, trainFile.toPath().getFileName()), "train-file-watcher");
+            thread.setDaemon(true);
+            thread.start();
+        } catch (IOException ex) {
+            System.err.println("Could not watch " + trainFile + " for changes: " + ex.getMessage());
+        }
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                boolean touched = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (fileName.equals(event.context())) {
+                        touched = true;
+                    }
+                }
+                key.reset();
+                if (touched) {
+                    // Editors often write in several steps; wait for the burst to settle.
+                    Thread.sleep(DEBOUNCE_MILLIS);
+                    drainPendingEvents();
+                    trainService.reloadFromDisk();
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void drainPendingEvents() {
+        WatchKey pending;
+        while ((pending = watchService.poll()) != null) {
+            pending.pollEvents();
+            pending.reset();
+        }
+    }
+}
@@ -1,37 +1,124 @@
 package org.example.Services;
 
-import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.cache.CacheStats;
+import com.google.common.hash.Hashing;
+import org.example.entities.Journey;
+import org.example.entities.SeatMap;
 import org.example.entities.Train;
+import org.example.persistence.BinarySnapshot;
+import org.example.persistence.BookingLog;
+import org.example.persistence.MutationRecord;
+import org.example.persistence.SeatInventoryStore;
+import org.example.util.JsonArrayLoader;
+import org.example.util.LatencyHistogram;
+import org.example.util.Metrics;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.OptionalInt;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 public class TrainService {
-    private List<Train> trainList;
+    private static volatile TrainService instance;
+
+    private final Map<String, Train> trainsById = new LinkedHashMap<>();
+    private final RouteIndex routeIndex = new RouteIndex();
+    private final SearchCache searchCache = new SearchCache();
+    private final Map<String, Long> fingerprints = new HashMap<>();
+    /** Entries of the train file that could not be loaded, kept so saving does not drop them. */
+    private final Map<String, JsonNode> unusableTrains = Collections.synchronizedMap(new LinkedHashMap<>());
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private SeatInventoryStore inventory = SeatInventoryStore.inMemory();
+    private volatile long lastSavedModified;
+    private volatile JourneyPlanner journeyPlanner;
     private ObjectMapper objectMapper = new ObjectMapper();
     private static final String TRAIN_DB_PATH = "data/trains.json";
+    private static final LatencyHistogram SEARCH_LATENCY = Metrics.timer("search.trains");
+    private static final LatencyHistogram INDEX_LOOKUP_LATENCY = Metrics.timer("search.index_lookup");
+    private static final LatencyHistogram SAVE_TRAINS_LATENCY = Metrics.timer("persistence.save_trains");
+
+    public static TrainService getInstance() throws IOException {
+        TrainService shared = instance;
+        if (shared == null) {
+            synchronized (TrainService.class) {
+                shared = instance;
+                if (shared == null) {
+                    shared = new TrainService();
+                    shared.inventory = SeatInventoryStore.getInstance();
+                    BookingLog bookingLog = BookingLog.getInstance();
+                    shared.replay(bookingLog.readAll());
+                    bookingLog.registerSnapshotter("trains", shared::writeSnapshot);
+                    bookingLog.registerSnapshotter("inventory", shared.inventory::force);
+                    bookingLog.onClose(shared.inventory::markClean);
+                    TrainFileWatcher.start(shared, new File(TRAIN_DB_PATH));
+                    SearchCache cache = shared.searchCache;
+                    Metrics.gauge("search.cache_hits", () -> cache.routeStats().hitCount());
+                    Metrics.gauge("search.cache_misses", () -> cache.routeStats().missCount());
+                    Metrics.gauge("search.cache_evictions", () -> cache.routeStats().evictionCount());
+                    Metrics.gauge("search.cache_entries", cache::routeEntries);
+                    Metrics.gauge("availability.cache_hits", () -> cache.availabilityStats().hitCount());
+                    Metrics.gauge("availability.cache_misses", () -> cache.availabilityStats().missCount());
+                    Metrics.gauge("availability.cache_evictions", () -> cache.availabilityStats().evictionCount());
+                    Metrics.gauge("availability.cache_entries", cache::availabilityEntries);
+                    instance = shared;
+                }
+            }
+        }
+        return shared;
+    }
 
     public TrainService() throws IOException {
         loadTrainListFromFile();
+        buildRouteIndex();
+    }
+
+    public TrainService(List<Train> trains) {
+        this(trains, SeatInventoryStore.inMemory());
+    }
+
+    public TrainService(List<Train> trains, SeatInventoryStore inventory) {
+        trains.forEach(train -> trainsById.put(train.getTrainId().toLowerCase(), train));
+        this.inventory = inventory;
+        buildRouteIndex();
     }
 
     private void loadTrainListFromFile() throws IOException {
         System.out.println("Loading train list from: " + TRAIN_DB_PATH);
         File file = new File(TRAIN_DB_PATH);
         try {
-            if (file.exists()) {
-                trainList = objectMapper.readValue(file, new TypeReference<List<Train>>() {});
-                System.out.println("Loaded " + trainList.size() + " trains");
+            File snapshot = BinarySnapshot.companionOf(file);
+            if (BinarySnapshot.isCurrent(snapshot, file)) {
+                BinarySnapshot.readTrains(snapshot, train -> {
+                    trainsById.put(train.getTrainId().toLowerCase(), train);
+                    fingerprints.put(train.getTrainId().toLowerCase(), fingerprint(objectMapper.valueToTree(train)));
+                });
+            } else if (file.exists()) {
+                new JsonArrayLoader(objectMapper).load(file, "trains", parser -> {
+                    JsonNode node = objectMapper.readTree(parser);
+                    return decodeTrain(node).map(train -> Map.entry(train, fingerprint(node))).orElse(null);
+                }, loaded -> {
+                    if (loaded != null) {
+                        trainsById.put(loaded.getKey().getTrainId().toLowerCase(), loaded.getKey());
+                        fingerprints.put(loaded.getKey().getTrainId().toLowerCase(), loaded.getValue());
+                    }
+                });
             } else {
                 System.out.println("Train file not found at " + file.getAbsolutePath() + ". Initializing empty train list.");
-                trainList = new ArrayList<>();
             }
         } catch (IOException ex) {
             System.err.println("Error loading train list: " + ex.getMessage());
@@ -39,48 +126,288 @@ public class TrainService {
         }
     }
 
+    private void buildRouteIndex() {
+        trainsById.values().forEach(routeIndex::addOrReplace);
+        System.out.println("Indexed " + trainsById.size() + " trains over " + routeIndex.stationCount() + " stations");
+    }
+
+    /**
+     * Re-reads the train file after an external edit and applies only the trains whose
+     * JSON changed, was added or was removed. Writes made by this service are skipped.
+     */
+    public void reloadFromDisk() {
+        File file = new File(TRAIN_DB_PATH);
+        if (!file.exists() || file.lastModified() == lastSavedModified) {
+            return;
+        }
+        try {
+            JsonNode nodes = objectMapper.readTree(file);
+            lock.writeLock().lock();
+            try {
+                Set<String> seen = new HashSet<>();
+                int changed = 0;
+                for (JsonNode node : nodes) {
+                    String key = node.path("train_id").asText().toLowerCase();
+                    long fingerprint = fingerprint(node);
+                    seen.add(key);
+                    Long previous = fingerprints.get(key);
+                    if (previous == null || previous != fingerprint) {
+                        Optional<Train> train = decodeTrain(node);
+                        if (train.isEmpty()) {
+                            continue;
+                        }
+                        replaceInMemory(train.get());
+                        unusableTrains.remove(key);
+                        fingerprints.put(key, fingerprint);
+                        changed++;
+                    }
+                }
+                unusableTrains.keySet().retainAll(seen);
+                for (String key : new ArrayList<>(fingerprints.keySet())) {
+                    if (!seen.contains(key)) {
+                        Train removed = trainsById.remove(key);
+                        if (removed != null) {
+                            searchCache.trainChanged(removed);
+                        }
+                        routeIndex.remove(key);
+                        fingerprints.remove(key);
+                        changed++;
+                    }
+                }
+                if (changed > 0) {
+                    journeyPlanner = null;
+                }
+                System.out.println("Reloaded " + TRAIN_DB_PATH + ": " + changed + " trains changed");
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } catch (IOException ex) {
+            System.err.println("Error reloading train list: " + ex.getMessage());
+        }
+    }
+
+    /**
+     * The train in one element of the train file, or empty with a message if it cannot be
+     * used, e.g. it has more stops than a seat map has legs; the other trains still load.
+     */
+    private Optional<Train> decodeTrain(JsonNode node) {
+        try {
+            return Optional.of(objectMapper.treeToValue(node, Train.class));
+        } catch (JsonProcessingException ex) {
+            System.err.println("Skipping train " + node.path("train_id").asText() + ": " + ex.getOriginalMessage());
+            unusableTrains.put(node.path("train_id").asText().toLowerCase(), node);
+            return Optional.empty();
+        }
+    }
+
+    private void replaceInMemory(Train train) {
+        Train previous = trainsById.put(train.getTrainId().toLowerCase(), train);
+        if (previous != null) {
+            searchCache.trainChanged(previous);
+        }
+        routeIndex.addOrReplace(train);
+        searchCache.trainChanged(train);
+    }
+
+    private void replay(List<MutationRecord> records) {
+        int applied = 0;
+        for (MutationRecord record : records) {
+            if (record.getType() != MutationRecord.Type.SEAT_BOOKED && record.getType() != MutationRecord.Type.SEAT_RELEASED
+                    && record.getType() != MutationRecord.Type.SEAT_HELD) {
+                continue;
+            }
+            Optional<Train> train = findTrain(record.getTrainId());
+            if (train.isPresent()) {
+                // Records from before per-date inventory carry no date and booked the train itself.
+                SeatMap seats = record.getDateOfTravel() == null
+                        ? train.get().getSeats() : seatsFor(train.get(), record.getDateOfTravel());
+                if (record.getType() == MutationRecord.Type.SEAT_RELEASED) {
+                    seats.release(record.getRow(), record.getSeat(), record.getFromLeg(), record.getToLeg());
+                } else if (record.getToLeg() == 0) {
+                    seats.book(record.getRow(), record.getSeat());
+                } else {
+                    seats.book(record.getRow(), record.getSeat(), record.getFromLeg(), record.getToLeg());
+                }
+                applied++;
+            }
+        }
+        if (applied > 0) {
+            System.out.println("Replayed " + applied + " seat changes from the booking log");
+        }
+    }
+
+    public Optional<Train> findTrain(String trainId) {
+        lock.readLock().lock();
+        try {
+            return trainId == null ? Optional.empty() : Optional.ofNullable(trainsById.get(trainId.toLowerCase()));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Seat inventory of the train on one travel date. */
+    public SeatMap seatsFor(Train train, String dateOfTravel) {
+        return inventory.seatsFor(train, dateOfTravel);
+    }
+
+    /**
+     * After an unclean shutdown, frees seats the inventory holds but no ticket or open
+     * hold accounts for; see {@link SeatInventoryStore#reconcile}. Call once the claims
+     * have been rebuilt from the snapshots and the log.
+     */
+    public boolean needsInventoryReconcile() {
+        return inventory.needsReconcile();
+    }
+
+    public void reconcileInventory(Collection<MutationRecord> claims) {
+        inventory.reconcile(this::findTrain, claims);
+    }
+
+    /** Free seats between the two stations on the travel date, from the cache when unchanged. */
+    public int availableSeats(Train train, String dateOfTravel, String source, String destination) {
+        int fromLeg = train.stationIndex(source);
+        int toLeg = train.stationIndex(destination);
+        if (fromLeg < 0 || toLeg <= fromLeg) {
+            return 0;
+        }
+        return searchCache.availableSeats(train.getTrainId(), dateOfTravel, fromLeg, toLeg,
+                () -> seatsFor(train, dateOfTravel).freeSeats(fromLeg, toLeg));
+    }
+
+    /** Called after seats of the train on the date were booked or released. */
+    public void seatsChanged(String trainId, String dateOfTravel) {
+        searchCache.seatsChanged(trainId, dateOfTravel);
+    }
+
+    public CacheStats searchCacheStats() {
+        return searchCache.routeStats();
+    }
+
+    public CacheStats availabilityCacheStats() {
+        return searchCache.availabilityStats();
+    }
+
     public List<Train> searchTrains(String source, String destination) {
-        return trainList.stream().filter(train -> validTrain(train, source, destination)).collect(Collectors.toList());
+        long started = System.nanoTime();
+        lock.readLock().lock();
+        try {
+            return searchCache.trains(source, destination, this::indexLookup);
+        } finally {
+            lock.readLock().unlock();
+            SEARCH_LATENCY.record(System.nanoTime() - started);
+        }
+    }
+
+    private List<Train> indexLookup(String source, String destination) {
+        long started = System.nanoTime();
+        try {
+            return routeIndex.search(source, destination);
+        } finally {
+            INDEX_LOOKUP_LATENCY.record(System.nanoTime() - started);
+        }
+    }
+
+    /**
+     * Earliest-arrival journey from source to destination leaving at or after
+     * {@code departAfter} seconds past midnight, changing trains where that helps.
+     */
+    public Optional<Journey> planJourney(String source, String destination, int departAfter, int minConnectionSeconds) {
+        return journeyPlanner().earliestArrival(source, destination, departAfter, minConnectionSeconds);
+    }
+
+    /** Journey with the fewest changes, at most {@code maxTransfers} of them. */
+    public Optional<Journey> planJourneyWithFewestTransfers(String source, String destination, int departAfter,
+                                                            int minConnectionSeconds, int maxTransfers) {
+        return journeyPlanner().fewestTransfers(source, destination, departAfter, minConnectionSeconds, maxTransfers);
+    }
+
+    /** The planner is rebuilt from the timetable on first use after any train changes. */
+    private JourneyPlanner journeyPlanner() {
+        JourneyPlanner planner = journeyPlanner;
+        if (planner == null) {
+            lock.readLock().lock();
+            try {
+                planner = new JourneyPlanner(new ArrayList<>(trainsById.values()));
+                journeyPlanner = planner;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+        return planner;
     }
 
     public void addTrain(Train newTrain) {
-        Optional<Train> existingTrain = trainList.stream()
-                .filter(train -> train.getTrainId().equalsIgnoreCase(newTrain.getTrainId()))
-                .findFirst();
-        if (existingTrain.isPresent()) {
-            updateTrain(newTrain);
-        } else {
-            trainList.add(newTrain);
-            saveTrainList();
+        lock.writeLock().lock();
+        try {
+            String key = newTrain.getTrainId().toLowerCase();
+            if (trainsById.containsKey(key)) {
+                updateTrain(newTrain);
+            } else {
+                trainsById.put(key, newTrain);
+                unusableTrains.remove(key);
+                routeIndex.addOrReplace(newTrain);
+                searchCache.trainChanged(newTrain);
+                journeyPlanner = null;
+                saveTrainList();
+            }
+        } finally {
+            lock.writeLock().unlock();
         }
     }
 
     public void updateTrain(Train updatedTrain) {
-        OptionalInt index = IntStream.range(0, trainList.size())
-                .filter(i -> trainList.get(i).getTrainId().equalsIgnoreCase(updatedTrain.getTrainId()))
-                .findFirst();
-        if (index.isPresent()) {
-            trainList.set(index.getAsInt(), updatedTrain);
-            saveTrainList();
-        } else {
-            addTrain(updatedTrain);
+        lock.writeLock().lock();
+        try {
+            Train previous = trainsById.get(updatedTrain.getTrainId().toLowerCase());
+            if (previous != null) {
+                searchCache.trainChanged(previous);
+                trainsById.put(updatedTrain.getTrainId().toLowerCase(), updatedTrain);
+                routeIndex.addOrReplace(updatedTrain);
+                searchCache.trainChanged(updatedTrain);
+                journeyPlanner = null;
+                saveTrainList();
+            } else {
+                addTrain(updatedTrain);
+            }
+        } finally {
+            lock.writeLock().unlock();
         }
     }
 
     private void saveTrainList() {
         try {
-            File outputFile = new File(TRAIN_DB_PATH);
-            outputFile.getParentFile().mkdirs();
-            objectMapper.writeValue(outputFile, trainList);
+            writeSnapshot();
         } catch (IOException ex) {
             System.err.println("Error saving train data: " + ex.getMessage());
         }
     }
 
-    private boolean validTrain(Train train, String source, String destination) {
-        List<String> stationOrder = train.getStations();
-        int sourceIndex = stationOrder.indexOf(source.toLowerCase());
-        int destinationIndex = stationOrder.indexOf(destination.toLowerCase());
-        return sourceIndex != -1 && destinationIndex != -1 && sourceIndex < destinationIndex;
+    public void writeSnapshot() throws IOException {
+        long started = System.nanoTime();
+        lock.readLock().lock();
+        try {
+            File outputFile = new File(TRAIN_DB_PATH);
+            outputFile.getParentFile().mkdirs();
+            File tempFile = new File(TRAIN_DB_PATH + ".tmp");
+            List<Object> entries = new ArrayList<>(trainsById.values());
+            entries.addAll(unusableTrains.values());
+            objectMapper.writeValue(tempFile, entries);
+            Files.move(tempFile.toPath(), outputFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            lastSavedModified = outputFile.lastModified();
+            File snapshot = BinarySnapshot.companionOf(outputFile);
+            if (unusableTrains.isEmpty()) {
+                BinarySnapshot.writeTrains(snapshot, trainsById.values());
+            } else {
+                // The snapshot cannot hold the skipped entries; load from JSON so they are reported again.
+                Files.deleteIfExists(snapshot.toPath());
+            }
+        } finally {
+            lock.readLock().unlock();
+            SAVE_TRAINS_LATENCY.record(System.nanoTime() - started);
+        }
+    }
+
+    private static long fingerprint(JsonNode node) {
+        return Hashing.murmur3_128().hashString(node.toString(), StandardCharsets.UTF_8).asLong();
     }
-}
\ No newline at end of file
+}
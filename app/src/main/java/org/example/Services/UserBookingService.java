@@ -1,48 +1,178 @@
 package org.example.Services;
 
-import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.entities.BookingRequest;
+import org.example.entities.Journey;
+import org.example.entities.SeatHold;
+import org.example.entities.SeatMap;
+import org.example.entities.SeatRequest;
 import org.example.entities.Ticket;
 import org.example.entities.Train;
 import org.example.entities.User;
+import org.example.persistence.BinarySnapshot;
+import org.example.persistence.BookingLog;
+import org.example.persistence.MutationRecord;
+import org.example.persistence.SeatInventoryStore;
+import org.example.util.JsonArrayLoader;
+import org.example.util.LatencyHistogram;
+import org.example.util.Metrics;
+import org.example.util.PasswordHasher;
 import org.example.util.UserServiceUtil;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * Sign-up, login and booking for every user of the process.
+ * <p>
+ * The service holds no per-caller state: login returns a session token and each later
+ * call names its caller by that token, so one instance serves all sessions at once.
+ * Users and tickets live in the concurrent {@link UserRepository}, seats in the
+ * {@link TrainService}, and every change goes through the booking log.
+ */
 public class UserBookingService {
-    private ObjectMapper objectMapper = new ObjectMapper();
-    private List<User> userList;
-    private User user;
+    private static volatile UserBookingService instance;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private UserRepository userRepository;
+    private final TrainService trainService;
+    private final BookingLog bookingLog;
+    private final SessionManager sessionManager;
+    private final SeatAllocator seatAllocator = new SeatAllocator();
+    private final Waitlist waitlist = new Waitlist(this::bookForWaiter);
+    private final SeatHoldService seatHolds;
+    private final File usersFile;
     private static final String USER_FILE_PATH = "data/users.json";
+    private static final LatencyHistogram LOGIN_LATENCY = Metrics.timer("auth.login");
+    private static final LatencyHistogram BOOK_SEAT_LATENCY = Metrics.timer("booking.book_seat");
+    private static final LatencyHistogram BOOK_BATCH_LATENCY = Metrics.timer("booking.book_batch");
+    private static final LatencyHistogram BOOK_BEST_LATENCY = Metrics.timer("booking.book_best_available");
+    private static final LatencyHistogram SEAT_CAS_LATENCY = Metrics.timer("booking.seat_cas");
+    private static final LatencyHistogram ALLOCATE_LATENCY = Metrics.timer("booking.allocate");
+    private static final LatencyHistogram CANCEL_LATENCY = Metrics.timer("booking.cancel");
+    private static final LatencyHistogram SAVE_USERS_LATENCY = Metrics.timer("persistence.save_users");
+    private static final LongAdder LOGINS_SUCCEEDED = Metrics.counter("auth.logins_succeeded");
+    private static final LongAdder LOGINS_FAILED = Metrics.counter("auth.logins_failed");
+    private static final LongAdder LOGINS_THROTTLED = Metrics.counter("auth.logins_throttled");
+    private static final LongAdder SEATS_BOOKED = Metrics.counter("booking.seats_booked");
+    private static final LongAdder SEAT_CONFLICTS = Metrics.counter("booking.seat_conflicts");
+    private static final LongAdder TICKETS_CANCELLED = Metrics.counter("booking.tickets_cancelled");
+    private static final String HOLDS_FILE_NAME = "holds.json";
+    public static final Duration DEFAULT_HOLD_TTL = Duration.ofSeconds(Long.getLong("hold.ttl.seconds", 600));
+    public static final Duration MAX_HOLD_TTL = Duration.ofSeconds(Long.getLong("hold.ttl.max.seconds", 3600));
 
-    public UserBookingService() throws IOException {
-        loadUserListFromFile();
+    /** The process-wide service over data/users.json; the file is read once, on first use. */
+    public static UserBookingService getInstance() throws IOException {
+        UserBookingService shared = instance;
+        if (shared == null) {
+            synchronized (UserBookingService.class) {
+                shared = instance;
+                if (shared == null) {
+                    shared = new UserBookingService(TrainService.getInstance());
+                    UserBookingService service = shared;
+                    Metrics.gauge("users", () -> service.userRepository.size());
+                    Metrics.gauge("tickets", () -> service.userRepository.ticketCount());
+                    Metrics.gauge("waitlist.waiting", () -> service.waitlist.size());
+                    Metrics.gauge("holds.open", () -> service.seatHolds.size());
+                    Metrics.gauge("holds.pending_expiries", () -> service.seatHolds.pendingExpiries());
+                    instance = shared;
+                }
+            }
+        }
+        return shared;
     }
 
-    public UserBookingService(User user) throws IOException {
-        this.user = user;
+    public UserBookingService(TrainService trainService) throws IOException {
+        this(trainService, BookingLog.getInstance(), SessionManager.getInstance());
+    }
+
+    public UserBookingService(TrainService trainService, BookingLog bookingLog, SessionManager sessionManager) throws IOException {
+        this(new File(USER_FILE_PATH), trainService, bookingLog, sessionManager);
+    }
+
+    public UserBookingService(File usersFile, TrainService trainService, BookingLog bookingLog, SessionManager sessionManager) throws IOException {
+        this.usersFile = usersFile;
+        this.trainService = trainService;
+        this.bookingLog = bookingLog;
+        this.sessionManager = sessionManager;
         loadUserListFromFile();
+        replay(bookingLog.readAll());
+        migrateEmbeddedTrains();
+        bookingLog.registerSnapshotter("users", this::saveUserList);
+        seatHolds = new SeatHoldService(trainService, bookingLog,
+                new File(usersFile.getAbsoluteFile().getParentFile(), HOLDS_FILE_NAME), waitlist::seatsReleased);
+        if (trainService.needsInventoryReconcile()) {
+            trainService.reconcileInventory(seatClaims());
+        }
     }
 
-    public User getUser() {
-        return user;
+    /**
+     * A {@code SEAT_BOOKED} record for the seat of every ticket and every open hold; row
+     * -1 for a ticket that never recorded its seat.
+     */
+    private List<MutationRecord> seatClaims() {
+        List<MutationRecord> claims = new ArrayList<>(userRepository.ticketCount() + seatHolds.size());
+        for (User user1 : userRepository.all()) {
+            if (user1.getTicketsBooked() == null) {
+                continue;
+            }
+            for (Ticket ticket : userRepository.tickets(user1)) {
+                Optional<Train> train = trainService.findTrain(ticket.getTrainId());
+                if (train.isEmpty()) {
+                    continue;
+                }
+                if (!ticket.hasSeat()) {
+                    claims.add(MutationRecord.seatBooked(ticket.getTrainId(), ticket.getDateOfTravel(), -1, -1, 0, 0));
+                    continue;
+                }
+                int fromLeg = train.get().stationIndex(ticket.getSource());
+                int toLeg = train.get().stationIndex(ticket.getDestination());
+                if (fromLeg >= 0 && toLeg > fromLeg) {
+                    claims.add(MutationRecord.seatBooked(ticket.getTrainId(), ticket.getDateOfTravel(), ticket.getRow(),
+                            ticket.getSeat(), fromLeg, toLeg));
+                }
+            }
+        }
+        for (SeatHold hold : seatHolds.open()) {
+            claims.add(MutationRecord.seatBooked(hold.getTrainId(), hold.getDateOfTravel(), hold.getRow(), hold.getSeat(),
+                    hold.getFromLeg(), hold.getToLeg()));
+        }
+        return claims;
+    }
+
+    private Optional<User> authenticatedUser(String token) {
+        return sessionManager.validate(token).flatMap(userRepository::findById);
     }
 
     private void loadUserListFromFile() throws IOException {
-        System.out.println("Loading user list from: " + USER_FILE_PATH);
-        File file = new File(USER_FILE_PATH);
+        System.out.println("Loading user list from: " + usersFile.getPath());
+        File file = usersFile;
         try {
-            if (file.exists()) {
-                userList = objectMapper.readValue(file, new TypeReference<List<User>>() {});
-                System.out.println("Loaded " + userList.size() + " users");
+            File snapshot = BinarySnapshot.companionOf(file);
+            if (BinarySnapshot.isCurrent(snapshot, file)) {
+                userRepository = new UserRepository();
+                BinarySnapshot.readUsers(snapshot, userRepository::add);
+            } else if (file.exists()) {
+                userRepository = new UserRepository();
+                new JsonArrayLoader(objectMapper).load(file, "users",
+                        parser -> objectMapper.readValue(parser, User.class), userRepository::add);
             } else {
                 System.out.println("User file not found at " + file.getAbsolutePath() + ". Initializing empty user list.");
-                userList = new ArrayList<>();
+                userRepository = new UserRepository();
             }
         } catch (IOException ex) {
             System.err.println("Error loading user list: " + ex.getMessage());
@@ -50,32 +180,103 @@ public class UserBookingService {
         }
     }
 
-    public Boolean loginUser() {
-        System.out.println("Attempting login for user: " + user.getName());
-        Optional<User> foundUser = userList.stream().filter(user1 ->
-                        user1.getName().equalsIgnoreCase(user.getName()) &&
-                                UserServiceUtil.checkPassword(user.getPassword(), user1.getHashedPassword()))
-                .findFirst();
-        if (foundUser.isPresent()) {
-            this.user = foundUser.get();
-            System.out.println("Login successful for user: " + user.getName());
-            return true;
+    /**
+     * Attaches the train resolver to every loaded ticket and, if the file still used the
+     * old format with a full train copy per ticket, rewrites it with train ids only.
+     */
+    private void migrateEmbeddedTrains() throws IOException {
+        boolean embedded = false;
+        for (User user1 : userRepository.all()) {
+            if (user1.getTicketsBooked() == null) {
+                continue;
+            }
+            for (Ticket ticket : user1.getTicketsBooked()) {
+                ticket.setTrainResolver(trainService::findTrain);
+                embedded |= ticket.hasEmbeddedTrain();
+            }
+        }
+        if (embedded) {
+            long before = usersFile.length();
+            saveUserList();
+            System.out.println("Migrated " + usersFile.getPath() + " to train id references: " + before + " -> " + usersFile.length() + " bytes");
+        }
+    }
+
+    private void replay(List<MutationRecord> records) {
+        int applied = 0;
+        for (MutationRecord record : records) {
+            switch (record.getType()) {
+                case USER_CREATED:
+                    if (userRepository.findById(record.getUserId()).isEmpty()) {
+                        userRepository.add(new User(record.getName(), null, record.getHashedPassword(), new ArrayList<>(), record.getUserId()));
+                    }
+                    break;
+                case TICKET_ADDED:
+                    Optional<User> owner = userRepository.findById(record.getUserId());
+                    if (owner.isPresent() && userRepository.findTicket(record.getTicketId()).isEmpty()) {
+                        Ticket ticket = new Ticket(record.getTicketId(), record.getUserId(), record.getSource(),
+                                record.getDestination(), record.getDateOfTravel(), record.getTrainId());
+                        ticket.assignSeat(record.getRow(), record.getSeat());
+                        userRepository.addTicket(owner.get(), ticket);
+                    }
+                    break;
+                case TICKET_CANCELLED:
+                    userRepository.removeTicket(record.getTicketId());
+                    break;
+                default:
+                    continue;
+            }
+            applied++;
+        }
+        if (applied > 0) {
+            System.out.println("Replayed " + applied + " user changes from the booking log");
+        }
+    }
+
+    /** Checks the password and opens a session; the token identifies the user on every later call. */
+    public Optional<String> login(String name, String password) {
+        long started = System.nanoTime();
+        try {
+            System.out.println("Attempting login for user: " + name);
+            if (!PasswordHasher.getInstance().tryAcquireLogin(name)) {
+                System.out.println("Too many login attempts for " + name + ", try again later.");
+                LOGINS_THROTTLED.increment();
+                return Optional.empty();
+            }
+            Optional<User> foundUser = userRepository.findByName(name)
+                    .filter(user1 -> UserServiceUtil.checkPassword(password, user1.getHashedPassword()));
+            if (foundUser.isPresent()) {
+                System.out.println("Login successful for user: " + foundUser.get().getName());
+                LOGINS_SUCCEEDED.increment();
+                return Optional.of(sessionManager.createSession(foundUser.get()));
+            }
+            System.out.println("Login failed: No matching user found");
+            LOGINS_FAILED.increment();
+            return Optional.empty();
+        } finally {
+            LOGIN_LATENCY.record(System.nanoTime() - started);
         }
-        System.out.println("Login failed: No matching user found");
-        return false;
+    }
+
+    /** The user the session belongs to, if the token is still valid. */
+    public Optional<User> userFor(String token) {
+        return authenticatedUser(token);
     }
 
     public Boolean signUp(User user1) throws IOException {
         System.out.println("Attempting signup for user: " + user1.getName());
         try {
-            if (userList.stream().anyMatch(u -> u.getName().equalsIgnoreCase(user1.getName()))) {
+            boolean created = !userRepository.containsName(user1.getName()) && bookingLog.commit(outcome -> {
+                if (!userRepository.add(user1)) {
+                    return List.of();
+                }
+                outcome.onFailure(() -> userRepository.remove(user1));
+                return List.of(MutationRecord.userCreated(user1.getUserId(), user1.getName(), user1.getHashedPassword()));
+            });
+            if (!created) {
                 System.out.println("User already exists: " + user1.getName());
-                return false;
             }
-            userList.add(user1);
-            saveUserList();
-            System.out.println("User data saved to: " + new File(USER_FILE_PATH).getAbsolutePath());
-            return true;
+            return created;
         } catch (IOException ex) {
             System.err.println("Error saving user data: " + ex.getMessage());
             throw ex;
@@ -83,108 +284,549 @@ public class UserBookingService {
     }
 
     public void saveUserList() throws IOException {
-        File outputFile = new File(USER_FILE_PATH);
+        File outputFile = usersFile;
+        long started = System.nanoTime();
         try {
-            outputFile.getParentFile().mkdirs();
-            objectMapper.writeValue(outputFile, userList);
+            outputFile.getAbsoluteFile().getParentFile().mkdirs();
+            File tempFile = new File(usersFile.getPath() + ".tmp");
+            objectMapper.writeValue(tempFile, userRepository.all());
+            Files.move(tempFile.toPath(), outputFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            BinarySnapshot.writeUsers(BinarySnapshot.companionOf(outputFile), userRepository.all());
         } catch (IOException ex) {
             System.err.println("Error saving user list: " + ex.getMessage());
             throw ex;
+        } finally {
+            SAVE_USERS_LATENCY.record(System.nanoTime() - started);
         }
     }
 
-    public void fetchBookings() {
-        if (user == null) {
-            System.out.println("No user logged in.");
-            return;
-        }
-        Optional<User> userFetched = userList.stream().filter(user1 ->
-                        user1.getName().equalsIgnoreCase(user.getName()) &&
-                                UserServiceUtil.checkPassword(user.getPassword(), user1.getHashedPassword()))
-                .findFirst();
+    public void logout(String token) {
+        sessionManager.invalidate(token);
+    }
+
+    public List<Ticket> tickets(String token) {
+        return authenticatedUser(token).map(userRepository::tickets).orElse(List.of());
+    }
+
+    public void fetchBookings(String token) {
+        Optional<User> userFetched = authenticatedUser(token);
         if (userFetched.isPresent()) {
-            List<Ticket> tickets = userFetched.get().getTicketsBooked();
+            List<Ticket> tickets = userRepository.tickets(userFetched.get());
             if (tickets.isEmpty()) {
                 System.out.println("No bookings found.");
             } else {
                 tickets.forEach(ticket -> System.out.println(ticket.getTicketInfo()));
             }
         } else {
-            System.out.println("User not found or invalid credentials.");
+            System.out.println("Session expired or invalid. Please log in again.");
+        }
+    }
+
+    public Boolean cancelBooking(String token, String ticketId) {
+        long started = System.nanoTime();
+        try {
+            Optional<User> sessionUser = authenticatedUser(token);
+            if (sessionUser.isEmpty()) {
+                System.out.println("No user logged in.");
+                return false;
+            }
+            User user = sessionUser.get();
+            if (ticketId == null || ticketId.isEmpty()) {
+                System.out.println("Ticket ID cannot be empty.");
+                return false;
+            }
+            Optional<Ticket> owned = userRepository.findTicket(ticketId)
+                    .filter(ticket -> userRepository.findTicketOwner(ticketId).filter(owner -> owner == user).isPresent());
+            if (owned.isEmpty()) {
+                System.out.println("No ticket found with ID " + ticketId);
+                return false;
+            }
+            Ticket ticket = owned.get();
+            try {
+                List<MutationRecord> released = new ArrayList<>(1);
+                boolean removed = bookingLog.commit(outcome -> {
+                    if (userRepository.removeTicket(ticketId).isEmpty()) {
+                        return List.of();
+                    }
+                    outcome.onFailure(() -> userRepository.addTicket(user, ticket));
+                    releaseSeat(ticket, outcome).ifPresent(released::add);
+                    List<MutationRecord> records = new ArrayList<>(released);
+                    records.add(MutationRecord.ticketCancelled(user.getUserId(), ticketId));
+                    return records;
+                });
+                if (removed) {
+                    released.forEach(record -> {
+                        trainService.seatsChanged(record.getTrainId(), record.getDateOfTravel());
+                        waitlist.seatsReleased(record.getTrainId(), record.getDateOfTravel());
+                    });
+                    System.out.println("Ticket with ID " + ticketId + " canceled.");
+                    TICKETS_CANCELLED.increment();
+                    return true;
+                }
+                System.out.println("No ticket found with ID " + ticketId);
+                return false;
+            } catch (IOException ex) {
+                System.err.println("Error saving user data: " + ex.getMessage());
+                return false;
+            }
+        } finally {
+            CANCEL_LATENCY.record(System.nanoTime() - started);
         }
     }
 
-    public Boolean cancelBooking(String ticketId) {
-        if (user == null) {
+    /**
+     * Frees the ticket's seat on its segment once the cancellation is durable, so nobody
+     * can book it before then; tickets booked before seats were recorded have none to free.
+     */
+    private Optional<MutationRecord> releaseSeat(Ticket ticket, BookingLog.Outcome outcome) {
+        Optional<Train> train = trainService.findTrain(ticket.getTrainId());
+        if (!ticket.hasSeat() || train.isEmpty()) {
+            return Optional.empty();
+        }
+        int fromLeg = train.get().stationIndex(ticket.getSource());
+        int toLeg = train.get().stationIndex(ticket.getDestination());
+        SeatMap seats = trainService.seatsFor(train.get(), ticket.getDateOfTravel());
+        if (fromLeg < 0 || toLeg <= fromLeg || seats == null || !seats.isValidSeat(ticket.getRow(), ticket.getSeat())) {
+            return Optional.empty();
+        }
+        outcome.onDurable(() -> seats.release(ticket.getRow(), ticket.getSeat(), fromLeg, toLeg));
+        return Optional.of(MutationRecord.seatReleased(ticket.getTrainId(), ticket.getDateOfTravel(),
+                ticket.getRow(), ticket.getSeat(), fromLeg, toLeg));
+    }
+
+    /** Any user's ticket by id, e.g. for a conductor or support lookup. */
+    public Optional<Ticket> findTicket(String ticketId) {
+        return userRepository.findTicket(ticketId);
+    }
+
+    public Optional<Train> findTrain(String trainId) {
+        return trainService.findTrain(trainId);
+    }
+
+    public List<Train> getTrains(String source, String destination) {
+        return trainService.searchTrains(source, destination);
+    }
+
+    public Optional<Journey> planJourney(String source, String destination, int departAfter, int minConnectionSeconds) {
+        return trainService.planJourney(source, destination, departAfter, minConnectionSeconds);
+    }
+
+    public int availableSeats(Train train, String source, String dest, String dateOfTravel) {
+        return trainService.availableSeats(train, dateOfTravel, source, dest);
+    }
+
+    public SeatMap fetchSeats(Train train) {
+        return train.getSeats();
+    }
+
+    public SeatMap fetchSeats(Train train, String dateOfTravel) {
+        return trainService.seatsFor(train, dateOfTravel);
+    }
+
+    public Boolean bookTrainSeat(String token, Train train, int row, int seat, String source, String dest, String dateOfTravel) {
+        return bookSeat(token, train, row, seat, source, dest, dateOfTravel).isPresent();
+    }
+
+    /** Books one chosen seat and returns its ticket, or empty if it cannot be booked. */
+    public Optional<Ticket> bookSeat(String token, Train train, int row, int seat, String source, String dest, String dateOfTravel) {
+        long started = System.nanoTime();
+        try {
+            Optional<User> sessionUser = authenticatedUser(token);
+            if (sessionUser.isEmpty()) {
+                System.out.println("No user logged in.");
+                return Optional.empty();
+            }
+            User user = sessionUser.get();
+            int fromLeg = train.stationIndex(source);
+            int toLeg = train.stationIndex(dest);
+            if (fromLeg < 0 || toLeg <= fromLeg) {
+                System.out.println("Train " + train.getTrainId() + " does not run from " + source + " to " + dest + ".");
+                return Optional.empty();
+            }
+            if (!isTravelDate(dateOfTravel)) {
+                return Optional.empty();
+            }
+            SeatMap seats = trainService.seatsFor(train, dateOfTravel);
+            if (seats == null || !seats.isValidSeat(row, seat)) {
+                System.out.println("Invalid seat selection.");
+                return Optional.empty();
+            }
+            Ticket ticket = new Ticket(
+                    UUID.randomUUID().toString(),
+                    user.getUserId(),
+                    source,
+                    dest,
+                    dateOfTravel,
+                    train.getTrainId()
+            );
+            ticket.assignSeat(row, seat);
+            ticket.setTrainResolver(trainService::findTrain);
+            try {
+                boolean booked = bookingLog.commit(outcome -> {
+                    long casStarted = System.nanoTime();
+                    boolean claimed = seats.book(row, seat, fromLeg, toLeg);
+                    SEAT_CAS_LATENCY.record(System.nanoTime() - casStarted);
+                    if (!claimed) {
+                        return List.of();
+                    }
+                    outcome.onFailure(() -> seats.release(row, seat, fromLeg, toLeg));
+                    userRepository.addTicket(user, ticket);
+                    outcome.onFailure(() -> userRepository.removeTicket(ticket.getTicketId()));
+                    return List.of(
+                            MutationRecord.seatBooked(train.getTrainId(), dateOfTravel, row, seat, fromLeg, toLeg),
+                            MutationRecord.ticketAdded(user.getUserId(), ticket.getTicketId(), source, dest, dateOfTravel, train.getTrainId(), row, seat));
+                });
+                if (booked) {
+                    SEATS_BOOKED.increment();
+                    trainService.seatsChanged(train.getTrainId(), dateOfTravel);
+                } else {
+                    SEAT_CONFLICTS.increment();
+                    System.out.println("Seat already booked.");
+                }
+                return booked ? Optional.of(ticket) : Optional.empty();
+            } catch (IOException ex) {
+                // The claim was undone, but a count cached meanwhile may still include it.
+                trainService.seatsChanged(train.getTrainId(), dateOfTravel);
+                System.err.println("Error booking seat: " + ex.getMessage());
+                return Optional.empty();
+            }
+        } finally {
+            BOOK_SEAT_LATENCY.record(System.nanoTime() - started);
+        }
+    }
+
+    /**
+     * Takes the seat off sale for the caller while they check out. The hold lapses after
+     * {@code ttl} unless {@link #confirmHold confirmed}; empty if the seat is not free.
+     */
+    public Optional<SeatHold> holdSeat(String token, Train train, int row, int seat, String source, String dest,
+                                       String dateOfTravel, Duration ttl) {
+        Optional<User> sessionUser = authenticatedUser(token);
+        if (sessionUser.isEmpty()) {
             System.out.println("No user logged in.");
-            return false;
+            return Optional.empty();
         }
-        if (ticketId == null || ticketId.isEmpty()) {
-            System.out.println("Ticket ID cannot be empty.");
-            return false;
+        if (!isTravelDate(dateOfTravel)) {
+            return Optional.empty();
+        }
+        if (ttl.compareTo(MAX_HOLD_TTL) > 0) {
+            System.out.println("Seats can be held for at most " + MAX_HOLD_TTL.toSeconds() + " seconds.");
+            return Optional.empty();
+        }
+        try {
+            Optional<SeatHold> hold = seatHolds.hold(sessionUser.get().getUserId(), train, row, seat, source, dest, dateOfTravel, ttl);
+            if (hold.isEmpty()) {
+                System.out.println("Cannot hold row " + (row + 1) + " seat " + (seat + 1) + ".");
+            }
+            return hold;
+        } catch (IOException ex) {
+            System.err.println("Error holding seat: " + ex.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /** Books the caller's held seat; the ticket takes the hold's id. Empty if the hold has lapsed. */
+    public Optional<Ticket> confirmHold(String token, String holdId) {
+        Optional<User> sessionUser = authenticatedUser(token);
+        if (sessionUser.isEmpty()) {
+            System.out.println("No user logged in.");
+            return Optional.empty();
         }
+        User user = sessionUser.get();
+        if (seatHolds.find(holdId).filter(hold -> hold.getUserId().equals(user.getUserId())).isEmpty()) {
+            System.out.println("No hold found with ID " + holdId);
+            return Optional.empty();
+        }
+        List<Ticket> confirmed = new ArrayList<>(1);
         try {
-            boolean removed = user.getTicketsBooked().removeIf(ticket -> ticket.getTicketId().equals(ticketId));
-            if (removed) {
-                saveUserList();
-                System.out.println("Ticket with ID " + ticketId + " canceled.");
-                return true;
+            seatHolds.confirm(holdId, (hold, outcome) -> {
+                Ticket ticket = hold.toTicket();
+                ticket.setTrainResolver(trainService::findTrain);
+                userRepository.addTicket(user, ticket);
+                outcome.onFailure(() -> userRepository.removeTicket(ticket.getTicketId()));
+                confirmed.add(ticket);
+                return List.of(MutationRecord.ticketAdded(user.getUserId(), ticket.getTicketId(), ticket.getSource(),
+                        ticket.getDestination(), ticket.getDateOfTravel(), ticket.getTrainId(), ticket.getRow(), ticket.getSeat()));
+            });
+            if (confirmed.isEmpty()) {
+                System.out.println("Hold " + holdId + " has expired.");
             }
-            System.out.println("No ticket found with ID " + ticketId);
+            return confirmed.stream().findFirst();
+        } catch (IOException ex) {
+            System.err.println("Error confirming hold: " + ex.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /** Gives the caller's held seat back before the hold lapses. */
+    public Boolean releaseHold(String token, String holdId) {
+        Optional<User> sessionUser = authenticatedUser(token);
+        if (sessionUser.isEmpty()) {
+            System.out.println("No user logged in.");
+            return false;
+        }
+        if (seatHolds.find(holdId).filter(hold -> hold.getUserId().equals(sessionUser.get().getUserId())).isEmpty()) {
+            System.out.println("No hold found with ID " + holdId);
             return false;
+        }
+        try {
+            return seatHolds.release(holdId);
         } catch (IOException ex) {
-            System.err.println("Error saving user data: " + ex.getMessage());
+            System.err.println("Error releasing hold: " + ex.getMessage());
             return false;
         }
     }
 
-    public List<Train> getTrains(String source, String destination) {
+    /**
+     * Books every seat of every request or none of them. All requests are checked before
+     * any seat is claimed, the claims are rolled back if one seat is already taken, and
+     * the whole batch is written to the booking log as one commit.
+     */
+    public List<Ticket> bookBatch(String token, List<BookingRequest> requests) {
+        long started = System.nanoTime();
         try {
-            TrainService trainService = new TrainService();
-            return trainService.searchTrains(source, destination);
-        } catch (IOException ex) {
-            System.err.println("Error fetching trains: " + ex.getMessage());
-            return new ArrayList<>();
+            Optional<User> sessionUser = authenticatedUser(token);
+            if (sessionUser.isEmpty()) {
+                System.out.println("No user logged in.");
+                return List.of();
+            }
+            User user = sessionUser.get();
+            int seatCount = requests.stream().mapToInt(request -> request.getSeats().length).sum();
+            SeatMap[] seatMaps = new SeatMap[requests.size()];
+            int[] fromLegs = new int[requests.size()];
+            int[] toLegs = new int[requests.size()];
+            Map<SeatMap, Set<Long>> requestedLegs = new IdentityHashMap<>();
+            for (int i = 0; i < requests.size(); i++) {
+                BookingRequest request = requests.get(i);
+                Train train = request.getTrain();
+                fromLegs[i] = train.stationIndex(request.getSource());
+                toLegs[i] = train.stationIndex(request.getDestination());
+                if (!isTravelDate(request.getDateOfTravel())) {
+                    return List.of();
+                }
+                seatMaps[i] = trainService.seatsFor(train, request.getDateOfTravel());
+                if (fromLegs[i] < 0 || toLegs[i] <= fromLegs[i] || seatMaps[i] == null) {
+                    System.out.println("Request " + (i + 1) + ": train " + train.getTrainId() + " does not run from "
+                            + request.getSource() + " to " + request.getDestination() + ".");
+                    return List.of();
+                }
+                for (long packed : request.getSeats()) {
+                    int row = SeatMap.rowOf(packed);
+                    int seat = SeatMap.seatOf(packed);
+                    if (!seatMaps[i].isValidSeat(row, seat) || !seatMaps[i].isFree(row, seat, fromLegs[i], toLegs[i])) {
+                        System.out.println("Request " + (i + 1) + ": row " + (row + 1) + " seat " + (seat + 1) + " is not available.");
+                        return List.of();
+                    }
+                    // Two requests for one seat may both look free; they only conflict if their legs overlap.
+                    Set<Long> legs = requestedLegs.computeIfAbsent(seatMaps[i], key -> new HashSet<>());
+                    for (int leg = fromLegs[i]; leg < toLegs[i]; leg++) {
+                        if (!legs.add(SeatMap.pack(row, seat * SeatMap.MAX_LEGS + leg))) {
+                            System.out.println("Request " + (i + 1) + ": row " + (row + 1) + " seat " + (seat + 1) + " is requested twice.");
+                            return List.of();
+                        }
+                    }
+                }
+            }
+            List<Ticket> tickets = new ArrayList<>(seatCount);
+            try {
+                bookingLog.commit(outcome -> {
+                    List<MutationRecord> records = new ArrayList<>(seatCount * 2);
+                    List<Runnable> rollback = new ArrayList<>(seatCount);
+                    for (int i = 0; i < requests.size(); i++) {
+                        BookingRequest request = requests.get(i);
+                        SeatMap seats = seatMaps[i];
+                        int fromLeg = fromLegs[i];
+                        int toLeg = toLegs[i];
+                        String trainId = request.getTrain().getTrainId();
+                        for (long packed : request.getSeats()) {
+                            int row = SeatMap.rowOf(packed);
+                            int seat = SeatMap.seatOf(packed);
+                            if (!seats.book(row, seat, fromLeg, toLeg)) {
+                                rollback.forEach(Runnable::run);
+                                tickets.clear();
+                                System.out.println("Request " + (i + 1) + ": row " + (row + 1) + " seat " + (seat + 1) + " was just booked by someone else.");
+                                return List.of();
+                            }
+                            rollback.add(() -> seats.release(row, seat, fromLeg, toLeg));
+                            Ticket ticket = new Ticket(UUID.randomUUID().toString(), user.getUserId(), request.getSource(),
+                                    request.getDestination(), request.getDateOfTravel(), trainId);
+                            ticket.assignSeat(row, seat);
+                            ticket.setTrainResolver(trainService::findTrain);
+                            tickets.add(ticket);
+                            records.add(MutationRecord.seatBooked(trainId, request.getDateOfTravel(), row, seat, fromLeg, toLeg));
+                            records.add(MutationRecord.ticketAdded(user.getUserId(), ticket.getTicketId(), request.getSource(),
+                                    request.getDestination(), request.getDateOfTravel(), trainId, row, seat));
+                        }
+                    }
+                    outcome.onFailure(() -> rollback.forEach(Runnable::run));
+                    tickets.forEach(ticket -> userRepository.addTicket(user, ticket));
+                    outcome.onFailure(() -> tickets.forEach(ticket -> userRepository.removeTicket(ticket.getTicketId())));
+                    return records;
+                });
+                if (!tickets.isEmpty()) {
+                    SEATS_BOOKED.add(tickets.size());
+                    requests.forEach(request -> trainService.seatsChanged(request.getTrain().getTrainId(), request.getDateOfTravel()));
+                    System.out.println("Booked " + tickets.size() + " seats in " + requests.size() + " requests.");
+                }
+                return tickets;
+            } catch (IOException ex) {
+                requests.forEach(request -> trainService.seatsChanged(request.getTrain().getTrainId(), request.getDateOfTravel()));
+                System.err.println("Error booking seats: " + ex.getMessage());
+                return List.of();
+            }
+        } finally {
+            BOOK_BATCH_LATENCY.record(System.nanoTime() - started);
         }
     }
 
-    public List<List<Integer>> fetchSeats(Train train) {
-        return train.getSeats();
+    /**
+     * Lets the service choose the seats: reserves the best match for the party in one
+     * step and returns a ticket per seat, or an empty list if nothing fits.
+     */
+    public List<Ticket> bookBestAvailable(String token, Train train, String source, String dest, String dateOfTravel, SeatRequest request) {
+        long started = System.nanoTime();
+        try {
+            Optional<User> sessionUser = authenticatedUser(token);
+            if (sessionUser.isEmpty()) {
+                System.out.println("No user logged in.");
+                return List.of();
+            }
+            if (!runsWithSeats(train, source, dest, dateOfTravel)) {
+                return List.of();
+            }
+            List<Ticket> tickets = allocate(sessionUser.get(), train, source, dest, dateOfTravel, request);
+            if (tickets.isEmpty()) {
+                System.out.println("No " + request.getPartySize() + " seats available that match the request.");
+            }
+            return tickets;
+        } finally {
+            BOOK_BEST_LATENCY.record(System.nanoTime() - started);
+        }
     }
 
-    public Boolean bookTrainSeat(Train train, int row, int seat, String source, String dest, String dateOfTravel) {
-        if (user == null) {
+    /**
+     * Queues the caller for seats on a sold-out segment instead of retrying. The future
+     * completes with the tickets once cancellations free enough seats; higher priorities
+     * are served first. It completes with no tickets if the request can never be served,
+     * and cancelling it leaves the waitlist.
+     */
+    public CompletableFuture<List<Ticket>> joinWaitlist(String token, Train train, String source, String dest,
+                                                        String dateOfTravel, SeatRequest request, int priority) {
+        Optional<User> sessionUser = authenticatedUser(token);
+        if (sessionUser.isEmpty()) {
             System.out.println("No user logged in.");
+            return CompletableFuture.completedFuture(List.of());
+        }
+        if (!runsWithSeats(train, source, dest, dateOfTravel)) {
+            return CompletableFuture.completedFuture(List.of());
+        }
+        if (!couldEverSeat(train, dateOfTravel, request)) {
+            System.out.println("Train " + train.getTrainId() + " has fewer than " + request.getPartySize() + " seats.");
+            return CompletableFuture.completedFuture(List.of());
+        }
+        System.out.println("Waitlisted for " + request.getPartySize() + " seats on " + train.getTrainId()
+                + " from " + source + " to " + dest + " on " + dateOfTravel + ".");
+        return waitlist.join(sessionUser.get().getUserId(), train.getTrainId(), dateOfTravel, source, dest, request, priority);
+    }
+
+    public int waitlistLength(Train train, String dateOfTravel) {
+        return waitlist.waiting(train.getTrainId(), dateOfTravel);
+    }
+
+    /** Empty once the user, the train or its route is gone, or the party outgrows the train. */
+    private Optional<List<Ticket>> bookForWaiter(Waitlist.Request request) {
+        Optional<User> user = userRepository.findById(request.getUserId());
+        Optional<Train> train = trainService.findTrain(request.getTrainId());
+        if (user.isEmpty() || train.isEmpty()) {
+            return Optional.empty();
+        }
+        int fromLeg = train.get().stationIndex(request.getSource());
+        int toLeg = train.get().stationIndex(request.getDestination());
+        if (fromLeg < 0 || toLeg <= fromLeg || !couldEverSeat(train.get(), request.getDateOfTravel(), request.getSeats())) {
+            return Optional.empty();
+        }
+        if (trainService.availableSeats(train.get(), request.getDateOfTravel(), request.getSource(), request.getDestination())
+                < request.getSeats().getPartySize()) {
+            return Optional.of(List.of());
+        }
+        return Optional.of(allocate(user.get(), train.get(), request.getSource(), request.getDestination(),
+                request.getDateOfTravel(), request.getSeats()));
+    }
+
+    /** False if the party is larger than the whole train, so no cancellation could seat it. */
+    private boolean couldEverSeat(Train train, String dateOfTravel, SeatRequest request) {
+        SeatMap seats = trainService.seatsFor(train, dateOfTravel);
+        return seats != null && Arrays.stream(seats.rowLengths()).sum() >= request.getPartySize();
+    }
+
+    private boolean runsWithSeats(Train train, String source, String dest, String dateOfTravel) {
+        int fromLeg = train.stationIndex(source);
+        int toLeg = train.stationIndex(dest);
+        if (fromLeg < 0 || toLeg <= fromLeg) {
+            System.out.println("Train " + train.getTrainId() + " does not run from " + source + " to " + dest + ".");
+            return false;
+        }
+        if (!isTravelDate(dateOfTravel)) {
+            return false;
+        }
+        if (trainService.seatsFor(train, dateOfTravel) == null) {
+            System.out.println("Train " + train.getTrainId() + " has no seats.");
             return false;
         }
+        return true;
+    }
+
+    private static boolean isTravelDate(String dateOfTravel) {
+        if (!SeatInventoryStore.isTravelDate(dateOfTravel)) {
+            System.out.println("Invalid date of travel '" + dateOfTravel + "'; use YYYY-MM-DD.");
+            return false;
+        }
+        return true;
+    }
+
+    /** Reserves the best seats for the party and books them to the user; no tickets if nothing fits. */
+    private List<Ticket> allocate(User user, Train train, String source, String dest, String dateOfTravel, SeatRequest request) {
+        int fromLeg = train.stationIndex(source);
+        int toLeg = train.stationIndex(dest);
+        SeatMap seats = trainService.seatsFor(train, dateOfTravel);
+        List<Ticket> tickets = new ArrayList<>();
         try {
-            TrainService trainService = new TrainService();
-            List<List<Integer>> seats = train.getSeats();
-            if (row >= 0 && row < seats.size() && seat >= 0 && seat < seats.get(row).size()) {
-                if (seats.get(row).get(seat).equals(0)) {
-                    seats.get(row).set(seat, 1);
-                    train.setSeats(seats);
-                    trainService.addTrain(train);
-                    Ticket ticket = new Ticket(
-                            UUID.randomUUID().toString(),
-                            user.getUserId(),
-                            source,
-                            dest,
-                            dateOfTravel,
-                            train
-                    );
-                    user.getTicketsBooked().add(ticket);
-                    saveUserList();
-                    return true;
+            bookingLog.commit(outcome -> {
+                long allocateStarted = System.nanoTime();
+                Optional<long[]> allocated = seatAllocator.allocate(seats, fromLeg, toLeg, request);
+                ALLOCATE_LATENCY.record(System.nanoTime() - allocateStarted);
+                if (allocated.isEmpty()) {
+                    return List.of();
                 }
-                System.out.println("Seat already booked.");
-                return false;
+                outcome.onFailure(() -> {
+                    for (long packed : allocated.get()) {
+                        seats.release(SeatMap.rowOf(packed), SeatMap.seatOf(packed), fromLeg, toLeg);
+                    }
+                });
+                List<MutationRecord> records = new ArrayList<>();
+                for (long packed : allocated.get()) {
+                    Ticket ticket = new Ticket(UUID.randomUUID().toString(), user.getUserId(), source, dest, dateOfTravel, train.getTrainId());
+                    ticket.assignSeat(SeatMap.rowOf(packed), SeatMap.seatOf(packed));
+                    ticket.setTrainResolver(trainService::findTrain);
+                    tickets.add(ticket);
+                    records.add(MutationRecord.seatBooked(train.getTrainId(), dateOfTravel, SeatMap.rowOf(packed), SeatMap.seatOf(packed), fromLeg, toLeg));
+                    records.add(MutationRecord.ticketAdded(user.getUserId(), ticket.getTicketId(), source, dest, dateOfTravel,
+                            train.getTrainId(), ticket.getRow(), ticket.getSeat()));
+                    System.out.println("Allocated row " + (SeatMap.rowOf(packed) + 1) + " seat " + (SeatMap.seatOf(packed) + 1));
+                }
+                tickets.forEach(ticket -> userRepository.addTicket(user, ticket));
+                outcome.onFailure(() -> tickets.forEach(ticket -> userRepository.removeTicket(ticket.getTicketId())));
+                return records;
+            });
+            if (!tickets.isEmpty()) {
+                SEATS_BOOKED.add(tickets.size());
+                trainService.seatsChanged(train.getTrainId(), dateOfTravel);
             }
-            System.out.println("Invalid seat selection.");
-            return false;
+            return tickets;
         } catch (IOException ex) {
-            System.err.println("Error booking seat: " + ex.getMessage());
-            return false;
+            trainService.seatsChanged(train.getTrainId(), dateOfTravel);
+            System.err.println("Error booking seats: " + ex.getMessage());
+            return List.of();
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,146 @@
+package org.example.Services;
+
+import com.google.common.util.concurrent.Striped;
+import org.example.entities.Ticket;
+import org.example.entities.User;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * In-memory user store with hash indexes on the case-folded name and on the user id.
+ * Users keep their insertion order for snapshots.
+ * <p>
+ * Every ticket of every user is also indexed by ticket id, so cancellations and support
+ * lookups find a ticket and its owner without scanning users. Tickets must be added and
+ * removed through this class to keep the index in step with the users' ticket lists.
+ * <p>
+ * A user's ticket list is a plain list guarded by a lock striped on the user id, so
+ * sessions of different users never contend and two sessions of one user take turns.
+ */
+public class UserRepository {
+    private static final int LOCK_STRIPES = 64;
+
+    private final Map<String, User> usersByName = new ConcurrentHashMap<>();
+    private final Map<String, User> usersById = new ConcurrentHashMap<>();
+    private final Queue<User> users = new ConcurrentLinkedQueue<>();
+    private final Map<String, Map.Entry<User, Ticket>> ticketsById = new ConcurrentHashMap<>();
+    private final Striped<Lock> userLocks = Striped.lock(LOCK_STRIPES);
+
+    public UserRepository() {
+    }
+
+    public UserRepository(List<User> users) {
+        users.forEach(this::add);
+    }
+
+    /** Adds the user unless the name is already taken; returns false if it was. */
+    public boolean add(User user) {
+        if (usersByName.putIfAbsent(nameKey(user.getName()), user) != null) {
+            return false;
+        }
+        usersById.put(user.getUserId(), user);
+        users.add(user);
+        if (user.getTicketsBooked() != null) {
+            user.getTicketsBooked().forEach(ticket -> ticketsById.put(ticket.getTicketId(), Map.entry(user, ticket)));
+        }
+        return true;
+    }
+
+    /** Takes back a user just added, along with any tickets it came with. */
+    public void remove(User user) {
+        if (!usersByName.remove(nameKey(user.getName()), user)) {
+            return;
+        }
+        usersById.remove(user.getUserId(), user);
+        users.remove(user);
+        if (user.getTicketsBooked() != null) {
+            user.getTicketsBooked().forEach(ticket -> ticketsById.remove(ticket.getTicketId()));
+        }
+    }
+
+    public void addTicket(User user, Ticket ticket) {
+        Lock lock = userLocks.get(user.getUserId());
+        lock.lock();
+        try {
+            user.getTicketsBooked().add(ticket);
+        } finally {
+            lock.unlock();
+        }
+        ticketsById.put(ticket.getTicketId(), Map.entry(user, ticket));
+    }
+
+    /** Removes the ticket from the index and from its owner's list. */
+    public Optional<Ticket> removeTicket(String ticketId) {
+        Map.Entry<User, Ticket> entry = ticketsById.remove(ticketId);
+        if (entry == null) {
+            return Optional.empty();
+        }
+        Lock lock = userLocks.get(entry.getKey().getUserId());
+        lock.lock();
+        try {
+            entry.getKey().getTicketsBooked().remove(entry.getValue());
+        } finally {
+            lock.unlock();
+        }
+        return Optional.of(entry.getValue());
+    }
+
+    /** A copy of the user's tickets, safe to read while other sessions book and cancel. */
+    public List<Ticket> tickets(User user) {
+        Lock lock = userLocks.get(user.getUserId());
+        lock.lock();
+        try {
+            return new ArrayList<>(user.getTicketsBooked());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Optional<Ticket> findTicket(String ticketId) {
+        Map.Entry<User, Ticket> entry = ticketsById.get(ticketId);
+        return entry == null ? Optional.empty() : Optional.of(entry.getValue());
+    }
+
+    public Optional<User> findTicketOwner(String ticketId) {
+        Map.Entry<User, Ticket> entry = ticketsById.get(ticketId);
+        return entry == null ? Optional.empty() : Optional.of(entry.getKey());
+    }
+
+    public int ticketCount() {
+        return ticketsById.size();
+    }
+
+    public Optional<User> findByName(String name) {
+        return Optional.ofNullable(usersByName.get(nameKey(name)));
+    }
+
+    public Optional<User> findById(String userId) {
+        return Optional.ofNullable(usersById.get(userId));
+    }
+
+    public boolean containsName(String name) {
+        return usersByName.containsKey(nameKey(name));
+    }
+
+    public int size() {
+        return usersById.size();
+    }
+
+    public Collection<User> all() {
+        return Collections.unmodifiableCollection(users);
+    }
+
+    private static String nameKey(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+}
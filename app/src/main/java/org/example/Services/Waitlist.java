@@ -0,0 +1,203 @@
+package org.example.Services;
+
+import com.google.common.util.concurrent.Striped;
+import org.example.entities.SeatRequest;
+import org.example.entities.Ticket;
+import org.example.persistence.SeatInventoryStore;
+import org.example.util.Metrics;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Requests waiting for seats on a sold-out train, one queue per train and travel date.
+ * <p>
+ * Whoever frees seats calls {@link #seatsReleased}; the queue for that train and date is
+ * then walked on a background thread, highest priority first and in arrival order within
+ * a priority, and each request that now fits is booked and its future completed with the
+ * tickets. A request whose segment or party size still does not fit is skipped, so a
+ * shorter trip further back can take a seat the head of the queue cannot use. A request
+ * that can never be served is completed with no tickets and dropped.
+ * <p>
+ * Waiting requests live in memory only and are lost on restart. Cancelling a request's
+ * future takes it off the queue.
+ */
+public class Waitlist {
+    private static final int LOCK_STRIPES = 64;
+    private static final LongAdder PROMOTED = Metrics.counter("waitlist.promoted");
+
+    /**
+     * Books seats for a waiting request: its tickets, no tickets if it does not fit yet, or
+     * empty if it never can, e.g. the train is gone or smaller than the party.
+     */
+    public interface Allocator {
+        Optional<List<Ticket>> allocate(Request request);
+    }
+
+    public static final class Request {
+        private final String userId;
+        private final String trainId;
+        private final String dateOfTravel;
+        private final String source;
+        private final String destination;
+        private final SeatRequest seats;
+        private final int priority;
+        private final long sequence;
+        private final CompletableFuture<List<Ticket>> result = new CompletableFuture<>();
+
+        private Request(String userId, String trainId, String dateOfTravel, String source, String destination,
+                        SeatRequest seats, int priority, long sequence) {
+            this.userId = userId;
+            this.trainId = trainId;
+            this.dateOfTravel = dateOfTravel;
+            this.source = source;
+            this.destination = destination;
+            this.seats = seats;
+            this.priority = priority;
+            this.sequence = sequence;
+        }
+
+        public String getUserId() {
+            return userId;
+        }
+
+        public String getTrainId() {
+            return trainId;
+        }
+
+        public String getDateOfTravel() {
+            return dateOfTravel;
+        }
+
+        public String getSource() {
+            return source;
+        }
+
+        public String getDestination() {
+            return destination;
+        }
+
+        public SeatRequest getSeats() {
+            return seats;
+        }
+
+        public int getPriority() {
+            return priority;
+        }
+    }
+
+    private static final Comparator<Request> SERVICE_ORDER = Comparator
+            .comparingInt((Request request) -> -request.priority)
+            .thenComparingLong(request -> request.sequence);
+
+    private final Map<String, NavigableSet<Request>> queues = new ConcurrentHashMap<>();
+    private final Striped<Lock> promotionLocks = Striped.lock(LOCK_STRIPES);
+    private final AtomicLong sequence = new AtomicLong();
+    private final Allocator allocator;
+    private final Executor executor;
+
+    public Waitlist(Allocator allocator) {
+        this(allocator, Executors.newVirtualThreadPerTaskExecutor());
+    }
+
+    public Waitlist(Allocator allocator, Executor executor) {
+        this.allocator = allocator;
+        this.executor = executor;
+    }
+
+    /**
+     * Queues a request and returns a future completed with its tickets once seats free up.
+     * Higher priorities are served first. Seats may already be free again by the time the
+     * request is queued, so a promotion pass is started straight away.
+     */
+    public CompletableFuture<List<Ticket>> join(String userId, String trainId, String dateOfTravel, String source,
+                                                String destination, SeatRequest seats, int priority) {
+        Request request = new Request(userId, trainId, dateOfTravel, source, destination, seats, priority,
+                sequence.incrementAndGet());
+        String key = SeatInventoryStore.key(trainId, dateOfTravel);
+        queues.compute(key, (k, queue) -> {
+            NavigableSet<Request> waiting = queue == null ? new ConcurrentSkipListSet<>(SERVICE_ORDER) : queue;
+            waiting.add(request);
+            return waiting;
+        });
+        // Served requests are dequeued by promote; only a future the caller cancels is left here.
+        request.result.whenComplete((tickets, failure) -> {
+            if (request.result.isCancelled()) {
+                leave(key, request);
+            }
+        });
+        seatsReleased(trainId, dateOfTravel);
+        return request.result;
+    }
+
+    /** Seats on this train and date were freed; promote whoever now fits. */
+    public void seatsReleased(String trainId, String dateOfTravel) {
+        String key = SeatInventoryStore.key(trainId, dateOfTravel);
+        if (queues.containsKey(key)) {
+            executor.execute(() -> promote(key));
+        }
+    }
+
+    /** Requests still waiting for this train and date. */
+    public int waiting(String trainId, String dateOfTravel) {
+        NavigableSet<Request> queue = queues.get(SeatInventoryStore.key(trainId, dateOfTravel));
+        return queue == null ? 0 : queue.size();
+    }
+
+    public int size() {
+        return queues.values().stream().mapToInt(NavigableSet::size).sum();
+    }
+
+    private void promote(String key) {
+        // One pass per queue at a time, so a request is never booked twice.
+        Lock lock = promotionLocks.get(key);
+        lock.lock();
+        try {
+            NavigableSet<Request> queue = queues.get(key);
+            if (queue == null) {
+                return;
+            }
+            for (Request request : queue) {
+                if (request.result.isDone()) {
+                    continue;
+                }
+                Optional<List<Ticket>> tickets;
+                try {
+                    tickets = allocator.allocate(request);
+                } catch (RuntimeException ex) {
+                    leave(key, request);
+                    request.result.completeExceptionally(ex);
+                    continue;
+                }
+                if (tickets.isEmpty() || !tickets.get().isEmpty()) {
+                    // Dequeue before completing: a waiter woken by complete must not still be counted.
+                    leave(key, request);
+                    if (tickets.isPresent()) {
+                        PROMOTED.increment();
+                    }
+                    request.result.complete(tickets.orElse(List.of()));
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void leave(String key, Request request) {
+        queues.computeIfPresent(key, (k, queue) -> {
+            queue.remove(request);
+            return queue.isEmpty() ? null : queue;
+        });
+    }
+}
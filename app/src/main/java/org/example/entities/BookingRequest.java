@@ -0,0 +1,46 @@
+package org.example.entities;
+
+import java.util.Arrays;
+
+/** Seats on one train, segment and travel date, as one entry of a batch booking. */
+public class BookingRequest {
+    private final Train train;
+    private final String source;
+    private final String destination;
+    private final String dateOfTravel;
+    private long[] seats = new long[0];
+
+    public BookingRequest(Train train, String source, String destination, String dateOfTravel) {
+        this.train = train;
+        this.source = source;
+        this.destination = destination;
+        this.dateOfTravel = dateOfTravel;
+    }
+
+    public BookingRequest seat(int row, int seat) {
+        seats = Arrays.copyOf(seats, seats.length + 1);
+        seats[seats.length - 1] = SeatMap.pack(row, seat);
+        return this;
+    }
+
+    public Train getTrain() {
+        return train;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public String getDestination() {
+        return destination;
+    }
+
+    public String getDateOfTravel() {
+        return dateOfTravel;
+    }
+
+    /** Seats packed with {@link SeatMap#pack}. */
+    public long[] getSeats() {
+        return seats.clone();
+    }
+}
@@ -0,0 +1,32 @@
+package org.example.entities;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/** {@link SeatBits} on the heap; the default for seat maps loaded from JSON. */
+class HeapSeatBits implements SeatBits {
+    private final AtomicLongArray words;
+
+    HeapSeatBits(int length) {
+        this.words = new AtomicLongArray(length);
+    }
+
+    @Override
+    public int length() {
+        return words.length();
+    }
+
+    @Override
+    public long get(int index) {
+        return words.get(index);
+    }
+
+    @Override
+    public void set(int index, long value) {
+        words.set(index, value);
+    }
+
+    @Override
+    public boolean compareAndSet(int index, long expected, long updated) {
+        return words.compareAndSet(index, expected, updated);
+    }
+}
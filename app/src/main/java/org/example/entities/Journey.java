@@ -0,0 +1,81 @@
+package org.example.entities;
+
+import java.util.List;
+
+/** A planned trip from one station to another, possibly changing trains on the way. */
+public class Journey {
+
+    /** One ride on one train; times are seconds after midnight on the day of departure. */
+    public static class Leg {
+        private final String trainId;
+        private final String from;
+        private final String to;
+        private final int departure;
+        private final int arrival;
+
+        public Leg(String trainId, String from, String to, int departure, int arrival) {
+            this.trainId = trainId;
+            this.from = from;
+            this.to = to;
+            this.departure = departure;
+            this.arrival = arrival;
+        }
+
+        public String getTrainId() {
+            return trainId;
+        }
+
+        public String getFrom() {
+            return from;
+        }
+
+        public String getTo() {
+            return to;
+        }
+
+        public int getDeparture() {
+            return departure;
+        }
+
+        public int getArrival() {
+            return arrival;
+        }
+    }
+
+    private final List<Leg> legs;
+
+    public Journey(List<Leg> legs) {
+        this.legs = List.copyOf(legs);
+    }
+
+    public List<Leg> getLegs() {
+        return legs;
+    }
+
+    public int getDeparture() {
+        return legs.get(0).getDeparture();
+    }
+
+    public int getArrival() {
+        return legs.get(legs.size() - 1).getArrival();
+    }
+
+    public int getTransfers() {
+        return legs.size() - 1;
+    }
+
+    public String getJourneyInfo() {
+        StringBuilder builder = new StringBuilder();
+        for (Leg leg : legs) {
+            builder.append(String.format("%s %s %s -> %s %s%n", leg.getTrainId(), leg.getFrom(), clock(leg.getDeparture()),
+                    leg.getTo(), clock(leg.getArrival())));
+        }
+        return builder.append(String.format("Arrives %s with %d transfer(s)", clock(getArrival()), getTransfers())).toString();
+    }
+
+    private static String clock(int seconds) {
+        int days = seconds / 86_400;
+        int secondOfDay = seconds % 86_400;
+        return String.format("%02d:%02d%s", secondOfDay / 3600, secondOfDay / 60 % 60, days > 0 ? " (+" + days + "d)" : "");
+    }
+}
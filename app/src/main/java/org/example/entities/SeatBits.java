@@ -0,0 +1,32 @@
+package org.example.entities;
+
+/**
+ * Word storage behind a {@link SeatMap}: either heap arrays or a region of a
+ * memory-mapped inventory file. Words are read and updated atomically.
+ * <p>
+ * The claim hooks let a durable store remember which multi-leg claim is in flight,
+ * so a claim torn by a crash can be undone on the next start.
+ */
+public interface SeatBits {
+
+    int length();
+
+    long get(int index);
+
+    void set(int index, long value);
+
+    boolean compareAndSet(int index, long expected, long updated);
+
+    /** Called before the first leg of a claim is taken; returns a token for the other hooks. */
+    default int beginClaim(int row, int seat, int fromLeg, int toLeg) {
+        return -1;
+    }
+
+    /** Called once legs {@code [fromLeg, leg]} of the claim are held. */
+    default void claimed(int token, int leg) {
+    }
+
+    /** Called when the claim has completed or been rolled back. */
+    default void endClaim(int token) {
+    }
+}
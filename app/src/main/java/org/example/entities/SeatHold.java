@@ -0,0 +1,141 @@
+package org.example.entities;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.PropertyNamingStrategies;
+import com.fasterxml.jackson.databind.annotation.JsonNaming;
+
+/**
+ * A seat set aside for one user during checkout. The seat is taken in the inventory
+ * like a booking but has no ticket; it goes back on sale at {@code expires_at} unless
+ * confirmed first, and its id becomes the ticket id when it is.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+@JsonNaming(PropertyNamingStrategies.SnakeCaseStrategy.class)
+public class SeatHold {
+    private String holdId;
+    private String userId;
+    private String trainId;
+    private String dateOfTravel;
+    private String source;
+    private String destination;
+    private int row;
+    private int seat;
+    private int fromLeg;
+    private int toLeg;
+    /** Epoch milliseconds. */
+    private long expiresAt;
+
+    public SeatHold() {}
+
+    public SeatHold(String holdId, String userId, String trainId, String dateOfTravel, String source, String destination,
+                    int row, int seat, int fromLeg, int toLeg, long expiresAt) {
+        this.holdId = holdId;
+        this.userId = userId;
+        this.trainId = trainId;
+        this.dateOfTravel = dateOfTravel;
+        this.source = source;
+        this.destination = destination;
+        this.row = row;
+        this.seat = seat;
+        this.fromLeg = fromLeg;
+        this.toLeg = toLeg;
+        this.expiresAt = expiresAt;
+    }
+
+    /** The ticket this hold turns into on confirmation. */
+    @JsonIgnore
+    public Ticket toTicket() {
+        Ticket ticket = new Ticket(holdId, userId, source, destination, dateOfTravel, trainId);
+        ticket.assignSeat(row, seat);
+        return ticket;
+    }
+
+    public String getHoldId() {
+        return holdId;
+    }
+
+    public void setHoldId(String holdId) {
+        this.holdId = holdId;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+
+    public String getTrainId() {
+        return trainId;
+    }
+
+    public void setTrainId(String trainId) {
+        this.trainId = trainId;
+    }
+
+    public String getDateOfTravel() {
+        return dateOfTravel;
+    }
+
+    public void setDateOfTravel(String dateOfTravel) {
+        this.dateOfTravel = dateOfTravel;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public void setSource(String source) {
+        this.source = source;
+    }
+
+    public String getDestination() {
+        return destination;
+    }
+
+    public void setDestination(String destination) {
+        this.destination = destination;
+    }
+
+    public int getRow() {
+        return row;
+    }
+
+    public void setRow(int row) {
+        this.row = row;
+    }
+
+    public int getSeat() {
+        return seat;
+    }
+
+    public void setSeat(int seat) {
+        this.seat = seat;
+    }
+
+    public int getFromLeg() {
+        return fromLeg;
+    }
+
+    public void setFromLeg(int fromLeg) {
+        this.fromLeg = fromLeg;
+    }
+
+    public int getToLeg() {
+        return toLeg;
+    }
+
+    public void setToLeg(int toLeg) {
+        this.toLeg = toLeg;
+    }
+
+    public long getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(long expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+}
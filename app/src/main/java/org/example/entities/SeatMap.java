@@ -0,0 +1,418 @@
+package org.example.entities;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import org.example.util.SeatMapDeserializer;
+import org.example.util.SeatMapSerializer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Seat inventory of a train, tracked per leg between consecutive stations.
+ * <p>
+ * Each row (coach) is a block of words in a {@link SeatBits}: a bitset of seats booked
+ * for the whole run followed by one bitset per leg, so a seat sold bangalore-jaipur
+ * stays free for jaipur-delhi. Occupancy for legs {@code [fromLeg, toLeg)} is the OR of the
+ * whole-run bitset and those leg bitsets, 64 seats per word.
+ * <p>
+ * Bookings claim the seat's bit leg by leg with compare-and-set and roll back if a leg
+ * is already taken, so concurrent callers never double-book and never block each other.
+ * A reader racing with a claim that is later rolled back may briefly see the seat as
+ * taken; it never sees a taken seat as free.
+ * <p>
+ * Serialized as the {@code [[1,0,...],...]} seat matrix. {@code 0} is free and {@code 1}
+ * is booked for the whole run; a seat booked on some legs only is written as its leg
+ * mask shifted left by one, which older readers still see as "not free".
+ */
+@JsonSerialize(using = SeatMapSerializer.class)
+@JsonDeserialize(using = SeatMapDeserializer.class)
+public class SeatMap {
+    public static final int MAX_LEGS = 62;
+
+    private final int[] rowLengths;
+    private final int legCount;
+    private final int[] rowOffsets;
+    private final SeatBits bits;
+
+    public SeatMap(int[] rowLengths, int legCount) {
+        this(rowLengths, legCount, new HeapSeatBits(wordsRequired(rowLengths, legCount)));
+    }
+
+    /** A map over existing storage, which must hold {@link #wordsRequired} words. */
+    public SeatMap(int[] rowLengths, int legCount, SeatBits bits) {
+        if (legCount < 0 || legCount > MAX_LEGS) {
+            throw new IllegalArgumentException("A seat map supports at most " + MAX_LEGS + " legs, got " + legCount);
+        }
+        if (bits.length() < wordsRequired(rowLengths, legCount)) {
+            throw new IllegalArgumentException("Seat storage holds " + bits.length() + " words, needs "
+                    + wordsRequired(rowLengths, legCount));
+        }
+        this.rowLengths = rowLengths.clone();
+        this.legCount = legCount;
+        this.bits = bits;
+        this.rowOffsets = new int[rowLengths.length];
+        int offset = 0;
+        for (int row = 0; row < rowLengths.length; row++) {
+            rowOffsets[row] = offset;
+            offset += wordsFor(rowLengths[row]) * (legCount + 1);
+        }
+    }
+
+    public static int wordsRequired(int[] rowLengths, int legCount) {
+        int words = 0;
+        for (int seats : rowLengths) {
+            words += wordsFor(seats) * (legCount + 1);
+        }
+        return words;
+    }
+
+    public static SeatMap fromRows(List<List<Integer>> rows) {
+        int[] rowLengths = new int[rows.size()];
+        long[][] encoded = new long[rows.size()][];
+        for (int row = 0; row < rows.size(); row++) {
+            List<Integer> seats = rows.get(row);
+            rowLengths[row] = seats.size();
+            encoded[row] = new long[seats.size()];
+            for (int seat = 0; seat < seats.size(); seat++) {
+                encoded[row][seat] = seats.get(seat);
+            }
+        }
+        return fromEncoded(rowLengths, encoded);
+    }
+
+    /** Builds a map from per-seat values in the serialized matrix encoding. */
+    public static SeatMap fromEncoded(int[] rowLengths, long[][] encoded) {
+        int legCount = 0;
+        for (long[] row : encoded) {
+            for (long value : row) {
+                if (value != 0 && (value & 1) == 0) {
+                    legCount = Math.max(legCount, 64 - Long.numberOfLeadingZeros(value >>> 1));
+                }
+            }
+        }
+        SeatMap seatMap = new SeatMap(rowLengths, legCount);
+        for (int row = 0; row < encoded.length; row++) {
+            for (int seat = 0; seat < encoded[row].length; seat++) {
+                seatMap.setEncoded(row, seat, encoded[row][seat]);
+            }
+        }
+        return seatMap;
+    }
+
+    /**
+     * Rebuilds a map from {@link #rawRow} words, as written by the binary snapshot.
+     * Each row must hold {@code (legCount + 1)} bitsets of {@code ceil(seats / 64)} words.
+     */
+    public static SeatMap fromRaw(int[] rowLengths, int legCount, long[][] raw) {
+        SeatMap seatMap = new SeatMap(rowLengths, legCount);
+        seatMap.copyRaw(raw);
+        return seatMap;
+    }
+
+    /** Overwrites this map with {@link #rawRow} words of a map with the same layout. */
+    public void copyRaw(long[][] raw) {
+        for (int row = 0; row < rowLengths.length; row++) {
+            int rowWords = wordsFor(rowLengths[row]) * (legCount + 1);
+            if (raw[row].length != rowWords) {
+                throw new IllegalArgumentException("Row " + row + " has " + raw[row].length + " words, expected " + rowWords);
+            }
+            for (int i = 0; i < rowWords; i++) {
+                bits.set(rowOffsets[row] + i, raw[row][i]);
+            }
+        }
+    }
+
+    /** Copy of this map with room for {@code legCount} legs; returns this if it already fits. */
+    public SeatMap withLegCount(int legCount) {
+        if (legCount <= this.legCount) {
+            return this;
+        }
+        SeatMap resized = new SeatMap(rowLengths, legCount);
+        for (int row = 0; row < rowLengths.length; row++) {
+            for (int seat = 0; seat < rowLengths[row]; seat++) {
+                resized.setEncoded(row, seat, encoded(row, seat));
+            }
+        }
+        return resized;
+    }
+
+    public List<List<Integer>> toRows() {
+        List<List<Integer>> result = new ArrayList<>(rowLengths.length);
+        for (int row = 0; row < rowLengths.length; row++) {
+            List<Integer> seats = new ArrayList<>(rowLengths[row]);
+            for (int seat = 0; seat < rowLengths[row]; seat++) {
+                seats.add(isBooked(row, seat) ? 1 : 0);
+            }
+            result.add(seats);
+        }
+        return result;
+    }
+
+    public int[] rowLengths() {
+        return rowLengths.clone();
+    }
+
+    /** True when {@code other} has the same legs and the same seats in every row. */
+    public boolean sameLayout(SeatMap other) {
+        return legCount == other.legCount && Arrays.equals(rowLengths, other.rowLengths);
+    }
+
+    public int rowCount() {
+        return rowLengths.length;
+    }
+
+    public int seatsInRow(int row) {
+        return rowLengths[row];
+    }
+
+    public int legCount() {
+        return legCount;
+    }
+
+    public boolean isValidSeat(int row, int seat) {
+        return row >= 0 && row < rowLengths.length && seat >= 0 && seat < rowLengths[row];
+    }
+
+    /** True if the seat is taken on any leg. */
+    public boolean isBooked(int row, int seat) {
+        return !isFree(row, seat, 0, legCount);
+    }
+
+    public boolean isFree(int row, int seat, int fromLeg, int toLeg) {
+        return (occupied(row, seat >>> 6, fromLeg, toLeg) & (1L << seat)) == 0;
+    }
+
+    /** Books the seat for the whole run; fails if any leg is already taken. */
+    public boolean book(int row, int seat) {
+        if (legCount == 0) {
+            return claim(rowOffsets[row] + (seat >>> 6), 1L << seat);
+        }
+        return book(row, seat, 0, legCount);
+    }
+
+    /** Atomically books the seat on legs {@code [fromLeg, toLeg)} only. */
+    public boolean book(int row, int seat, int fromLeg, int toLeg) {
+        checkLegs(fromLeg, toLeg);
+        int words = wordsFor(rowLengths[row]);
+        int base = rowOffsets[row] + (seat >>> 6);
+        long bit = 1L << seat;
+        if ((bits.get(base) & bit) != 0) {
+            return false;
+        }
+        int token = bits.beginClaim(row, seat, fromLeg, toLeg);
+        try {
+            for (int leg = fromLeg; leg < toLeg; leg++) {
+                if (!claim(base + (leg + 1) * words, bit)) {
+                    for (int claimed = fromLeg; claimed < leg; claimed++) {
+                        clear(base + (claimed + 1) * words, bit);
+                    }
+                    return false;
+                }
+                bits.claimed(token, leg);
+            }
+            return true;
+        } finally {
+            bits.endClaim(token);
+        }
+    }
+
+    public void release(int row, int seat) {
+        int words = wordsFor(rowLengths[row]);
+        int base = rowOffsets[row] + (seat >>> 6);
+        for (int slot = 0; slot <= legCount; slot++) {
+            clear(base + slot * words, 1L << seat);
+        }
+    }
+
+    public void release(int row, int seat, int fromLeg, int toLeg) {
+        int words = wordsFor(rowLengths[row]);
+        int base = rowOffsets[row] + (seat >>> 6);
+        for (int leg = fromLeg; leg < Math.min(toLeg, legCount); leg++) {
+            clear(base + (leg + 1) * words, 1L << seat);
+        }
+    }
+
+    public int firstFreeSeat(int row) {
+        return firstFreeSeat(row, 0, legCount);
+    }
+
+    public int firstFreeSeat(int row, int fromLeg, int toLeg) {
+        int words = wordsFor(rowLengths[row]);
+        for (int word = 0; word < words; word++) {
+            long free = ~occupied(row, word, fromLeg, toLeg) & validMask(row, word);
+            if (free != 0) {
+                return (word << 6) + Long.numberOfTrailingZeros(free);
+            }
+        }
+        return -1;
+    }
+
+    public int wordsInRow(int row) {
+        return wordsFor(rowLengths[row]);
+    }
+
+    /** Bits of the seats in {@code [64 * word, 64 * word + 64)} that are free on legs {@code [fromLeg, toLeg)}. */
+    public long freeWord(int row, int word, int fromLeg, int toLeg) {
+        return ~occupied(row, word, fromLeg, toLeg) & validMask(row, word);
+    }
+
+    /**
+     * Finds any seat free on legs {@code [fromLeg, toLeg)}, scanning rows in order.
+     * Returns the seat packed with {@link #pack}, or -1 if the segment is sold out.
+     */
+    public long findFreeSeat(int fromLeg, int toLeg) {
+        for (int row = 0; row < rowLengths.length; row++) {
+            int seat = firstFreeSeat(row, fromLeg, toLeg);
+            if (seat >= 0) {
+                return pack(row, seat);
+            }
+        }
+        return -1;
+    }
+
+    public int freeSeats(int row) {
+        return freeSeats(row, 0, legCount);
+    }
+
+    public int freeSeats(int row, int fromLeg, int toLeg) {
+        int taken = 0;
+        int words = wordsFor(rowLengths[row]);
+        for (int word = 0; word < words; word++) {
+            taken += Long.bitCount(occupied(row, word, fromLeg, toLeg));
+        }
+        return rowLengths[row] - taken;
+    }
+
+    public int freeSeats() {
+        return freeSeats(0, legCount);
+    }
+
+    public int freeSeats(int fromLeg, int toLeg) {
+        int free = 0;
+        for (int row = 0; row < rowLengths.length; row++) {
+            free += freeSeats(row, fromLeg, toLeg);
+        }
+        return free;
+    }
+
+    public String formatRow(int row) {
+        return formatRow(row, 0, legCount);
+    }
+
+    public String formatRow(int row, int fromLeg, int toLeg) {
+        StringBuilder builder = new StringBuilder("[");
+        for (int seat = 0; seat < rowLengths[row]; seat++) {
+            if (seat > 0) {
+                builder.append(", ");
+            }
+            builder.append(isFree(row, seat, fromLeg, toLeg) ? 0 : 1);
+        }
+        return builder.append(']').toString();
+    }
+
+    /** Copy of the row's words: the whole-run bitset followed by one bitset per leg. */
+    public long[] rawRow(int row) {
+        long[] raw = new long[wordsFor(rowLengths[row]) * (legCount + 1)];
+        for (int i = 0; i < raw.length; i++) {
+            raw[i] = bits.get(rowOffsets[row] + i);
+        }
+        return raw;
+    }
+
+    /** Seat state in the serialized matrix encoding described on the class. */
+    public long encoded(int row, int seat) {
+        int words = wordsFor(rowLengths[row]);
+        int base = rowOffsets[row] + (seat >>> 6);
+        long bit = 1L << seat;
+        if ((bits.get(base) & bit) != 0) {
+            return 1;
+        }
+        long mask = 0;
+        for (int leg = 0; leg < legCount; leg++) {
+            if ((bits.get(base + (leg + 1) * words) & bit) != 0) {
+                mask |= 1L << leg;
+            }
+        }
+        return mask << 1;
+    }
+
+    public void setEncoded(int row, int seat, long value) {
+        if (value == 0) {
+            return;
+        }
+        int words = wordsFor(rowLengths[row]);
+        int base = rowOffsets[row] + (seat >>> 6);
+        long bit = 1L << seat;
+        if ((value & 1) != 0) {
+            claim(base, bit);
+            return;
+        }
+        long mask = value >>> 1;
+        for (int leg = 0; leg < legCount; leg++) {
+            if ((mask & (1L << leg)) != 0) {
+                claim(base + (leg + 1) * words, bit);
+            }
+        }
+    }
+
+    public static long pack(int row, int seat) {
+        return ((long) row << 32) | (seat & 0xFFFFFFFFL);
+    }
+
+    public static int rowOf(long packed) {
+        return (int) (packed >>> 32);
+    }
+
+    public static int seatOf(long packed) {
+        return (int) packed;
+    }
+
+    private long occupied(int row, int word, int fromLeg, int toLeg) {
+        int words = wordsFor(rowLengths[row]);
+        int base = rowOffsets[row] + word;
+        long occupied = bits.get(base);
+        int end = Math.min(toLeg, legCount);
+        for (int leg = fromLeg; leg < end; leg++) {
+            occupied |= bits.get(base + (leg + 1) * words);
+        }
+        return occupied;
+    }
+
+    private boolean claim(int index, long bit) {
+        while (true) {
+            long current = bits.get(index);
+            if ((current & bit) != 0) {
+                return false;
+            }
+            if (bits.compareAndSet(index, current, current | bit)) {
+                return true;
+            }
+        }
+    }
+
+    private void clear(int index, long bit) {
+        while (true) {
+            long current = bits.get(index);
+            if ((current & bit) == 0 || bits.compareAndSet(index, current, current & ~bit)) {
+                return;
+            }
+        }
+    }
+
+    private void checkLegs(int fromLeg, int toLeg) {
+        if (fromLeg < 0 || toLeg <= fromLeg || toLeg > legCount) {
+            throw new IllegalArgumentException("Invalid leg range [" + fromLeg + ", " + toLeg + ") for " + legCount + " legs");
+        }
+    }
+
+    private long validMask(int row, int word) {
+        int remaining = rowLengths[row] - (word << 6);
+        return remaining >= 64 ? -1L : (1L << remaining) - 1;
+    }
+
+    private static int wordsFor(int seats) {
+        return (seats + 63) >>> 6;
+    }
+}
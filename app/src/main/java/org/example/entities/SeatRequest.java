@@ -0,0 +1,52 @@
+package org.example.entities;
+
+/**
+ * What a party asks for when seats are allocated automatically: how many seats, and
+ * optionally all in one row, at the windows, or in one coach (row of the seat map).
+ */
+public class SeatRequest {
+    public static final int ANY_COACH = -1;
+
+    private final int partySize;
+    private boolean together;
+    private boolean window;
+    private int coach = ANY_COACH;
+
+    public SeatRequest(int partySize) {
+        if (partySize < 1) {
+            throw new IllegalArgumentException("Party size must be at least 1, got " + partySize);
+        }
+        this.partySize = partySize;
+    }
+
+    public SeatRequest together(boolean together) {
+        this.together = together;
+        return this;
+    }
+
+    public SeatRequest window(boolean window) {
+        this.window = window;
+        return this;
+    }
+
+    public SeatRequest coach(int coach) {
+        this.coach = coach;
+        return this;
+    }
+
+    public int getPartySize() {
+        return partySize;
+    }
+
+    public boolean isTogether() {
+        return together;
+    }
+
+    public boolean isWindow() {
+        return window;
+    }
+
+    public int getCoach() {
+        return coach;
+    }
+}
@@ -0,0 +1,59 @@
+package org.example.entities;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Process-wide mapping from lower-case station name to a dense int id.
+ * <p>
+ * Trains keep their routes as id arrays, so every train stopping at a station shares
+ * one name string and route lookups compare ints. Ids are handed out in first-seen
+ * order and never reused; lookups are lock-free, only new names take the lock.
+ */
+public final class StationDictionary {
+    public static final int UNKNOWN = -1;
+
+    private static final Map<String, Integer> IDS = new ConcurrentHashMap<>();
+    private static volatile String[] names = new String[256];
+    private static int size;
+
+    private StationDictionary() {}
+
+    /** Id of the station, assigning the next one if the name is new. */
+    public static int intern(String station) {
+        String key = station.toLowerCase();
+        Integer id = IDS.get(key);
+        if (id != null) {
+            return id;
+        }
+        synchronized (StationDictionary.class) {
+            id = IDS.get(key);
+            if (id == null) {
+                if (size == names.length) {
+                    names = Arrays.copyOf(names, size * 2);
+                }
+                names[size] = key;
+                id = size++;
+                // Published after the name so a reader holding the id always finds it.
+                IDS.put(key, id);
+            }
+            return id;
+        }
+    }
+
+    /** Id of the station, or {@link #UNKNOWN} if no train has ever stopped there. */
+    public static int idOf(String station) {
+        Integer id = IDS.get(station.toLowerCase());
+        return id == null ? UNKNOWN : id;
+    }
+
+    public static String nameOf(int id) {
+        return names[id];
+    }
+
+    /** One more than the highest id handed out so far. */
+    public static int size() {
+        return IDS.size();
+    }
+}
@@ -1,33 +1,54 @@
 package org.example.entities;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonSetter;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.annotation.JsonNaming;
 import com.fasterxml.jackson.databind.PropertyNamingStrategies;
 
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * A booked ticket. The train is referenced by {@code train_id} and looked up on demand
+ * through a resolver, so tickets never hold a stale copy of the train's seat map.
+ * Older users.json files embed the whole train under {@code train}; those are read
+ * into {@code train_id} and flagged so the loader can rewrite the file compactly.
+ * Tickets booked before seats were recorded have {@link #NO_SEAT} as row and seat.
+ */
 @JsonIgnoreProperties(ignoreUnknown = true)
 @JsonNaming(PropertyNamingStrategies.SnakeCaseStrategy.class)
 public class Ticket {
+    public static final int NO_SEAT = -1;
 
     private String ticketId;
     private String userId;
     private String source;
     private String destination;
     private String dateOfTravel;
-    private Train train;
+    private String trainId;
+    private int row = NO_SEAT;
+    private int seat = NO_SEAT;
+    @JsonIgnore
+    private Function<String, Optional<Train>> trainResolver;
+    @JsonIgnore
+    private boolean embeddedTrain;
 
     public Ticket() {}
 
-    public Ticket(String ticketId, String userId, String source, String destination, String dateOfTravel, Train train) {
+    public Ticket(String ticketId, String userId, String source, String destination, String dateOfTravel, String trainId) {
         this.ticketId = ticketId;
         this.userId = userId;
         this.source = source;
         this.destination = destination;
         this.dateOfTravel = dateOfTravel;
-        this.train = train;
+        this.trainId = trainId;
     }
 
     public String getTicketInfo() {
-        return String.format("Ticket ID: %s belongs to User %s from %s to %s on %s", ticketId, userId, source, destination, dateOfTravel);
+        String info = String.format("Ticket ID: %s belongs to User %s from %s to %s on %s", ticketId, userId, source, destination, dateOfTravel);
+        return hasSeat() ? info + String.format(", row %d seat %d", row + 1, seat + 1) : info;
     }
 
     public String getTicketId() {
@@ -70,11 +91,62 @@ public class Ticket {
         this.dateOfTravel = dateOfTravel;
     }
 
+    public String getTrainId() {
+        return trainId;
+    }
+
+    public void setTrainId(String trainId) {
+        this.trainId = trainId;
+    }
+
+    public int getRow() {
+        return row;
+    }
+
+    public void setRow(int row) {
+        this.row = row;
+    }
+
+    public int getSeat() {
+        return seat;
+    }
+
+    public void setSeat(int seat) {
+        this.seat = seat;
+    }
+
+    public void assignSeat(int row, int seat) {
+        this.row = row;
+        this.seat = seat;
+    }
+
+    @JsonIgnore
+    public boolean hasSeat() {
+        return row != NO_SEAT && seat != NO_SEAT;
+    }
+
+    /** The current train for this ticket, or null if it is unknown or no resolver is attached. */
+    @JsonIgnore
     public Train getTrain() {
-        return train;
+        return trainResolver == null || trainId == null ? null : trainResolver.apply(trainId).orElse(null);
+    }
+
+    @JsonIgnore
+    public void setTrainResolver(Function<String, Optional<Train>> trainResolver) {
+        this.trainResolver = trainResolver;
+    }
+
+    /** Reads the legacy embedded train, keeping only its id. */
+    @JsonSetter("train")
+    void setEmbeddedTrain(JsonNode train) {
+        embeddedTrain = true;
+        if (trainId == null && train != null) {
+            trainId = train.path("train_id").asText(null);
+        }
     }
 
-    public void setTrain(Train train) {
-        this.train = train;
+    @JsonIgnore
+    public boolean hasEmbeddedTrain() {
+        return embeddedTrain;
     }
 }
\ No newline at end of file
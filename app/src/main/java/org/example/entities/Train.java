@@ -3,51 +3,114 @@ package org.example.entities;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.databind.annotation.JsonNaming;
 import com.fasterxml.jackson.databind.PropertyNamingStrategies;
-import lombok.AllArgsConstructor;
 import lombok.Builder;
-import lombok.NoArgsConstructor;
 
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.util.AbstractList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
+/**
+ * A train and its timetable. The route is kept as {@link StationDictionary} ids and the
+ * times as seconds after midnight; {@code stations} and {@code station_times} are
+ * rebuilt from them for JSON. Names and times whose text differs from the dictionary's
+ * lower-case name or from hh:mm:ss are remembered as given, so saving writes the file
+ * back exactly as it was loaded.
+ */
 @JsonIgnoreProperties(ignoreUnknown = true)
 @JsonNaming(PropertyNamingStrategies.SnakeCaseStrategy.class)
-@Builder
 public class Train {
+    public static final int NO_TIME = -1;
 
     private String trainId;
     private String trainNo;
-    private List<List<Integer>> seats;
-    private Map<String, String> stationTimes;
-    private List<String> stations;
+    private SeatMap seats;
+    /** Route in stop order; null until stations are set. */
+    private int[] stationIds;
+    private List<String> stationNames;
+    /** The timetable as given, as parallel station id / second-of-day arrays in entry order. */
+    private int[] timedStations;
+    private int[] times;
+    /** Timetable text as given where it differs from the rebuilt form; null where it does not, or throughout. */
+    private String[] timedSpellings;
+    private String[] timeTexts;
+    /** Second of day at each stop of the route, {@link #NO_TIME} where the timetable has none. */
+    private int[] stopTimes = new int[0];
 
     public Train() {}
 
-    public Train(String trainId, String trainNo, List<List<Integer>> seats, Map<String, String> stationTimes, List<String> stations) {
+    @Builder
+    public Train(String trainId, String trainNo, SeatMap seats, Map<String, String> stationTimes, List<String> stations) {
         this.trainId = trainId;
         this.trainNo = trainNo;
-        this.seats = seats;
-        this.stationTimes = stationTimes;
-        this.stations = stations;
+        setStationTimes(stationTimes);
+        setStations(stations);
+        setSeats(seats);
+    }
+
+    public Train(String trainId, String trainNo, List<List<Integer>> seats, Map<String, String> stationTimes, List<String> stations) {
+        this(trainId, trainNo, SeatMap.fromRows(seats), stationTimes, stations);
     }
 
     public List<String> getStations() {
-        return stations;
+        return stationNames;
+    }
+
+    /** Route as dictionary ids; shared with the train, so callers must not modify it. */
+    public int[] stationIds() {
+        return stationIds == null ? new int[0] : stationIds;
     }
 
-    public List<List<Integer>> getSeats() {
+    public int stopCount() {
+        return stationIds == null ? 0 : stationIds.length;
+    }
+
+    public int stationIndex(String station) {
+        int id = StationDictionary.idOf(station);
+        return id == StationDictionary.UNKNOWN ? -1 : stationIndex(id);
+    }
+
+    public int stationIndex(int stationId) {
+        if (stationIds != null) {
+            for (int stop = 0; stop < stationIds.length; stop++) {
+                if (stationIds[stop] == stationId) {
+                    return stop;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /** Seconds after midnight at the stop, or {@link #NO_TIME}. */
+    public int departureTime(int stop) {
+        return stopTimes[stop];
+    }
+
+    public SeatMap getSeats() {
         return seats;
     }
 
-    public void setSeats(List<List<Integer>> seats) {
+    public void setSeats(SeatMap seats) {
         this.seats = seats;
+        fitSeatsToRoute();
     }
 
     public String getTrainId() {
         return trainId;
     }
 
+    /** Rebuilt on each call in the order the timetable was given. */
     public Map<String, String> getStationTimes() {
+        if (timedStations == null) {
+            return null;
+        }
+        Map<String, String> stationTimes = new LinkedHashMap<>();
+        for (int i = 0; i < timedStations.length; i++) {
+            stationTimes.put(asGiven(timedSpellings, i, StationDictionary.nameOf(timedStations[i])),
+                    asGiven(timeTexts, i, formatTime(times[i])));
+        }
         return stationTimes;
     }
 
@@ -64,14 +127,119 @@ public class Train {
     }
 
     public void setStationTimes(Map<String, String> stationTimes) {
-        this.stationTimes = stationTimes;
+        if (stationTimes == null) {
+            timedStations = null;
+            times = null;
+            timedSpellings = null;
+            timeTexts = null;
+        } else {
+            int[] ids = new int[stationTimes.size()];
+            int[] seconds = new int[stationTimes.size()];
+            String[] spellings = null;
+            String[] texts = null;
+            int i = 0;
+            for (Map.Entry<String, String> entry : stationTimes.entrySet()) {
+                ids[i] = StationDictionary.intern(entry.getKey());
+                seconds[i] = parseTime(entry.getKey(), entry.getValue());
+                spellings = remember(spellings, ids.length, i, entry.getKey(), StationDictionary.nameOf(ids[i]));
+                texts = remember(texts, ids.length, i, entry.getValue(), formatTime(seconds[i]));
+                i++;
+            }
+            timedStations = ids;
+            times = seconds;
+            timedSpellings = spellings;
+            timeTexts = texts;
+        }
+        alignTimes();
     }
 
     public void setStations(List<String> stations) {
-        this.stations = stations;
+        if (stations == null) {
+            stationIds = null;
+            stationNames = null;
+        } else {
+            int[] ids = new int[stations.size()];
+            String[] spellings = null;
+            for (int stop = 0; stop < ids.length; stop++) {
+                ids[stop] = StationDictionary.intern(stations.get(stop));
+                spellings = remember(spellings, ids.length, stop, stations.get(stop), StationDictionary.nameOf(ids[stop]));
+            }
+            String[] given = spellings;
+            stationIds = ids;
+            stationNames = new AbstractList<>() {
+                @Override
+                public String get(int stop) {
+                    return asGiven(given, stop, StationDictionary.nameOf(ids[stop]));
+                }
+
+                @Override
+                public int size() {
+                    return ids.length;
+                }
+            };
+        }
+        alignTimes();
+        fitSeatsToRoute();
+    }
+
+    private void alignTimes() {
+        int[] aligned = new int[stopCount()];
+        for (int stop = 0; stop < aligned.length; stop++) {
+            aligned[stop] = NO_TIME;
+            for (int i = 0; timedStations != null && i < timedStations.length; i++) {
+                if (timedStations[i] == stationIds[stop]) {
+                    aligned[stop] = times[i];
+                    break;
+                }
+            }
+        }
+        stopTimes = aligned;
+    }
+
+    /** Records {@code given} at {@code i} when it differs from {@code rebuilt}, allocating on the first difference. */
+    private static String[] remember(String[] spellings, int length, int i, String given, String rebuilt) {
+        if (given.equals(rebuilt)) {
+            return spellings;
+        }
+        String[] result = spellings == null ? new String[length] : spellings;
+        result[i] = given;
+        return result;
+    }
+
+    private static String asGiven(String[] spellings, int i, String rebuilt) {
+        return spellings == null || spellings[i] == null ? rebuilt : spellings[i];
+    }
+
+    private static String formatTime(int seconds) {
+        int hours = seconds / 3600;
+        int minutes = seconds / 60 % 60;
+        int secs = seconds % 60;
+        return new String(new char[] {
+                (char) ('0' + hours / 10), (char) ('0' + hours % 10), ':',
+                (char) ('0' + minutes / 10), (char) ('0' + minutes % 10), ':',
+                (char) ('0' + secs / 10), (char) ('0' + secs % 10)});
+    }
+
+    private static int parseTime(String station, String time) {
+        if (time == null) {
+            throw new IllegalArgumentException("Missing time for station " + station);
+        }
+        try {
+            return LocalTime.parse(time).toSecondOfDay();
+        } catch (DateTimeParseException ex) {
+            throw new IllegalArgumentException("Invalid time '" + time + "' for station " + station, ex);
+        }
+    }
+
+    // Seat maps carry one bitset per leg; size them once the route is known so bookings
+    // never have to grow them while other threads are claiming seats.
+    private void fitSeatsToRoute() {
+        if (seats != null && stopCount() > 1) {
+            seats = seats.withLegCount(stopCount() - 1);
+        }
     }
 
     public String getTrainInfo() {
         return String.format("Train ID: %s Train No: %s", trainId, trainNo);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,479 @@
+package org.example.http;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.util.concurrent.RateLimiter;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.example.Services.UserBookingService;
+import org.example.entities.SeatMap;
+import org.example.entities.SeatRequest;
+import org.example.entities.Ticket;
+import org.example.entities.Train;
+import org.example.entities.User;
+import org.example.persistence.SeatInventoryStore;
+import org.example.util.LatencyHistogram;
+import org.example.util.Metrics;
+import org.example.util.UserServiceUtil;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * JSON front end for the booking service on the JDK's built-in HTTP server.
+ * <p>
+ * Every request runs on its own virtual thread, so a client blocked on bcrypt or on the
+ * booking log's fsync holds no platform thread and thousands can be in flight at once.
+ * The server keeps no per-client state: calls after login carry the session token as
+ * {@code Authorization: Bearer <token>} and the service resolves the user per call.
+ * <pre>
+ * POST   /signup                          {"name", "password"}
+ * POST   /login                           {"name", "password"} -> {"token"}
+ * GET    /trains?source=&amp;destination=
+ * GET    /trains/{id}/seats?date=&amp;source=&amp;destination=
+ * GET    /bookings
+ * POST   /bookings                        {"train_id", "source", "destination", "date", "row", "seat"}
+ *                                         or {"party_size", "together", "window"} instead of row/seat,
+ *                                         then optionally {"waitlist": true, "priority"} to queue when sold out
+ * DELETE /bookings/{ticketId}
+ * POST   /holds                           {"train_id", "source", "destination", "date", "row", "seat", "ttl_seconds"}
+ * POST   /holds/{holdId}/confirm          -> the ticket
+ * DELETE /holds/{holdId}
+ * GET    /metrics                         counters, gauges and latency percentiles
+ * </pre>
+ * Rows and seats are zero-based. A waitlisted booking answers 202; its tickets show up
+ * under {@code GET /bookings} once cancellations free enough seats. A request the
+ * waitlist cannot take, such as a party larger than the train, answers 409. Signups over
+ * {@code signup.rate.global} answer 429 and requests refused by the full bcrypt queue
+ * answer 503, both with {@code Retry-After}.
+ */
+public class BookingServer {
+    private static final int BACKLOG = 4096;
+    private static final String METRICS_FILE = "data/metrics.json";
+
+    private final UserBookingService service;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpServer server;
+    private final RateLimiter signups;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public BookingServer(UserBookingService service, int port) throws IOException {
+        this(service, port, Double.parseDouble(System.getProperty("signup.rate.global", "20")));
+    }
+
+    public BookingServer(UserBookingService service, int port, double signupsPerSecond) throws IOException {
+        this.service = service;
+        this.signups = RateLimiter.create(signupsPerSecond);
+        this.server = HttpServer.create(new InetSocketAddress(port), BACKLOG);
+        route("/signup", this::signUp);
+        route("/login", this::login);
+        route("/trains", this::trains);
+        route("/bookings", this::bookings);
+        route("/holds", this::holds);
+        route("/metrics", this::metrics);
+        server.setExecutor(executor);
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : Integer.getInteger("http.port", 8080);
+        BookingServer server = new BookingServer(UserBookingService.getInstance(), port);
+        File metricsFile = new File(METRICS_FILE);
+        Metrics.startSnapshots(metricsFile);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop();
+            try {
+                Metrics.writeSnapshot(metricsFile);
+            } catch (IOException ex) {
+                System.err.println("Error writing metrics snapshot: " + ex.getMessage());
+            }
+        }));
+        server.start();
+        System.out.println("Booking API listening on port " + server.port());
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(1);
+        executor.shutdown();
+    }
+
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    private interface Handler {
+        Response apply(HttpExchange exchange) throws IOException;
+    }
+
+    private static final class Response {
+        final int status;
+        final Object body;
+        final int retryAfterSeconds;
+
+        Response(int status, Object body) {
+            this(status, body, 0);
+        }
+
+        Response(int status, Object body, int retryAfterSeconds) {
+            this.status = status;
+            this.body = body;
+            this.retryAfterSeconds = retryAfterSeconds;
+        }
+    }
+
+    /** Serves the path prefix, timing every exchange under {@code http.<prefix>}. */
+    private void route(String path, Handler handler) {
+        LatencyHistogram timer = Metrics.timer("http" + path.replace('/', '.'));
+        server.createContext(path, exchange -> {
+            long started = System.nanoTime();
+            try {
+                handle(exchange, handler);
+            } finally {
+                timer.record(System.nanoTime() - started);
+            }
+        });
+    }
+
+    private void handle(HttpExchange exchange, Handler handler) throws IOException {
+        Response response;
+        try {
+            response = handler.apply(exchange);
+        } catch (IllegalArgumentException ex) {
+            response = error(400, ex.getMessage());
+        } catch (RejectedExecutionException ex) {
+            // The bcrypt queue is full; shed the request rather than failing it.
+            response = retryLater(503, "server busy");
+        } catch (RuntimeException ex) {
+            System.err.println("Error serving " + exchange.getRequestURI() + ": " + ex);
+            response = error(500, "internal error");
+        }
+        try (exchange) {
+            if (response.retryAfterSeconds > 0) {
+                exchange.getResponseHeaders().set("Retry-After", String.valueOf(response.retryAfterSeconds));
+            }
+            if (response.body == null) {
+                exchange.sendResponseHeaders(response.status, -1);
+                return;
+            }
+            byte[] bytes = objectMapper.writeValueAsBytes(response.body);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(response.status, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        }
+    }
+
+    private Response metrics(HttpExchange exchange) {
+        if (!exchange.getRequestMethod().equals("GET")) {
+            return methodNotAllowed();
+        }
+        return new Response(200, Metrics.snapshot());
+    }
+
+    private Response signUp(HttpExchange exchange) throws IOException {
+        if (!exchange.getRequestMethod().equals("POST")) {
+            return methodNotAllowed();
+        }
+        JsonNode body = readBody(exchange);
+        String name = requireText(body, "name");
+        String password = requireText(body, "password");
+        if (!signups.tryAcquire()) {
+            return retryLater(429, "too many signups");
+        }
+        User user = new User(name, null, UserServiceUtil.hashPassword(password), new ArrayList<>(), UUID.randomUUID().toString());
+        return service.signUp(user)
+                ? new Response(201, Map.of("user_id", user.getUserId()))
+                : error(409, "user already exists");
+    }
+
+    private Response login(HttpExchange exchange) throws IOException {
+        if (!exchange.getRequestMethod().equals("POST")) {
+            return methodNotAllowed();
+        }
+        JsonNode body = readBody(exchange);
+        return service.login(requireText(body, "name"), requireText(body, "password"))
+                .map(token -> new Response(200, Map.of("token", token)))
+                .orElseGet(() -> error(401, "invalid credentials or too many attempts"));
+    }
+
+    private Response trains(HttpExchange exchange) {
+        if (!exchange.getRequestMethod().equals("GET")) {
+            return methodNotAllowed();
+        }
+        Map<String, String> query = query(exchange);
+        String[] path = path(exchange);
+        if (path.length == 1) {
+            List<Map<String, Object>> trains = new ArrayList<>();
+            for (Train train : service.getTrains(requireParam(query, "source"), requireParam(query, "destination"))) {
+                trains.add(describe(train));
+            }
+            return new Response(200, trains);
+        }
+        if (path.length == 3 && path[2].equals("seats")) {
+            Optional<Train> train = service.findTrain(path[1]);
+            if (train.isEmpty()) {
+                return error(404, "no train " + path[1]);
+            }
+            return seats(train.get(), requireDate(requireParam(query, "date")), requireParam(query, "source"), requireParam(query, "destination"));
+        }
+        return error(404, "not found");
+    }
+
+    private Response seats(Train train, String date, String source, String destination) {
+        int fromLeg = train.stationIndex(source);
+        int toLeg = train.stationIndex(destination);
+        if (fromLeg < 0 || toLeg <= fromLeg) {
+            return error(400, "train " + train.getTrainId() + " does not run from " + source + " to " + destination);
+        }
+        SeatMap seats = service.fetchSeats(train, date);
+        if (seats == null) {
+            return error(404, "train " + train.getTrainId() + " has no seats");
+        }
+        List<int[]> rows = new ArrayList<>(seats.rowCount());
+        for (int row = 0; row < seats.rowCount(); row++) {
+            int[] taken = new int[seats.seatsInRow(row)];
+            for (int seat = 0; seat < taken.length; seat++) {
+                taken[seat] = seats.isFree(row, seat, fromLeg, toLeg) ? 0 : 1;
+            }
+            rows.add(taken);
+        }
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("free", service.availableSeats(train, source, destination, date));
+        body.put("rows", rows);
+        return new Response(200, body);
+    }
+
+    private Response bookings(HttpExchange exchange) throws IOException {
+        Optional<String> token = bearerToken(exchange).filter(t -> service.userFor(t).isPresent());
+        if (token.isEmpty()) {
+            return error(401, "missing or expired session");
+        }
+        String[] path = path(exchange);
+        switch (exchange.getRequestMethod()) {
+            case "GET":
+                return path.length == 1 ? new Response(200, service.tickets(token.get())) : error(404, "not found");
+            case "POST":
+                return path.length == 1 ? book(token.get(), readBody(exchange)) : error(404, "not found");
+            case "DELETE":
+                if (path.length != 2) {
+                    return error(404, "not found");
+                }
+                return service.cancelBooking(token.get(), path[1]) ? new Response(204, null) : error(404, "no ticket " + path[1]);
+            default:
+                return methodNotAllowed();
+        }
+    }
+
+    private Response holds(HttpExchange exchange) throws IOException {
+        Optional<String> token = bearerToken(exchange).filter(t -> service.userFor(t).isPresent());
+        if (token.isEmpty()) {
+            return error(401, "missing or expired session");
+        }
+        String[] path = path(exchange);
+        switch (exchange.getRequestMethod()) {
+            case "POST":
+                if (path.length == 1) {
+                    return hold(token.get(), readBody(exchange));
+                }
+                if (path.length == 3 && path[2].equals("confirm")) {
+                    return service.confirmHold(token.get(), path[1])
+                            .map(ticket -> new Response(201, ticket))
+                            .orElseGet(() -> error(404, "no hold " + path[1]));
+                }
+                return error(404, "not found");
+            case "DELETE":
+                if (path.length != 2) {
+                    return error(404, "not found");
+                }
+                return service.releaseHold(token.get(), path[1]) ? new Response(204, null) : error(404, "no hold " + path[1]);
+            default:
+                return methodNotAllowed();
+        }
+    }
+
+    private Response hold(String token, JsonNode body) {
+        String trainId = requireText(body, "train_id");
+        Optional<Train> train = service.findTrain(trainId);
+        if (train.isEmpty()) {
+            return error(404, "no train " + trainId);
+        }
+        if (!body.has("row") || !body.has("seat")) {
+            throw new IllegalArgumentException("row and seat are required");
+        }
+        Duration ttl = body.has("ttl_seconds") ? ttl(body.get("ttl_seconds")) : UserBookingService.DEFAULT_HOLD_TTL;
+        return service.holdSeat(token, train.get(), body.get("row").asInt(), body.get("seat").asInt(),
+                        requireText(body, "source"), requireText(body, "destination"), requireDate(requireText(body, "date")), ttl)
+                .map(hold -> new Response(201, hold))
+                .orElseGet(() -> error(409, "seat not available"));
+    }
+
+    /** Hold lifetimes are capped by {@code hold.ttl.max.seconds} so the expiry timer cannot overflow. */
+    private static Duration ttl(JsonNode seconds) {
+        long max = UserBookingService.MAX_HOLD_TTL.toSeconds();
+        if (seconds.isNumber() && !seconds.canConvertToLong() || seconds.asLong() > max) {
+            throw new IllegalArgumentException("ttl_seconds must be at most " + max);
+        }
+        if (seconds.asLong() <= 0) {
+            throw new IllegalArgumentException("ttl_seconds must be positive");
+        }
+        return Duration.ofSeconds(seconds.asLong());
+    }
+
+    private Response book(String token, JsonNode body) {
+        String trainId = requireText(body, "train_id");
+        Optional<Train> train = service.findTrain(trainId);
+        if (train.isEmpty()) {
+            return error(404, "no train " + trainId);
+        }
+        String source = requireText(body, "source");
+        String destination = requireText(body, "destination");
+        String date = requireDate(requireText(body, "date"));
+        int fromLeg = train.get().stationIndex(source);
+        int toLeg = train.get().stationIndex(destination);
+        if (fromLeg < 0 || toLeg <= fromLeg) {
+            return error(400, "train " + trainId + " does not run from " + source + " to " + destination);
+        }
+        boolean waitlist = body.path("waitlist").asBoolean(false);
+        List<Ticket> tickets;
+        SeatRequest request = new SeatRequest(body.path("party_size").asInt(1))
+                .together(body.path("together").asBoolean(false))
+                .window(body.path("window").asBoolean(false));
+        if (body.has("party_size")) {
+            tickets = service.bookBestAvailable(token, train.get(), source, destination, date, request);
+        } else {
+            if (!body.has("row") || !body.has("seat")) {
+                throw new IllegalArgumentException("row and seat, or party_size, are required");
+            }
+            if (waitlist) {
+                throw new IllegalArgumentException("waitlist takes party_size, not a chosen row and seat");
+            }
+            int row = body.get("row").asInt();
+            int seat = body.get("seat").asInt();
+            SeatMap seats = service.fetchSeats(train.get(), date);
+            if (seats == null || !seats.isValidSeat(row, seat)) {
+                throw new IllegalArgumentException("train " + trainId + " has no row " + row + " seat " + seat);
+            }
+            tickets = service.bookSeat(token, train.get(), row, seat, source, destination, date)
+                    .map(List::of).orElse(List.of());
+        }
+        if (!tickets.isEmpty()) {
+            return new Response(201, tickets);
+        }
+        if (waitlist) {
+            CompletableFuture<List<Ticket>> queued = service.joinWaitlist(token, train.get(), source, destination, date,
+                    request, body.path("priority").asInt(0));
+            if (!queued.isDone()) {
+                return new Response(202, Map.of("waitlisted", service.waitlistLength(train.get(), date)));
+            }
+            // Settled at once: the request was refused rather than queued, or seats had just come free.
+            List<Ticket> served = queued.handle((result, failure) -> failure == null ? result : List.<Ticket>of()).join();
+            return served.isEmpty() ? error(409, "request cannot be waitlisted") : new Response(201, served);
+        }
+        return error(409, "seats not available");
+    }
+
+    private static Map<String, Object> describe(Train train) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("train_id", train.getTrainId());
+        body.put("train_no", train.getTrainNo());
+        body.put("stations", train.getStations());
+        body.put("station_times", train.getStationTimes());
+        return body;
+    }
+
+    private JsonNode readBody(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            JsonNode body = objectMapper.readTree(in);
+            if (body == null || !body.isObject()) {
+                throw new IllegalArgumentException("expected a JSON object");
+            }
+            return body;
+        } catch (JsonProcessingException ex) {
+            throw new IllegalArgumentException("malformed JSON: " + ex.getOriginalMessage());
+        }
+    }
+
+    private static String requireText(JsonNode body, String field) {
+        String value = body.path(field).asText("");
+        if (value.isBlank()) {
+            throw new IllegalArgumentException(field + " is required");
+        }
+        return value;
+    }
+
+    private static String requireParam(Map<String, String> query, String name) {
+        String value = query.get(name);
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException(name + " is required");
+        }
+        return value;
+    }
+
+    private static String requireDate(String date) {
+        if (!SeatInventoryStore.isTravelDate(date)) {
+            throw new IllegalArgumentException("date must be YYYY-MM-DD");
+        }
+        return date;
+    }
+
+    private static Optional<String> bearerToken(HttpExchange exchange) {
+        String header = exchange.getRequestHeaders().getFirst("Authorization");
+        return header != null && header.startsWith("Bearer ") ? Optional.of(header.substring(7).trim()) : Optional.empty();
+    }
+
+    /** Path segments after the context root, e.g. {@code /trains/t1/seats} gives [trains, t1, seats]. */
+    private static String[] path(HttpExchange exchange) {
+        String path = exchange.getRequestURI().getPath();
+        return path.replaceAll("^/+|/+$", "").split("/+");
+    }
+
+    private static Map<String, String> query(HttpExchange exchange) {
+        Map<String, String> params = new HashMap<>();
+        String raw = exchange.getRequestURI().getRawQuery();
+        if (raw == null) {
+            return params;
+        }
+        for (String pair : raw.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                params.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return params;
+    }
+
+    private static Response methodNotAllowed() {
+        return error(405, "method not allowed");
+    }
+
+    private static Response error(int status, String message) {
+        return new Response(status, Map.of("error", message));
+    }
+
+    private static Response retryLater(int status, String message) {
+        return new Response(status, Map.of("error", message), 1);
+    }
+}
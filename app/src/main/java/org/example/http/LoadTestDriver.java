@@ -0,0 +1,209 @@
+package org.example.http;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.Services.SessionManager;
+import org.example.Services.TrainService;
+import org.example.Services.UserBookingService;
+import org.example.persistence.BookingLog;
+import org.example.util.LatencyHistogram;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drives a {@link BookingServer} with many concurrent simulated users, one virtual thread
+ * each. Every user signs up, logs in and then repeats search, seat map, book and cancel;
+ * latency is recorded per endpoint.
+ * <p>
+ * Usage: {@code LoadTestDriver [baseUrl|embedded] [clients] [roundsPerClient] [source] [destination]}.
+ * With {@code embedded}, the default, the driver starts its own server on a free port
+ * over the trains in data/trains.json and keeps users, holds and the booking log in a
+ * scratch directory, so the live data is never written. A server given by URL should
+ * likewise be started from a scratch copy of data/.
+ * <p>
+ * Signup and login run bcrypt, so run with a low {@code -Dbcrypt.cost} and high
+ * {@code -Dlogin.rate.global} and {@code -Dsignup.rate.global} when measuring the booking
+ * path rather than hashing. Requests refused with 429 or 503 are retried after their
+ * {@code Retry-After}.
+ */
+public class LoadTestDriver {
+    private static final int MAX_LOGIN_ATTEMPTS = 50;
+    private static final int MAX_RETRIES = 50;
+
+    private final String baseUrl;
+    private final String source;
+    private final String destination;
+    private final HttpClient client;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, LatencyHistogram> latencies = new LinkedHashMap<>();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong conflicts = new AtomicLong();
+
+    public LoadTestDriver(String baseUrl, String source, String destination, ExecutorService executor) {
+        this.baseUrl = baseUrl.replaceAll("/+$", "");
+        this.source = source;
+        this.destination = destination;
+        this.client = HttpClient.newBuilder().executor(executor).connectTimeout(Duration.ofSeconds(10)).build();
+        for (String endpoint : List.of("signup", "login", "search", "seats", "book", "cancel")) {
+            latencies.put(endpoint, new LatencyHistogram());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        String target = args.length > 0 ? args[0] : "embedded";
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+        String source = args.length > 3 ? args[3] : "bangalore";
+        String destination = args.length > 4 ? args[4] : "delhi";
+        BookingServer server = target.equals("embedded") ? startScratchServer() : null;
+        String baseUrl = server == null ? target : "http://localhost:" + server.port();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            new LoadTestDriver(baseUrl, source, destination, executor).run(clients, rounds, executor);
+        } finally {
+            if (server != null) {
+                server.stop();
+            }
+        }
+    }
+
+    /** A server over the live trains whose users, holds and booking log live in a temp directory. */
+    private static BookingServer startScratchServer() throws IOException {
+        File scratch = Files.createTempDirectory("load-test").toFile();
+        System.out.println("Keeping load test data in " + scratch);
+        UserBookingService service = new UserBookingService(new File(scratch, "users.json"), new TrainService(),
+                new BookingLog(new File(scratch, "bookings.log")), new SessionManager(Duration.ofMinutes(30)));
+        BookingServer server = new BookingServer(service, 0);
+        server.start();
+        return server;
+    }
+
+    public void run(int clients, int rounds, ExecutorService executor) throws InterruptedException {
+        System.out.println("Driving " + baseUrl + " with " + clients + " clients x " + rounds + " rounds");
+        long started = System.nanoTime();
+        List<Future<?>> running = new ArrayList<>(clients);
+        for (int i = 0; i < clients; i++) {
+            running.add(executor.submit(() -> {
+                try {
+                    simulateUser(rounds);
+                } catch (IOException | RuntimeException ex) {
+                    failures.incrementAndGet();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+        }
+        for (Future<?> future : running) {
+            try {
+                future.get();
+            } catch (ExecutionException ex) {
+                failures.incrementAndGet();
+            }
+        }
+        double seconds = (System.nanoTime() - started) / 1e9;
+        System.out.printf("%d requests in %.1f s (%.0f req/s), %d failed, %d seat conflicts%n",
+                requests.get(), seconds, requests.get() / seconds, failures.get(), conflicts.get());
+        latencies.forEach((endpoint, histogram) -> System.out.println("  " + endpoint + ": " + histogram.summary()));
+    }
+
+    private void simulateUser(int rounds) throws IOException, InterruptedException {
+        String name = "load-" + UUID.randomUUID();
+        Map<String, Object> credentials = Map.of("name", name, "password", "pw-" + name);
+        expect(sendRetrying("signup", post("/signup", credentials, null)), 201);
+        String token = login(credentials);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int round = 0; round < rounds; round++) {
+            JsonNode trains = expect(send("search", get("/trains?source=" + source + "&destination=" + destination, null)), 200);
+            if (trains.isEmpty()) {
+                throw new IllegalStateException("no trains from " + source + " to " + destination);
+            }
+            String trainId = trains.get(random.nextInt(trains.size())).path("train_id").asText();
+            String date = LocalDate.of(2030, 1, 1).plusDays(random.nextInt(365)).toString();
+            JsonNode seats = expect(send("seats", get("/trains/" + trainId + "/seats?date=" + date
+                    + "&source=" + source + "&destination=" + destination, null)), 200);
+            JsonNode rows = seats.path("rows");
+            int row = random.nextInt(rows.size());
+            int seat = random.nextInt(rows.get(row).size());
+            Map<String, Object> booking = Map.of("train_id", trainId, "source", source, "destination", destination,
+                    "date", date, "row", row, "seat", seat);
+            HttpResponse<String> booked = send("book", post("/bookings", booking, token));
+            if (booked.statusCode() == 409) {
+                conflicts.incrementAndGet();
+                continue;
+            }
+            String ticketId = expect(booked, 201).get(0).path("ticket_id").asText();
+            expect(send("cancel", HttpRequest.newBuilder(URI.create(baseUrl + "/bookings/" + ticketId))
+                    .header("Authorization", "Bearer " + token).DELETE().build()), 204);
+        }
+    }
+
+    /** Logins share a global rate limit on the server, so back off and retry until let in. */
+    private String login(Map<String, Object> credentials) throws IOException, InterruptedException {
+        for (int attempt = 0; attempt < MAX_LOGIN_ATTEMPTS; attempt++) {
+            HttpResponse<String> response = sendRetrying("login", post("/login", credentials, null));
+            if (response.statusCode() == 200) {
+                return objectMapper.readTree(response.body()).path("token").asText();
+            }
+            Thread.sleep(1000 + ThreadLocalRandom.current().nextInt(1000));
+        }
+        throw new IllegalStateException("could not log in " + credentials.get("name"));
+    }
+
+    /** Sends until the server stops answering 429 or 503, waiting out its {@code Retry-After}. */
+    private HttpResponse<String> sendRetrying(String endpoint, HttpRequest request) throws IOException, InterruptedException {
+        for (int attempt = 0; ; attempt++) {
+            HttpResponse<String> response = send(endpoint, request);
+            if ((response.statusCode() != 429 && response.statusCode() != 503) || attempt == MAX_RETRIES) {
+                return response;
+            }
+            long retryAfter = response.headers().firstValueAsLong("Retry-After").orElse(1);
+            Thread.sleep(retryAfter * 1000 + ThreadLocalRandom.current().nextInt(1000));
+        }
+    }
+
+    private HttpResponse<String> send(String endpoint, HttpRequest request) throws IOException, InterruptedException {
+        long started = System.nanoTime();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        latencies.get(endpoint).record(System.nanoTime() - started);
+        requests.incrementAndGet();
+        return response;
+    }
+
+    private JsonNode expect(HttpResponse<String> response, int status) throws IOException {
+        if (response.statusCode() != status) {
+            throw new IllegalStateException(response.request().uri() + " returned " + response.statusCode() + ": " + response.body());
+        }
+        return response.body().isEmpty() ? objectMapper.nullNode() : objectMapper.readTree(response.body());
+    }
+
+    private HttpRequest get(String path, String token) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUrl + path)).GET();
+        return token == null ? builder.build() : builder.header("Authorization", "Bearer " + token).build();
+    }
+
+    private HttpRequest post(String path, Object body, String token) throws IOException {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body)));
+        return token == null ? builder.build() : builder.header("Authorization", "Bearer " + token).build();
+    }
+}
@@ -0,0 +1,448 @@
+package org.example.persistence;
+
+import org.example.entities.SeatMap;
+import org.example.entities.Ticket;
+import org.example.entities.Train;
+import org.example.entities.User;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Versioned binary snapshot of the trains or the users, the fast-start companion of
+ * trains.json and users.json.
+ * <p>
+ * Layout: {@code [int magic][short version][byte kind][int dictionarySize][int recordCount]},
+ * then the string dictionary, then the records, then a CRC32 of everything after the
+ * header. Dictionary entries and records are each prefixed with their byte length.
+ * Station names, times, train ids, user ids and travel dates are written once in the
+ * dictionary and referenced by index; seat maps are stored as their raw bitmap words.
+ * <p>
+ * Files are written to a temp file through a memory-mapped {@link FileChannel} and moved
+ * into place atomically, and read back with a single read-only mapping. Plain-text
+ * passwords are never written.
+ */
+public final class BinarySnapshot {
+    static final int MAGIC = 0x54424B53;
+    /** Version 2 added the booked row and seat to each ticket; version 1 files still load. */
+    static final short VERSION = 2;
+    private static final short FIRST_READABLE_VERSION = 1;
+    private static final int HEADER_BYTES = 15;
+    private static final long WINDOW_BYTES = 64L << 20;
+
+    public enum Kind {
+        TRAINS, USERS
+    }
+
+    private BinarySnapshot() {
+    }
+
+    /** The snapshot kept next to a JSON file: {@code data/users.json} maps to {@code data/users.bin}. */
+    public static File companionOf(File jsonFile) {
+        String name = jsonFile.getName();
+        String base = name.endsWith(".json") ? name.substring(0, name.length() - 5) : name;
+        return new File(jsonFile.getAbsoluteFile().getParentFile(), base + ".bin");
+    }
+
+    /** True if {@code snapshot} exists and is at least as new as {@code jsonFile}, so it can be loaded instead. */
+    public static boolean isCurrent(File snapshot, File jsonFile) {
+        return snapshot.exists() && (!jsonFile.exists() || snapshot.lastModified() >= jsonFile.lastModified());
+    }
+
+    public static void writeTrains(File file, Collection<Train> trains) throws IOException {
+        Dictionary dictionary = new Dictionary();
+        for (Train train : trains) {
+            dictionary.add(train.getTrainId());
+            dictionary.add(train.getTrainNo());
+            if (train.getStations() != null) {
+                train.getStations().forEach(dictionary::add);
+            }
+            if (train.getStationTimes() != null) {
+                train.getStationTimes().forEach((station, time) -> {
+                    dictionary.add(station);
+                    dictionary.add(time);
+                });
+            }
+        }
+        write(file, Kind.TRAINS, dictionary, trains, (train, out) -> encodeTrain(train, dictionary, out));
+    }
+
+    public static void writeUsers(File file, Collection<User> users) throws IOException {
+        Dictionary dictionary = new Dictionary();
+        for (User user : users) {
+            dictionary.add(user.getUserId());
+            if (user.getTicketsBooked() != null) {
+                for (Ticket ticket : user.getTicketsBooked()) {
+                    dictionary.add(ticket.getUserId());
+                    dictionary.add(ticket.getSource());
+                    dictionary.add(ticket.getDestination());
+                    dictionary.add(ticket.getDateOfTravel());
+                    dictionary.add(ticket.getTrainId());
+                }
+            }
+        }
+        write(file, Kind.USERS, dictionary, users, (user, out) -> encodeUser(user, dictionary, out));
+    }
+
+    public static List<Train> readTrains(File file) throws IOException {
+        List<Train> trains = new ArrayList<>();
+        readTrains(file, trains::add);
+        return trains;
+    }
+
+    public static int readTrains(File file, Consumer<Train> sink) throws IOException {
+        return read(file, Kind.TRAINS, (in, strings, version) -> sink.accept(decodeTrain(in, strings)));
+    }
+
+    public static int readUsers(File file, Consumer<User> sink) throws IOException {
+        return read(file, Kind.USERS, (in, strings, version) -> sink.accept(decodeUser(in, strings, version)));
+    }
+
+    private interface RecordEncoder<T> {
+        void encode(T value, Scratch out);
+    }
+
+    private interface RecordDecoder {
+        void decode(ByteBuffer in, String[] strings, short version);
+    }
+
+    private static <T> void write(File file, Kind kind, Dictionary dictionary, Collection<T> records,
+                                  RecordEncoder<T> encoder) throws IOException {
+        File target = file.getAbsoluteFile();
+        target.getParentFile().mkdirs();
+        File tempFile = new File(target.getPath() + ".tmp");
+        long started = System.nanoTime();
+        long bytes;
+        try (MappedOutput out = new MappedOutput(tempFile)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            header.putInt(MAGIC).putShort(VERSION).put((byte) kind.ordinal())
+                    .putInt(dictionary.strings.size()).putInt(records.size()).flip();
+            out.writeHeader(header);
+
+            Scratch scratch = new Scratch();
+            for (String value : dictionary.strings) {
+                scratch.clear();
+                scratch.putUtf8(value);
+                out.writeRecord(scratch.flip());
+            }
+            for (T record : records) {
+                scratch.clear();
+                encoder.encode(record, scratch);
+                out.writeRecord(scratch.flip());
+            }
+            bytes = out.finish();
+        }
+        Files.move(tempFile.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        System.out.printf("Wrote %d %s to %s in %d ms (%d bytes)%n", records.size(), kind.name().toLowerCase(),
+                file.getPath(), (System.nanoTime() - started) / 1_000_000, bytes);
+    }
+
+    private static int read(File file, Kind kind, RecordDecoder decoder) throws IOException {
+        long started = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot " + file.getPath() + " is too large to map: " + size + " bytes");
+            }
+            if (size < HEADER_BYTES + 4) {
+                throw new IOException("Snapshot " + file.getPath() + " is truncated");
+            }
+            MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (in.getInt() != MAGIC) {
+                throw new IOException(file.getPath() + " is not a booking snapshot");
+            }
+            short version = in.getShort();
+            if (version < FIRST_READABLE_VERSION || version > VERSION) {
+                throw new IOException("Unsupported snapshot version " + version + " in " + file.getPath());
+            }
+            byte storedKind = in.get();
+            if (storedKind != kind.ordinal()) {
+                throw new IOException(file.getPath() + " holds " + Kind.values()[storedKind] + ", expected " + kind);
+            }
+            int dictionarySize = in.getInt();
+            int recordCount = in.getInt();
+
+            CRC32 crc = new CRC32();
+            crc.update(in.duplicate().position(HEADER_BYTES).limit((int) size - 4));
+            if ((int) crc.getValue() != in.getInt((int) size - 4)) {
+                throw new IOException("Snapshot " + file.getPath() + " failed its checksum");
+            }
+
+            String[] strings = new String[dictionarySize];
+            for (int i = 0; i < dictionarySize; i++) {
+                int end = in.getInt();
+                end += in.position();
+                strings[i] = getUtf8(in);
+                in.position(end);
+            }
+            for (int i = 0; i < recordCount; i++) {
+                int end = in.getInt();
+                end += in.position();
+                decoder.decode(in, strings, version);
+                // Records written by a newer minor layout may carry trailing fields.
+                in.position(end);
+            }
+            System.out.printf("Loaded %d %s from %s in %d ms%n", recordCount, kind.name().toLowerCase(),
+                    file.getPath(), (System.nanoTime() - started) / 1_000_000);
+            return recordCount;
+        } catch (RuntimeException ex) {
+            throw new IOException("Corrupt snapshot " + file.getPath() + ": " + ex, ex);
+        }
+    }
+
+    private static void encodeTrain(Train train, Dictionary dictionary, Scratch out) {
+        out.putInt(dictionary.ref(train.getTrainId()));
+        out.putInt(dictionary.ref(train.getTrainNo()));
+        List<String> stations = train.getStations();
+        out.putInt(stations == null ? -1 : stations.size());
+        if (stations != null) {
+            stations.forEach(station -> out.putInt(dictionary.ref(station)));
+        }
+        Map<String, String> times = train.getStationTimes();
+        out.putInt(times == null ? -1 : times.size());
+        if (times != null) {
+            times.forEach((station, time) -> {
+                out.putInt(dictionary.ref(station));
+                out.putInt(dictionary.ref(time));
+            });
+        }
+        SeatMap seats = train.getSeats();
+        out.putInt(seats == null ? -1 : seats.rowCount());
+        if (seats != null) {
+            out.putInt(seats.legCount());
+            for (int row = 0; row < seats.rowCount(); row++) {
+                long[] raw = seats.rawRow(row);
+                out.putInt(seats.seatsInRow(row));
+                out.putInt(raw.length);
+                for (long word : raw) {
+                    out.putLong(word);
+                }
+            }
+        }
+    }
+
+    private static Train decodeTrain(ByteBuffer in, String[] strings) {
+        String trainId = string(in.getInt(), strings);
+        String trainNo = string(in.getInt(), strings);
+        int stationCount = in.getInt();
+        List<String> stations = null;
+        if (stationCount >= 0) {
+            stations = new ArrayList<>(stationCount);
+            for (int i = 0; i < stationCount; i++) {
+                stations.add(string(in.getInt(), strings));
+            }
+        }
+        int timeCount = in.getInt();
+        Map<String, String> times = null;
+        if (timeCount >= 0) {
+            times = new LinkedHashMap<>();
+            for (int i = 0; i < timeCount; i++) {
+                times.put(string(in.getInt(), strings), string(in.getInt(), strings));
+            }
+        }
+        int rowCount = in.getInt();
+        SeatMap seats = null;
+        if (rowCount >= 0) {
+            int legCount = in.getInt();
+            int[] rowLengths = new int[rowCount];
+            long[][] raw = new long[rowCount][];
+            for (int row = 0; row < rowCount; row++) {
+                rowLengths[row] = in.getInt();
+                raw[row] = new long[in.getInt()];
+                in.asLongBuffer().get(raw[row]);
+                in.position(in.position() + raw[row].length * Long.BYTES);
+            }
+            seats = SeatMap.fromRaw(rowLengths, legCount, raw);
+        }
+        return new Train(trainId, trainNo, seats, times, stations);
+    }
+
+    private static void encodeUser(User user, Dictionary dictionary, Scratch out) {
+        out.putUtf8(user.getName());
+        out.putUtf8(user.getHashedPassword());
+        out.putInt(dictionary.ref(user.getUserId()));
+        List<Ticket> tickets = user.getTicketsBooked();
+        out.putInt(tickets == null ? -1 : tickets.size());
+        if (tickets != null) {
+            for (Ticket ticket : tickets) {
+                out.putUtf8(ticket.getTicketId());
+                out.putInt(dictionary.ref(ticket.getUserId()));
+                out.putInt(dictionary.ref(ticket.getSource()));
+                out.putInt(dictionary.ref(ticket.getDestination()));
+                out.putInt(dictionary.ref(ticket.getDateOfTravel()));
+                out.putInt(dictionary.ref(ticket.getTrainId()));
+                out.putInt(ticket.getRow());
+                out.putInt(ticket.getSeat());
+            }
+        }
+    }
+
+    private static User decodeUser(ByteBuffer in, String[] strings, short version) {
+        String name = getUtf8(in);
+        String hashedPassword = getUtf8(in);
+        String userId = string(in.getInt(), strings);
+        int ticketCount = in.getInt();
+        List<Ticket> tickets = null;
+        if (ticketCount >= 0) {
+            tickets = new ArrayList<>(ticketCount);
+            for (int i = 0; i < ticketCount; i++) {
+                String ticketId = getUtf8(in);
+                Ticket ticket = new Ticket(ticketId, string(in.getInt(), strings), string(in.getInt(), strings),
+                        string(in.getInt(), strings), string(in.getInt(), strings), string(in.getInt(), strings));
+                if (version >= 2) {
+                    ticket.assignSeat(in.getInt(), in.getInt());
+                }
+                tickets.add(ticket);
+            }
+        }
+        return new User(name, null, hashedPassword, tickets, userId);
+    }
+
+    private static String string(int ref, String[] strings) {
+        return ref < 0 ? null : strings[ref];
+    }
+
+    private static String getUtf8(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /** Strings interned in first-seen order; null is never stored and maps to -1. */
+    private static final class Dictionary {
+        private final Map<String, Integer> refs = new HashMap<>();
+        private final List<String> strings = new ArrayList<>();
+
+        void add(String value) {
+            if (value != null && !refs.containsKey(value)) {
+                refs.put(value, strings.size());
+                strings.add(value);
+            }
+        }
+
+        int ref(String value) {
+            return value == null ? -1 : refs.get(value);
+        }
+    }
+
+    /** Growable heap buffer that one record is encoded into before it is copied out. */
+    private static final class Scratch {
+        private ByteBuffer buffer = ByteBuffer.allocate(4096);
+
+        void clear() {
+            buffer.clear();
+        }
+
+        ByteBuffer flip() {
+            return buffer.flip();
+        }
+
+        void putInt(int value) {
+            ensure(Integer.BYTES);
+            buffer.putInt(value);
+        }
+
+        void putLong(long value) {
+            ensure(Long.BYTES);
+            buffer.putLong(value);
+        }
+
+        void putUtf8(String value) {
+            if (value == null) {
+                putInt(-1);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            putInt(bytes.length);
+            ensure(bytes.length);
+            buffer.put(bytes);
+        }
+
+        private void ensure(int bytes) {
+            if (buffer.remaining() < bytes) {
+                ByteBuffer grown = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+                grown.put(buffer.flip());
+                buffer = grown;
+            }
+        }
+    }
+
+    /**
+     * Sequential writer over a file mapped in fixed-size windows; a new window is
+     * mapped whenever the current one fills up, and the file is cut to length at the end.
+     */
+    private static final class MappedOutput implements Closeable {
+        private final FileChannel channel;
+        private final CRC32 crc = new CRC32();
+        private final ByteBuffer lengthPrefix = ByteBuffer.allocate(Integer.BYTES);
+        private MappedByteBuffer window;
+        private long windowStart;
+
+        MappedOutput(File file) throws IOException {
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            window = channel.map(FileChannel.MapMode.READ_WRITE, 0, WINDOW_BYTES);
+        }
+
+        void writeHeader(ByteBuffer header) throws IOException {
+            copy(header);
+        }
+
+        void writeRecord(ByteBuffer record) throws IOException {
+            lengthPrefix.clear().putInt(record.remaining()).flip();
+            crc.update(lengthPrefix.duplicate());
+            copy(lengthPrefix);
+            crc.update(record.duplicate());
+            copy(record);
+        }
+
+        /** Appends the checksum, syncs and trims the file; returns its final length. */
+        long finish() throws IOException {
+            lengthPrefix.clear().putInt((int) crc.getValue()).flip();
+            copy(lengthPrefix);
+            long length = windowStart + window.position();
+            window.force();
+            channel.truncate(length);
+            channel.force(true);
+            return length;
+        }
+
+        private void copy(ByteBuffer source) throws IOException {
+            while (source.hasRemaining()) {
+                if (!window.hasRemaining()) {
+                    window.force();
+                    windowStart += window.position();
+                    window = channel.map(FileChannel.MapMode.READ_WRITE, windowStart, WINDOW_BYTES);
+                }
+                int chunk = Math.min(source.remaining(), window.remaining());
+                window.put(source.slice().limit(chunk));
+                source.position(source.position() + chunk);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
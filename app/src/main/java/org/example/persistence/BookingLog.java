@@ -0,0 +1,381 @@
+package org.example.persistence;
+
+import com.google.common.util.concurrent.Uninterruptibles;
+import org.example.util.LatencyHistogram;
+import org.example.util.Metrics;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only write-ahead log of booking mutations.
+ * <p>
+ * Each record is framed as {@code [int length][int crc32][payload]}. Appends from many
+ * threads are handed to one writer thread, which writes everything queued so far and
+ * issues a single fsync for the group. On startup the log is replayed on top of the
+ * loaded snapshots; a torn record at the tail is cut off.
+ * <p>
+ * Every so often the registered snapshotters rewrite the JSON files and their
+ * {@link BinarySnapshot} companions, and the log is truncated. Mutations run under a
+ * shared lock and checkpoints under the exclusive one, so a snapshot never misses a
+ * change whose record is about to be discarded.
+ */
+public class BookingLog {
+    private static final String LOG_PATH = "data/bookings.log";
+    private static final int HEADER_BYTES = 8;
+    private static final long CHECKPOINT_RECORDS = 50_000;
+    private static final long CHECKPOINT_INTERVAL_SECONDS = 300;
+    /** From handing records to the writer until they are durable, including the group's fsync. */
+    private static final LatencyHistogram APPEND_LATENCY = Metrics.timer("log.append");
+    private static final LatencyHistogram FSYNC_LATENCY = Metrics.timer("log.write_fsync");
+    private static final LatencyHistogram CHECKPOINT_LATENCY = Metrics.timer("log.checkpoint");
+    private static final LongAdder RECORDS_WRITTEN = Metrics.counter("log.records");
+    private static final LongAdder GROUPS_WRITTEN = Metrics.counter("log.groups");
+
+    private static volatile BookingLog instance;
+
+    public interface Snapshotter {
+        void writeSnapshot() throws IOException;
+    }
+
+    /**
+     * Changes memory and returns the records that describe the change. Every step it
+     * takes right away should have an undo on {@code outcome}; steps that only give
+     * something up, like freeing a seat, are better left to {@link Outcome#onDurable}.
+     */
+    public interface Mutation {
+        List<MutationRecord> apply(Outcome outcome) throws IOException;
+    }
+
+    /** What to do once a mutation's records are durable, or once they cannot be made so. */
+    public static final class Outcome {
+        private final Deque<Runnable> undo = new ArrayDeque<>();
+        private final List<Runnable> durable = new ArrayList<>(1);
+
+        /** Runs, newest first, if the mutation throws or its records cannot be written. */
+        public void onFailure(Runnable step) {
+            undo.push(step);
+        }
+
+        /** Runs after the records are durable, before a checkpoint can snapshot the change. */
+        public void onDurable(Runnable step) {
+            durable.add(step);
+        }
+
+        private void failed() {
+            while (!undo.isEmpty()) {
+                undo.pop().run();
+            }
+        }
+    }
+
+    private final File file;
+    private final FileChannel channel;
+    private final LinkedBlockingQueue<PendingAppend> queue = new LinkedBlockingQueue<>();
+    private final ReentrantReadWriteLock checkpointLock = new ReentrantReadWriteLock();
+    private final Map<String, Snapshotter> snapshotters = new LinkedHashMap<>();
+    private final AtomicLong recordsSinceCheckpoint = new AtomicLong();
+    private final ScheduledExecutorService checkpointer;
+    private final Thread writer;
+    private final List<Runnable> closeHooks = new ArrayList<>();
+    private volatile boolean closed;
+
+    public static BookingLog getInstance() throws IOException {
+        BookingLog shared = instance;
+        if (shared == null) {
+            synchronized (BookingLog.class) {
+                shared = instance;
+                if (shared == null) {
+                    shared = new BookingLog(new File(LOG_PATH));
+                    BookingLog log = shared;
+                    Runtime.getRuntime().addShutdownHook(new Thread(log::close, "booking-log-shutdown"));
+                    instance = shared;
+                }
+            }
+        }
+        return shared;
+    }
+
+    public BookingLog(File file) throws IOException {
+        this.file = file;
+        file.getAbsoluteFile().getParentFile().mkdirs();
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        truncateTornTail();
+        channel.position(channel.size());
+
+        writer = new Thread(this::writeLoop, "booking-log-writer");
+        writer.setDaemon(true);
+        writer.start();
+
+        checkpointer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "booking-log-checkpoint");
+            thread.setDaemon(true);
+            return thread;
+        });
+        checkpointer.scheduleWithFixedDelay(this::checkpoint, CHECKPOINT_INTERVAL_SECONDS, CHECKPOINT_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /** Registers the writer of one JSON snapshot; a later registration under the same name replaces it. */
+    public synchronized void registerSnapshotter(String name, Snapshotter snapshotter) {
+        snapshotters.put(name, snapshotter);
+    }
+
+    /** Runs after {@link #close()}, when no commit is in flight and none can start. */
+    public synchronized void onClose(Runnable hook) {
+        closeHooks.add(hook);
+    }
+
+    /**
+     * Applies an in-memory change and makes the records it returns durable before
+     * returning. The change and its records are never split by a checkpoint.
+     * Returns false if the mutation returned no records.
+     * <p>
+     * Other threads can see the mutation's immediate steps while its records are being
+     * written. If the write fails, or the mutation itself throws, its undo steps put
+     * memory back before the exception reaches the caller, so nothing survives that a
+     * restart would not also rebuild from the log.
+     */
+    public boolean commit(Mutation mutation) throws IOException {
+        boolean checkpointDue;
+        Outcome outcome = new Outcome();
+        checkpointLock.readLock().lock();
+        try {
+            if (closed) {
+                throw new IOException("Booking log " + file.getPath() + " is closed");
+            }
+            List<MutationRecord> records;
+            try {
+                records = mutation.apply(outcome);
+            } catch (IOException | RuntimeException ex) {
+                outcome.failed();
+                throw ex;
+            }
+            if (records.isEmpty()) {
+                return false;
+            }
+            long started = System.nanoTime();
+            PendingAppend pending = new PendingAppend(records);
+            queue.add(pending);
+            try {
+                // Once queued the records may still be written, so an interrupt must not undo them.
+                Uninterruptibles.getUninterruptibly(pending.done);
+            } catch (ExecutionException ex) {
+                outcome.failed();
+                throw new IOException("Could not write booking log", ex.getCause());
+            }
+            APPEND_LATENCY.record(System.nanoTime() - started);
+            outcome.durable.forEach(Runnable::run);
+            checkpointDue = recordsSinceCheckpoint.addAndGet(records.size()) >= CHECKPOINT_RECORDS;
+        } finally {
+            checkpointLock.readLock().unlock();
+        }
+        if (checkpointDue) {
+            try {
+                checkpointer.execute(this::checkpoint);
+            } catch (RejectedExecutionException ex) {
+                // Closing; close() checkpoints one last time anyway.
+            }
+        }
+        return true;
+    }
+
+    public List<MutationRecord> readAll() throws IOException {
+        List<MutationRecord> records = new ArrayList<>();
+        checkpointLock.readLock().lock();
+        try {
+            scan(records);
+        } finally {
+            checkpointLock.readLock().unlock();
+        }
+        return records;
+    }
+
+    /**
+     * Refuses further commits, waits for those in flight, checkpoints one last time,
+     * runs the close hooks and releases the file and threads. Run by the shutdown hook of
+     * the shared instance; later calls do nothing.
+     */
+    public void close() {
+        checkpointLock.writeLock().lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        } finally {
+            checkpointLock.writeLock().unlock();
+        }
+        checkpointer.shutdown();
+        Uninterruptibles.awaitTerminationUninterruptibly(checkpointer);
+        checkpoint();
+        synchronized (this) {
+            closeHooks.forEach(Runnable::run);
+        }
+        // Every commit has had its append written, so the writer is idle.
+        writer.interrupt();
+        try {
+            channel.close();
+        } catch (IOException ex) {
+            System.err.println("Error closing booking log: " + ex.getMessage());
+        }
+    }
+
+    /** Writes fresh JSON snapshots and empties the log. */
+    public void checkpoint() {
+        checkpointLock.writeLock().lock();
+        try {
+            if (channel.size() == 0) {
+                return;
+            }
+            long started = System.nanoTime();
+            synchronized (this) {
+                for (Map.Entry<String, Snapshotter> entry : snapshotters.entrySet()) {
+                    entry.getValue().writeSnapshot();
+                }
+            }
+            channel.truncate(0);
+            channel.force(true);
+            recordsSinceCheckpoint.set(0);
+            CHECKPOINT_LATENCY.record(System.nanoTime() - started);
+            System.out.println("Checkpointed booking log " + file.getPath());
+        } catch (IOException ex) {
+            System.err.println("Error checkpointing booking log, keeping it: " + ex.getMessage());
+        } finally {
+            checkpointLock.writeLock().unlock();
+        }
+    }
+
+    private void writeLoop() {
+        List<PendingAppend> batch = new ArrayList<>();
+        while (true) {
+            try {
+                batch.add(queue.take());
+                queue.drainTo(batch);
+                write(batch);
+                for (PendingAppend pending : batch) {
+                    pending.done.complete(null);
+                }
+            } catch (InterruptedException ex) {
+                return;
+            } catch (IOException ex) {
+                for (PendingAppend pending : batch) {
+                    pending.done.completeExceptionally(ex);
+                }
+            }
+            batch.clear();
+        }
+    }
+
+    private void write(List<PendingAppend> batch) throws IOException {
+        List<byte[]> payloads = new ArrayList<>();
+        int total = 0;
+        for (PendingAppend pending : batch) {
+            for (MutationRecord record : pending.records) {
+                byte[] payload = record.encode();
+                payloads.add(payload);
+                total += HEADER_BYTES + payload.length;
+            }
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(total);
+        CRC32 crc = new CRC32();
+        for (byte[] payload : payloads) {
+            crc.reset();
+            crc.update(payload);
+            buffer.putInt(payload.length);
+            buffer.putInt((int) crc.getValue());
+            buffer.put(payload);
+        }
+        buffer.flip();
+        long position = channel.position();
+        long started = System.nanoTime();
+        try {
+            append(buffer);
+            FSYNC_LATENCY.record(System.nanoTime() - started);
+            RECORDS_WRITTEN.add(payloads.size());
+            GROUPS_WRITTEN.increment();
+        } catch (IOException ex) {
+            // Drop the partial group so the next append does not follow garbage.
+            channel.truncate(position);
+            channel.position(position);
+            throw ex;
+        }
+    }
+
+    /** Writes one group of framed records at the end of the log and syncs it. */
+    protected void append(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        channel.force(false);
+    }
+
+    private void truncateTornTail() throws IOException {
+        long validEnd = scan(null);
+        if (validEnd < channel.size()) {
+            System.err.println("Booking log " + file.getPath() + " has a torn tail at byte " + validEnd + ", truncating");
+            channel.truncate(validEnd);
+            channel.force(true);
+        }
+    }
+
+    /** Reads records from the start of the log, returning the offset after the last intact one. */
+    private long scan(List<MutationRecord> into) throws IOException {
+        long size = channel.size();
+        long position = 0;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        CRC32 crc = new CRC32();
+        while (position + HEADER_BYTES <= size) {
+            header.clear();
+            channel.read(header, position);
+            header.flip();
+            int length = header.getInt();
+            int checksum = header.getInt();
+            if (length <= 0 || position + HEADER_BYTES + length > size) {
+                break;
+            }
+            ByteBuffer payload = ByteBuffer.allocate(length);
+            while (payload.hasRemaining() && channel.read(payload, position + HEADER_BYTES + payload.position()) > 0) {
+                // keep reading until the record is complete
+            }
+            crc.reset();
+            crc.update(payload.array());
+            if ((int) crc.getValue() != checksum) {
+                break;
+            }
+            if (into != null) {
+                into.add(MutationRecord.decode(payload.array()));
+            }
+            position += HEADER_BYTES + length;
+        }
+        return position;
+    }
+
+    private static final class PendingAppend {
+        private final List<MutationRecord> records;
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        PendingAppend(List<MutationRecord> records) {
+            this.records = records;
+        }
+    }
+}
@@ -0,0 +1,270 @@
+package org.example.persistence;
+
+import org.example.entities.SeatHold;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * One state change in the booking log. Each type only uses the fields it needs;
+ * the rest stay null or zero and are not written.
+ */
+public class MutationRecord {
+
+    public enum Type {
+        USER_CREATED, TICKET_ADDED, TICKET_CANCELLED, SEAT_BOOKED, SEAT_RELEASED, SEAT_HELD, HOLD_ENDED
+    }
+
+    private final Type type;
+    private String userId;
+    private String name;
+    private String hashedPassword;
+    private String ticketId;
+    private String source;
+    private String destination;
+    private String dateOfTravel;
+    private String trainId;
+    private int row;
+    private int seat;
+    private int fromLeg;
+    private int toLeg;
+    private long expiresAt;
+
+    private MutationRecord(Type type) {
+        this.type = type;
+    }
+
+    public static MutationRecord userCreated(String userId, String name, String hashedPassword) {
+        MutationRecord record = new MutationRecord(Type.USER_CREATED);
+        record.userId = userId;
+        record.name = name;
+        record.hashedPassword = hashedPassword;
+        return record;
+    }
+
+    public static MutationRecord ticketAdded(String userId, String ticketId, String source, String destination,
+                                             String dateOfTravel, String trainId, int row, int seat) {
+        MutationRecord record = new MutationRecord(Type.TICKET_ADDED);
+        record.userId = userId;
+        record.ticketId = ticketId;
+        record.source = source;
+        record.destination = destination;
+        record.dateOfTravel = dateOfTravel;
+        record.trainId = trainId;
+        record.row = row;
+        record.seat = seat;
+        return record;
+    }
+
+    public static MutationRecord ticketCancelled(String userId, String ticketId) {
+        MutationRecord record = new MutationRecord(Type.TICKET_CANCELLED);
+        record.userId = userId;
+        record.ticketId = ticketId;
+        return record;
+    }
+
+    public static MutationRecord seatBooked(String trainId, String dateOfTravel, int row, int seat, int fromLeg, int toLeg) {
+        return seat(Type.SEAT_BOOKED, trainId, dateOfTravel, row, seat, fromLeg, toLeg);
+    }
+
+    public static MutationRecord seatReleased(String trainId, String dateOfTravel, int row, int seat, int fromLeg, int toLeg) {
+        return seat(Type.SEAT_RELEASED, trainId, dateOfTravel, row, seat, fromLeg, toLeg);
+    }
+
+    /** Takes the seat like {@link #seatBooked} and opens a hold; the ticket id is the hold's id. */
+    public static MutationRecord seatHeld(SeatHold hold) {
+        MutationRecord record = seat(Type.SEAT_HELD, hold.getTrainId(), hold.getDateOfTravel(), hold.getRow(), hold.getSeat(),
+                hold.getFromLeg(), hold.getToLeg());
+        record.userId = hold.getUserId();
+        record.ticketId = hold.getHoldId();
+        record.source = hold.getSource();
+        record.destination = hold.getDestination();
+        record.expiresAt = hold.getExpiresAt();
+        return record;
+    }
+
+    /** Closes a hold; logged with a seat release when it lapses, with the ticket when confirmed. */
+    public static MutationRecord holdEnded(String userId, String holdId) {
+        MutationRecord record = new MutationRecord(Type.HOLD_ENDED);
+        record.userId = userId;
+        record.ticketId = holdId;
+        return record;
+    }
+
+    private static MutationRecord seat(Type type, String trainId, String dateOfTravel, int row, int seat, int fromLeg, int toLeg) {
+        MutationRecord record = new MutationRecord(type);
+        record.trainId = trainId;
+        record.dateOfTravel = dateOfTravel;
+        record.row = row;
+        record.seat = seat;
+        record.fromLeg = fromLeg;
+        record.toLeg = toLeg;
+        return record;
+    }
+
+    byte[] encode() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(type.ordinal());
+        switch (type) {
+            case USER_CREATED:
+                out.writeUTF(userId);
+                out.writeUTF(name);
+                out.writeUTF(hashedPassword);
+                break;
+            case TICKET_ADDED:
+                out.writeUTF(userId);
+                out.writeUTF(ticketId);
+                out.writeUTF(source);
+                out.writeUTF(destination);
+                out.writeUTF(dateOfTravel);
+                out.writeUTF(trainId);
+                out.writeInt(row);
+                out.writeInt(seat);
+                break;
+            case TICKET_CANCELLED:
+            case HOLD_ENDED:
+                out.writeUTF(userId);
+                out.writeUTF(ticketId);
+                break;
+            case SEAT_BOOKED:
+            case SEAT_RELEASED:
+                out.writeUTF(trainId);
+                out.writeInt(row);
+                out.writeInt(seat);
+                out.writeByte(fromLeg);
+                out.writeByte(toLeg);
+                out.writeUTF(dateOfTravel);
+                break;
+            case SEAT_HELD:
+                out.writeUTF(trainId);
+                out.writeInt(row);
+                out.writeInt(seat);
+                out.writeByte(fromLeg);
+                out.writeByte(toLeg);
+                out.writeUTF(dateOfTravel);
+                out.writeUTF(userId);
+                out.writeUTF(ticketId);
+                out.writeUTF(source);
+                out.writeUTF(destination);
+                out.writeLong(expiresAt);
+                break;
+        }
+        return bytes.toByteArray();
+    }
+
+    static MutationRecord decode(byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        MutationRecord record = new MutationRecord(Type.values()[in.readUnsignedByte()]);
+        switch (record.type) {
+            case USER_CREATED:
+                record.userId = in.readUTF();
+                record.name = in.readUTF();
+                record.hashedPassword = in.readUTF();
+                break;
+            case TICKET_ADDED:
+                record.userId = in.readUTF();
+                record.ticketId = in.readUTF();
+                record.source = in.readUTF();
+                record.destination = in.readUTF();
+                record.dateOfTravel = in.readUTF();
+                record.trainId = in.readUTF();
+                // Tickets logged before seats were recorded end here.
+                record.row = in.available() > 0 ? in.readInt() : -1;
+                record.seat = in.available() > 0 ? in.readInt() : -1;
+                break;
+            case TICKET_CANCELLED:
+            case HOLD_ENDED:
+                record.userId = in.readUTF();
+                record.ticketId = in.readUTF();
+                break;
+            case SEAT_BOOKED:
+            case SEAT_RELEASED:
+                record.trainId = in.readUTF();
+                record.row = in.readInt();
+                record.seat = in.readInt();
+                record.fromLeg = in.readUnsignedByte();
+                record.toLeg = in.readUnsignedByte();
+                // Logs written before inventory was kept per date end here.
+                record.dateOfTravel = in.available() > 0 ? in.readUTF() : null;
+                break;
+            case SEAT_HELD:
+                record.trainId = in.readUTF();
+                record.row = in.readInt();
+                record.seat = in.readInt();
+                record.fromLeg = in.readUnsignedByte();
+                record.toLeg = in.readUnsignedByte();
+                record.dateOfTravel = in.readUTF();
+                record.userId = in.readUTF();
+                record.ticketId = in.readUTF();
+                record.source = in.readUTF();
+                record.destination = in.readUTF();
+                record.expiresAt = in.readLong();
+                break;
+        }
+        return record;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getHashedPassword() {
+        return hashedPassword;
+    }
+
+    public String getTicketId() {
+        return ticketId;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public String getDestination() {
+        return destination;
+    }
+
+    public String getDateOfTravel() {
+        return dateOfTravel;
+    }
+
+    public String getTrainId() {
+        return trainId;
+    }
+
+    public int getRow() {
+        return row;
+    }
+
+    public int getSeat() {
+        return seat;
+    }
+
+    public int getFromLeg() {
+        return fromLeg;
+    }
+
+    public int getToLeg() {
+        return toLeg;
+    }
+
+    public long getExpiresAt() {
+        return expiresAt;
+    }
+
+    public SeatHold toSeatHold() {
+        return new SeatHold(ticketId, userId, trainId, dateOfTravel, source, destination, row, seat, fromLeg, toLeg, expiresAt);
+    }
+}
@@ -0,0 +1,620 @@
+package org.example.persistence;
+
+import com.google.common.util.concurrent.Striped;
+import org.example.entities.SeatBits;
+import org.example.entities.SeatMap;
+import org.example.entities.Train;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Function;
+import java.util.zip.CRC32;
+
+/**
+ * Seat inventory per train and travel date.
+ * <p>
+ * Each (train, date) owns one fixed-size region in one of a few shard files, picked by
+ * hash. The files are memory-mapped and a {@link SeatMap} works directly on the region's
+ * words, so a booking is a compare-and-set of a few bytes in place and the data set is
+ * bounded by disk rather than heap. A region starts as a copy of the train's seat map
+ * from trains.json.
+ * <p>
+ * Region layout: {@code [int magic][int headerCrc][short keyLength][key]} then the row
+ * count, leg count, word count, generation, eight claim-intent slots and the row
+ * lengths, padded to {@value #HEADER_BYTES} bytes, followed by the seat words. A region
+ * is only live once its magic is written, after the rest of the header has been synced;
+ * on open, regions with a bad header checksum are treated as torn and reused. Claims
+ * that were cut off half way by a crash are found through their intent slot and rolled
+ * back; a leg taken in the instant before its progress was recorded stays taken.
+ * <p>
+ * A claim is written here before its booking log record is durable, so a crash in
+ * between can leave a seat taken that no ticket accounts for. The store drops a
+ * {@value #CLEAN_MARKER} file when it is closed with no commit in flight; when the file
+ * is missing on open, {@link #reconcile} frees whatever the logged claims do not cover.
+ * <p>
+ * When a train's stations or rows change, the next lookup moves its bookings onto a
+ * seat map of the new layout. The replaced region is marked dead but its slot is not
+ * reused until the store is reopened, since a booking may still hold the old map.
+ * <p>
+ * Without a directory the store keeps seat maps on the heap only.
+ */
+public class SeatInventoryStore {
+    private static final String INVENTORY_DIR = "data/inventory";
+    private static final String CLEAN_MARKER = "closed-cleanly";
+    static final int REGION_MAGIC = 0x53454154;
+    static final int HEADER_BYTES = 1024;
+    private static final int CRC_OFFSET = 4;
+    private static final int KEY_OFFSET = 8;
+    private static final int MAX_KEY_BYTES = 118;
+    private static final int ROW_COUNT_OFFSET = 128;
+    private static final int LEG_COUNT_OFFSET = 132;
+    private static final int WORD_COUNT_OFFSET = 136;
+    private static final int GENERATION_OFFSET = 140;
+    private static final int INTENT_OFFSET = 144;
+    private static final int INTENT_SLOTS = 8;
+    private static final int ROW_LENGTHS_OFFSET = INTENT_OFFSET + INTENT_SLOTS * Long.BYTES;
+    static final int MAX_ROWS = (HEADER_BYTES - ROW_LENGTHS_OFFSET) / Integer.BYTES;
+    private static final int REGIONS_PER_CHUNK = 64;
+    private static final int DEFAULT_SHARDS = 16;
+    private static final int DEFAULT_REGION_BYTES = 16 * 1024;
+    private static final int LOCK_STRIPES = 64;
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private static volatile SeatInventoryStore instance;
+
+    private final File directory;
+    private final int regionBytes;
+    private final Shard[] shards;
+    private final Map<String, Region> regions = new ConcurrentHashMap<>();
+    private final Map<String, SeatMap> seatMaps = new ConcurrentHashMap<>();
+    private final Striped<Lock> layoutLocks = Striped.lock(LOCK_STRIPES);
+    private volatile boolean needsReconcile;
+
+    public static SeatInventoryStore getInstance() throws IOException {
+        SeatInventoryStore shared = instance;
+        if (shared == null) {
+            synchronized (SeatInventoryStore.class) {
+                shared = instance;
+                if (shared == null) {
+                    shared = new SeatInventoryStore(new File(INVENTORY_DIR), DEFAULT_SHARDS, DEFAULT_REGION_BYTES);
+                    instance = shared;
+                }
+            }
+        }
+        return shared;
+    }
+
+    /** A store that keeps every train-date on the heap and writes nothing. */
+    public static SeatInventoryStore inMemory() {
+        return new SeatInventoryStore();
+    }
+
+    private SeatInventoryStore() {
+        this.directory = null;
+        this.regionBytes = 0;
+        this.shards = new Shard[0];
+    }
+
+    public SeatInventoryStore(File directory, int shardCount, int regionBytes) throws IOException {
+        if (regionBytes <= HEADER_BYTES || regionBytes % Long.BYTES != 0) {
+            throw new IllegalArgumentException("Region size must be a multiple of 8 above " + HEADER_BYTES + ", got " + regionBytes);
+        }
+        this.directory = directory;
+        this.regionBytes = regionBytes;
+        this.shards = new Shard[shardCount];
+        directory.mkdirs();
+        // Gone from here on, so a crash before the next clean close is noticed.
+        boolean closedCleanly = new File(directory, CLEAN_MARKER).delete();
+        int live = 0;
+        int torn = 0;
+        int rolledBack = 0;
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard(new File(directory, String.format("shard-%02d.dat", i)));
+            for (int index = 0; index < shards[i].capacity(); index++) {
+                ByteBuffer region = shards[i].region(index);
+                int magic = region.getInt(0);
+                if (magic == REGION_MAGIC && region.getInt(CRC_OFFSET) == headerCrc(region)) {
+                    Region loaded = new Region(shards[i], index, region);
+                    Region other = regions.get(loaded.key);
+                    if (other != null && other.generation > loaded.generation) {
+                        loaded.release();
+                        continue;
+                    }
+                    if (other != null) {
+                        // A crash while a region was being replaced by a re-laid-out copy.
+                        other.release();
+                        live--;
+                    }
+                    regions.put(loaded.key, loaded);
+                    rolledBack += loaded.rollBackTornClaims();
+                    live++;
+                } else {
+                    if (magic != 0) {
+                        region.putInt(0, 0);
+                        torn++;
+                    }
+                    shards[i].free.add(index);
+                }
+            }
+        }
+        needsReconcile = live > 0 && !closedCleanly;
+        System.out.println("Opened seat inventory in " + directory.getPath() + ": " + live + " train-dates"
+                + (torn > 0 ? ", discarded " + torn + " torn regions" : "")
+                + (rolledBack > 0 ? ", rolled back " + rolledBack + " interrupted claims" : "")
+                + (needsReconcile ? ", not closed cleanly" : ""));
+    }
+
+    /**
+     * The seats of {@code train} on {@code dateOfTravel}, created from the train's seat map
+     * on first use and re-laid out, bookings included, when the train's layout has changed.
+     */
+    public SeatMap seatsFor(Train train, String dateOfTravel) {
+        SeatMap template = train.getSeats();
+        if (template == null) {
+            return null;
+        }
+        String key = key(train.getTrainId(), dateOfTravel);
+        SeatMap cached = seatMaps.get(key);
+        if (cached != null && cached.sameLayout(template)) {
+            return cached;
+        }
+        // Regions are created and synced outside the map so no other key waits on the disk.
+        Lock lock = layoutLocks.get(key);
+        lock.lock();
+        try {
+            cached = seatMaps.get(key);
+            if (cached != null && cached.sameLayout(template)) {
+                return cached;
+            }
+            SeatMap seats = directory == null ? relaidOnHeap(cached, template) : mapRegion(key, template);
+            seatMaps.put(key, seats);
+            return seats;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Flushes every mapped shard to disk; registered as a booking log snapshotter. */
+    public void force() {
+        for (Shard shard : shards) {
+            shard.force();
+        }
+    }
+
+    /** Flushes and closes the shard files; seat maps already handed out stay readable but are no longer synced. */
+    public void close() {
+        for (Shard shard : shards) {
+            shard.close();
+        }
+    }
+
+    /** Flushes the shards and records that no claim is missing from the log; call once commits have stopped. */
+    public void markClean() {
+        if (directory == null) {
+            return;
+        }
+        force();
+        try {
+            new File(directory, CLEAN_MARKER).createNewFile();
+        } catch (IOException ex) {
+            System.err.println("Error marking seat inventory clean: " + ex.getMessage());
+        }
+    }
+
+    /** True when the store was not closed cleanly and {@link #reconcile} has not run yet. */
+    public boolean needsReconcile() {
+        return needsReconcile;
+    }
+
+    /**
+     * Frees every leg that neither the train's own seat map nor one of {@code claims}
+     * accounts for. Claims are {@code SEAT_BOOKED}-style records for every ticket and
+     * hold still open; a claim with row -1 stands for a ticket booked before tickets
+     * recorded their seat, and its train-date is left alone, as are regions whose train
+     * is gone or whose layout has changed. Returns the number of seats touched; does
+     * nothing unless {@link #needsReconcile}.
+     */
+    public int reconcile(Function<String, Optional<Train>> trains, Collection<MutationRecord> claims) {
+        if (!needsReconcile) {
+            return 0;
+        }
+        Map<String, SeatMap> expected = new HashMap<>();
+        regions.forEach((key, region) -> {
+            SeatMap template = trains.apply(key.substring(0, key.lastIndexOf('|'))).map(Train::getSeats).orElse(null);
+            if (template != null && region.fits(template)) {
+                expected.put(key, copyOnHeap(template));
+            }
+        });
+        Set<String> unknownSeats = new HashSet<>();
+        for (MutationRecord claim : claims) {
+            String key = key(claim.getTrainId(), claim.getDateOfTravel());
+            if (claim.getRow() < 0) {
+                unknownSeats.add(key);
+            }
+            SeatMap seats = expected.get(key);
+            if (seats == null || !seats.isValidSeat(claim.getRow(), claim.getSeat())) {
+                continue;
+            }
+            if (claim.getToLeg() == 0) {
+                seats.book(claim.getRow(), claim.getSeat());
+            } else if (claim.getFromLeg() >= 0 && claim.getToLeg() <= seats.legCount() && claim.getFromLeg() < claim.getToLeg()) {
+                seats.book(claim.getRow(), claim.getSeat(), claim.getFromLeg(), claim.getToLeg());
+            }
+        }
+        expected.keySet().removeAll(unknownSeats);
+        int freed = 0;
+        for (Map.Entry<String, SeatMap> entry : expected.entrySet()) {
+            SeatMap live = regions.get(entry.getKey()).seatMap();
+            SeatMap wanted = entry.getValue();
+            for (int row = 0; row < live.rowCount(); row++) {
+                for (int seat = 0; seat < live.seatsInRow(row); seat++) {
+                    if (freeUnclaimed(live, row, seat, wanted.encoded(row, seat))) {
+                        freed++;
+                    }
+                }
+            }
+        }
+        needsReconcile = false;
+        System.out.println("Reconciled seat inventory with the booking log: freed " + freed + " seats with no booking");
+        return freed;
+    }
+
+    /** Clears the legs of the seat that {@code allowed}, in {@link SeatMap#encoded} form, does not cover. */
+    private static boolean freeUnclaimed(SeatMap live, int row, int seat, long allowed) {
+        long held = live.encoded(row, seat);
+        if (held == 0 || held == allowed || allowed == 1) {
+            return false;
+        }
+        long allowedLegs = allowed >>> 1;
+        if (held == 1) {
+            live.release(row, seat);
+            for (int leg = 0; leg < live.legCount(); leg++) {
+                if ((allowedLegs & 1L << leg) != 0) {
+                    live.book(row, seat, leg, leg + 1);
+                }
+            }
+            return true;
+        }
+        long extra = (held >>> 1) & ~allowedLegs;
+        for (int leg = 0; extra >>> leg != 0; leg++) {
+            if ((extra & 1L << leg) != 0) {
+                live.release(row, seat, leg, leg + 1);
+            }
+        }
+        return extra != 0;
+    }
+
+    public int trainDateCount() {
+        return directory == null ? seatMaps.size() : regions.size();
+    }
+
+    /** Identifies one train on one travel date; equal for any spelling of the same day. */
+    public static String key(String trainId, String dateOfTravel) {
+        return trainId.toLowerCase(Locale.ROOT) + '|' + dateKey(dateOfTravel);
+    }
+
+    /**
+     * True for an ISO calendar day, alone or followed by a time as in "2023-12-08T18:30:00Z".
+     * Bookings accept no other form, so every spelling of a day shares one seat map.
+     */
+    public static boolean isTravelDate(String dateOfTravel) {
+        return isoDay(dateOfTravel) != null;
+    }
+
+    /** Reduces "2023-12-08T18:30:00Z" and "2023-12-08" to the same calendar day. */
+    static String dateKey(String dateOfTravel) {
+        String day = isoDay(dateOfTravel);
+        // Only records written before dates were validated can miss; key them on the text as entered.
+        return day != null ? day : dateOfTravel == null ? "" : dateOfTravel.trim();
+    }
+
+    private static String isoDay(String dateOfTravel) {
+        String trimmed = dateOfTravel == null ? "" : dateOfTravel.trim();
+        if (trimmed.length() < 10 || trimmed.length() > 10 && trimmed.charAt(10) != 'T') {
+            return null;
+        }
+        try {
+            return LocalDate.parse(trimmed.substring(0, 10)).toString();
+        } catch (DateTimeParseException ex) {
+            return null;
+        }
+    }
+
+    private static SeatMap copyOnHeap(SeatMap template) {
+        long[][] raw = new long[template.rowCount()][];
+        for (int row = 0; row < raw.length; row++) {
+            raw[row] = template.rawRow(row);
+        }
+        return SeatMap.fromRaw(template.rowLengths(), template.legCount(), raw);
+    }
+
+    private SeatMap relaidOnHeap(SeatMap previous, SeatMap template) {
+        SeatMap current = copyOnHeap(template);
+        if (previous != null) {
+            carryBookings(previous, current);
+        }
+        return current;
+    }
+
+    private SeatMap mapRegion(String key, SeatMap template) {
+        Region existing = regions.get(key);
+        if (existing != null && existing.fits(template)) {
+            return existing.seatMap();
+        }
+        Region created = allocate(key, template, existing == null ? 0 : existing.generation + 1);
+        if (existing != null) {
+            // The train's layout changed since the region was written: carry the bookings over.
+            carryBookings(existing.seatMap(), created.seatMap());
+        }
+        created.commit();
+        if (existing != null) {
+            if (seatMaps.containsKey(key)) {
+                existing.retire();
+            } else {
+                existing.release();
+            }
+        }
+        regions.put(key, created);
+        return created.seatMap();
+    }
+
+    /** Copies each seat's legs that still exist from {@code previous} into {@code current}. */
+    private static void carryBookings(SeatMap previous, SeatMap current) {
+        for (int row = 0; row < Math.min(previous.rowCount(), current.rowCount()); row++) {
+            for (int seat = 0; seat < Math.min(previous.seatsInRow(row), current.seatsInRow(row)); seat++) {
+                long encoded = previous.encoded(row, seat);
+                if ((encoded & 1) == 0) {
+                    encoded &= (1L << (current.legCount() + 1)) - 1;
+                }
+                current.setEncoded(row, seat, encoded);
+            }
+        }
+    }
+
+    private Region allocate(String key, SeatMap template, int generation) {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        int[] rowLengths = template.rowLengths();
+        int words = SeatMap.wordsRequired(rowLengths, template.legCount());
+        if (keyBytes.length > MAX_KEY_BYTES || rowLengths.length > MAX_ROWS
+                || HEADER_BYTES + (long) words * Long.BYTES > regionBytes) {
+            throw new IllegalArgumentException("Train-date " + key + " with " + rowLengths.length + " rows and "
+                    + words + " words does not fit a " + regionBytes + "-byte region");
+        }
+        Shard shard = shards[Math.floorMod(key.hashCode(), shards.length)];
+        int index = shard.allocate();
+        ByteBuffer region = shard.region(index);
+        region.put(0, new byte[regionBytes]);
+        region.putShort(KEY_OFFSET, (short) keyBytes.length);
+        region.put(KEY_OFFSET + 2, keyBytes);
+        region.putInt(ROW_COUNT_OFFSET, rowLengths.length);
+        region.putInt(LEG_COUNT_OFFSET, template.legCount());
+        region.putInt(WORD_COUNT_OFFSET, words);
+        region.putInt(GENERATION_OFFSET, generation);
+        for (int row = 0; row < rowLengths.length; row++) {
+            region.putInt(ROW_LENGTHS_OFFSET + row * Integer.BYTES, rowLengths[row]);
+        }
+        Region created = new Region(shard, index, region);
+        long[][] raw = new long[rowLengths.length][];
+        for (int row = 0; row < raw.length; row++) {
+            raw[row] = template.rawRow(row);
+        }
+        created.seatMap().copyRaw(raw);
+        return created;
+    }
+
+    private static int headerCrc(ByteBuffer region) {
+        CRC32 crc = new CRC32();
+        crc.update(region.duplicate().position(KEY_OFFSET).limit(INTENT_OFFSET));
+        int rows = Math.max(0, Math.min(region.getInt(ROW_COUNT_OFFSET), MAX_ROWS));
+        crc.update(region.duplicate().position(ROW_LENGTHS_OFFSET).limit(ROW_LENGTHS_OFFSET + rows * Integer.BYTES));
+        return (int) crc.getValue();
+    }
+
+    /** One train-date's region and the seat map over it. */
+    private final class Region implements SeatBits {
+        private final Shard shard;
+        private final int index;
+        private final ByteBuffer buffer;
+        private final String key;
+        private final int[] rowLengths;
+        private final int legCount;
+        private final int words;
+        private final int generation;
+        private SeatMap seatMap;
+
+        Region(Shard shard, int index, ByteBuffer buffer) {
+            this.shard = shard;
+            this.index = index;
+            this.buffer = buffer;
+            byte[] keyBytes = new byte[buffer.getShort(KEY_OFFSET)];
+            buffer.get(KEY_OFFSET + 2, keyBytes);
+            this.key = new String(keyBytes, StandardCharsets.UTF_8);
+            this.rowLengths = new int[buffer.getInt(ROW_COUNT_OFFSET)];
+            for (int row = 0; row < rowLengths.length; row++) {
+                rowLengths[row] = buffer.getInt(ROW_LENGTHS_OFFSET + row * Integer.BYTES);
+            }
+            this.legCount = buffer.getInt(LEG_COUNT_OFFSET);
+            this.words = buffer.getInt(WORD_COUNT_OFFSET);
+            this.generation = buffer.getInt(GENERATION_OFFSET);
+        }
+
+        synchronized SeatMap seatMap() {
+            if (seatMap == null) {
+                seatMap = new SeatMap(rowLengths, legCount, this);
+            }
+            return seatMap;
+        }
+
+        boolean fits(SeatMap template) {
+            return legCount == template.legCount() && Arrays.equals(rowLengths, template.rowLengths());
+        }
+
+        /** Syncs the header and words, then marks the region live. */
+        void commit() {
+            buffer.putInt(CRC_OFFSET, headerCrc(buffer));
+            shard.force();
+            buffer.putInt(0, REGION_MAGIC);
+            shard.force();
+        }
+
+        void release() {
+            retire();
+            shard.release(index);
+        }
+
+        /** Marks the region dead but keeps its slot out of use until the store is reopened. */
+        void retire() {
+            buffer.putInt(0, 0);
+        }
+
+        int rollBackTornClaims() {
+            int rolledBack = 0;
+            for (int slot = 0; slot < INTENT_SLOTS; slot++) {
+                long intent = (long) LONGS.getVolatile(buffer, INTENT_OFFSET + slot * Long.BYTES);
+                if (intent != 0) {
+                    int row = (int) (intent >>> 40) & 0xFFFF;
+                    int seat = (int) (intent >>> 24) & 0xFFFF;
+                    int fromLeg = (int) (intent >>> 16) & 0xFF;
+                    int heldUntil = (int) intent & 0xFF;
+                    seatMap().release(row, seat, fromLeg, heldUntil);
+                    LONGS.setVolatile(buffer, INTENT_OFFSET + slot * Long.BYTES, 0L);
+                    rolledBack++;
+                }
+            }
+            return rolledBack;
+        }
+
+        @Override
+        public int length() {
+            return words;
+        }
+
+        @Override
+        public long get(int index) {
+            return (long) LONGS.getVolatile(buffer, HEADER_BYTES + index * Long.BYTES);
+        }
+
+        @Override
+        public void set(int index, long value) {
+            LONGS.setVolatile(buffer, HEADER_BYTES + index * Long.BYTES, value);
+        }
+
+        @Override
+        public boolean compareAndSet(int index, long expected, long updated) {
+            return LONGS.compareAndSet(buffer, HEADER_BYTES + index * Long.BYTES, expected, updated);
+        }
+
+        // Intent: valid bit, row, seat, first leg, last leg and the leg the claim holds up to.
+        @Override
+        public int beginClaim(int row, int seat, int fromLeg, int toLeg) {
+            long intent = 1L << 63 | (long) (row & 0xFFFF) << 40 | (long) (seat & 0xFFFF) << 24
+                    | (long) fromLeg << 16 | (long) toLeg << 8 | fromLeg;
+            while (true) {
+                for (int slot = 0; slot < INTENT_SLOTS; slot++) {
+                    if (LONGS.compareAndSet(buffer, INTENT_OFFSET + slot * Long.BYTES, 0L, intent)) {
+                        return slot;
+                    }
+                }
+                Thread.onSpinWait();
+            }
+        }
+
+        @Override
+        public void claimed(int token, int leg) {
+            int offset = INTENT_OFFSET + token * Long.BYTES;
+            long intent = (long) LONGS.getVolatile(buffer, offset);
+            LONGS.setVolatile(buffer, offset, (intent & ~0xFFL) | (leg + 1));
+        }
+
+        @Override
+        public void endClaim(int token) {
+            LONGS.setVolatile(buffer, INTENT_OFFSET + token * Long.BYTES, 0L);
+        }
+    }
+
+    /** One shard file, mapped in chunks of {@value #REGIONS_PER_CHUNK} regions as it grows. */
+    private final class Shard {
+        private final FileChannel channel;
+        private final List<MappedByteBuffer> chunks = new ArrayList<>();
+        private final Deque<Integer> free = new ArrayDeque<>();
+
+        Shard(File file) throws IOException {
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            long chunkBytes = (long) regionBytes * REGIONS_PER_CHUNK;
+            long existing = (channel.size() + chunkBytes - 1) / chunkBytes;
+            for (long i = 0; i < existing; i++) {
+                mapChunk();
+            }
+        }
+
+        int capacity() {
+            return chunks.size() * REGIONS_PER_CHUNK;
+        }
+
+        synchronized ByteBuffer region(int index) {
+            MappedByteBuffer chunk = chunks.get(index / REGIONS_PER_CHUNK);
+            return chunk.slice((index % REGIONS_PER_CHUNK) * regionBytes, regionBytes).order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        synchronized int allocate() {
+            if (free.isEmpty()) {
+                int first = capacity();
+                try {
+                    mapChunk();
+                } catch (IOException ex) {
+                    throw new IllegalStateException("Cannot grow seat inventory shard: " + ex.getMessage(), ex);
+                }
+                for (int index = first; index < capacity(); index++) {
+                    free.add(index);
+                }
+            }
+            return free.poll();
+        }
+
+        synchronized void release(int index) {
+            free.add(index);
+        }
+
+        synchronized void force() {
+            chunks.forEach(MappedByteBuffer::force);
+        }
+
+        synchronized void close() {
+            force();
+            try {
+                channel.close();
+            } catch (IOException ex) {
+                System.err.println("Error closing seat inventory shard: " + ex.getMessage());
+            }
+        }
+
+        private void mapChunk() throws IOException {
+            long chunkBytes = (long) regionBytes * REGIONS_PER_CHUNK;
+            chunks.add(channel.map(FileChannel.MapMode.READ_WRITE, chunks.size() * chunkBytes, chunkBytes));
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package org.example.persistence;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.entities.Train;
+import org.example.entities.User;
+import org.example.util.JsonArrayLoader;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Converts between the JSON data files and {@link BinarySnapshot} files.
+ * <pre>
+ *   SnapshotTool import trains data/trains.json data/trains.bin
+ *   SnapshotTool export users data/users.bin data/users.json
+ * </pre>
+ * Run it with {@code ./gradlew snapshotTool -PsnapshotArgs="import users data/users.json data/users.bin"}.
+ */
+public class SnapshotTool {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 4 || !(args[0].equals("import") || args[0].equals("export"))
+                || !(args[1].equals("trains") || args[1].equals("users"))) {
+            System.err.println("Usage: SnapshotTool import|export trains|users <from> <to>");
+            System.exit(2);
+        }
+        boolean trains = args[1].equals("trains");
+        File from = new File(args[2]);
+        File to = new File(args[3]);
+        ObjectMapper objectMapper = new ObjectMapper();
+        if (args[0].equals("import")) {
+            JsonArrayLoader loader = new JsonArrayLoader(objectMapper);
+            if (trains) {
+                List<Train> records = new ArrayList<>();
+                loader.load(from, "trains", parser -> objectMapper.readValue(parser, Train.class), records::add);
+                BinarySnapshot.writeTrains(to, records);
+            } else {
+                List<User> records = new ArrayList<>();
+                loader.load(from, "users", parser -> objectMapper.readValue(parser, User.class), records::add);
+                BinarySnapshot.writeUsers(to, records);
+            }
+        } else if (trains) {
+            objectMapper.writeValue(to, BinarySnapshot.readTrains(from));
+        } else {
+            List<User> records = new ArrayList<>();
+            BinarySnapshot.readUsers(from, records::add);
+            objectMapper.writeValue(to, records);
+        }
+    }
+}
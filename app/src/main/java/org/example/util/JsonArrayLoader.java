@@ -0,0 +1,145 @@
+package org.example.util;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * Streams a top-level JSON array one element at a time, so loading a large
+ * users.json or trains.json never holds more than a few records besides the
+ * indexes they are fed into.
+ * <p>
+ * With more than one thread the elements are copied into token buffers on the
+ * reading thread and decoded in batches on a pool; decoded records still reach the
+ * sink in file order, on the calling thread. The default thread count comes from
+ * the {@code json.load.threads} system property.
+ */
+public class JsonArrayLoader {
+    private static final int BATCH_SIZE = 512;
+
+    /** Turns the element at the parser's next token into a record. */
+    public interface Decoder<T> {
+        T decode(JsonParser parser) throws IOException;
+    }
+
+    private final ObjectMapper objectMapper;
+    private final int threads;
+
+    public JsonArrayLoader(ObjectMapper objectMapper) {
+        this(objectMapper, Integer.getInteger("json.load.threads", 1));
+    }
+
+    public JsonArrayLoader(ObjectMapper objectMapper, int threads) {
+        this.objectMapper = objectMapper;
+        this.threads = Math.max(1, threads);
+    }
+
+    /** Feeds every element of the array in {@code file} to {@code sink} and returns the record count. */
+    public <T> int load(File file, String label, Decoder<T> decoder, Consumer<T> sink) throws IOException {
+        long started = System.nanoTime();
+        int records;
+        try (JsonParser parser = objectMapper.getFactory().createParser(file)) {
+            JsonToken first = parser.nextToken();
+            if (first == null) {
+                records = 0;
+            } else if (first != JsonToken.START_ARRAY) {
+                throw new IOException("Expected a JSON array in " + file.getPath() + " but found " + first);
+            } else {
+                records = threads == 1 ? loadSequential(parser, decoder, sink) : loadParallel(parser, decoder, sink);
+            }
+        }
+        logMetrics(label, records, file.length(), System.nanoTime() - started);
+        return records;
+    }
+
+    private <T> int loadSequential(JsonParser parser, Decoder<T> decoder, Consumer<T> sink) throws IOException {
+        int records = 0;
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            sink.accept(decoder.decode(parser));
+            records++;
+        }
+        return records;
+    }
+
+    private <T> int loadParallel(JsonParser parser, Decoder<T> decoder, Consumer<T> sink) throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "json-load");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Deque<Future<List<T>>> pending = new ArrayDeque<>();
+        int records = 0;
+        try {
+            List<TokenBuffer> batch = new ArrayList<>(BATCH_SIZE);
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                TokenBuffer buffer = new TokenBuffer(parser);
+                buffer.copyCurrentStructure(parser);
+                batch.add(buffer);
+                records++;
+                if (batch.size() == BATCH_SIZE) {
+                    pending.add(submit(executor, batch, decoder));
+                    batch = new ArrayList<>(BATCH_SIZE);
+                    if (pending.size() > threads * 2) {
+                        drain(pending.poll(), sink);
+                    }
+                }
+            }
+            if (!batch.isEmpty()) {
+                pending.add(submit(executor, batch, decoder));
+            }
+            while (!pending.isEmpty()) {
+                drain(pending.poll(), sink);
+            }
+            return records;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private <T> Future<List<T>> submit(ExecutorService executor, List<TokenBuffer> batch, Decoder<T> decoder) {
+        return executor.submit(() -> {
+            List<T> decoded = new ArrayList<>(batch.size());
+            for (TokenBuffer buffer : batch) {
+                try (JsonParser element = buffer.asParser(objectMapper)) {
+                    element.nextToken();
+                    decoded.add(decoder.decode(element));
+                }
+            }
+            return decoded;
+        });
+    }
+
+    private static <T> void drain(Future<List<T>> batch, Consumer<T> sink) throws IOException {
+        try {
+            batch.get().forEach(sink);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while loading JSON", ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof IOException) {
+                throw (IOException) ex.getCause();
+            }
+            throw new IllegalStateException(ex.getCause());
+        }
+    }
+
+    private void logMetrics(String label, int records, long bytes, long nanos) {
+        double seconds = Math.max(nanos, 1) / 1e9;
+        System.out.printf("Loaded %d %s in %d ms (%.0f records/s, %.1f MB/s, %d thread%s)%n",
+                records, label, nanos / 1_000_000, records / seconds, bytes / seconds / (1024 * 1024),
+                threads, threads == 1 ? "" : "s");
+    }
+}
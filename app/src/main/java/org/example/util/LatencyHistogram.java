@@ -0,0 +1,91 @@
+package org.example.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram with log-linear nanosecond buckets, in the style of
+ * HdrHistogram: every power-of-two range is split into {@value #SUB_BUCKETS} equal
+ * buckets, so a percentile is within about 3% of the true value from nanoseconds to
+ * hours. Recording touches a fixed array and never allocates, so it is safe on hot
+ * paths. Percentiles are reported as the upper bound of the bucket they fall in.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+    public void record(long nanos) {
+        long value = Math.max(1, nanos);
+        counts.incrementAndGet(bucketOf(value));
+        totalNanos.add(value);
+        maxNanos.accumulate(value);
+    }
+
+    /** Values below {@value #SUB_BUCKETS} get a bucket each; above, 32 per power of two. */
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+    }
+
+    /** Largest value that falls in the bucket. */
+    static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long mantissa = bucket % SUB_BUCKETS + SUB_BUCKETS;
+        long next = (mantissa + 1) << shift;
+        return next <= 0 ? Long.MAX_VALUE : next - 1;
+    }
+
+    public long count() {
+        long count = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            count += counts.get(bucket);
+        }
+        return count;
+    }
+
+    public long percentileNanos(double percentile) {
+        long count = count();
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(count * percentile / 100.0));
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            seen += counts.get(bucket);
+            if (seen >= rank) {
+                return Math.min(upperBound(bucket), maxNanos.get());
+            }
+        }
+        return maxNanos.get();
+    }
+
+    public long meanNanos() {
+        long count = count();
+        return count == 0 ? 0 : totalNanos.sum() / count;
+    }
+
+    public long maxNanos() {
+        return maxNanos.get();
+    }
+
+    public String summary() {
+        return String.format("count=%d mean=%dus p50=%dus p99=%dus max=%dus", count(),
+                TimeUnit.NANOSECONDS.toMicros(meanNanos()),
+                TimeUnit.NANOSECONDS.toMicros(percentileNanos(50)),
+                TimeUnit.NANOSECONDS.toMicros(percentileNanos(99)),
+                TimeUnit.NANOSECONDS.toMicros(maxNanos()));
+    }
+}
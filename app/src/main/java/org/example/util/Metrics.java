@@ -0,0 +1,126 @@
+package org.example.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Process-wide registry of named counters, latency histograms and gauges.
+ * <p>
+ * Instruments are looked up once, typically into a {@code static final} field, and then
+ * updated directly: a counter is a {@link LongAdder} and a timer a {@link LatencyHistogram},
+ * so recording on a hot path is a few atomic adds with no allocation or map lookup.
+ * Names are dotted, operation first and phase second, e.g. {@code booking.seat_cas}.
+ * <p>
+ * {@link #dump()} renders everything as a table and {@link #writeSnapshot} as JSON;
+ * {@link #startSnapshots} rewrites a snapshot file every {@code metrics.snapshot.seconds}
+ * (60 by default) for tools outside the process.
+ */
+public final class Metrics {
+    private static final long SNAPSHOT_SECONDS = Long.getLong("metrics.snapshot.seconds", 60);
+    private static final Map<String, LongAdder> COUNTERS = new ConcurrentHashMap<>();
+    private static final Map<String, LatencyHistogram> TIMERS = new ConcurrentHashMap<>();
+    private static final Map<String, LongSupplier> GAUGES = new ConcurrentHashMap<>();
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+    private static ScheduledExecutorService snapshotter;
+
+    private Metrics() {}
+
+    public static LongAdder counter(String name) {
+        return COUNTERS.computeIfAbsent(name, key -> new LongAdder());
+    }
+
+    public static LatencyHistogram timer(String name) {
+        return TIMERS.computeIfAbsent(name, key -> new LatencyHistogram());
+    }
+
+    /** Reads the value on each dump; a later registration under the same name replaces it. */
+    public static void gauge(String name, LongSupplier value) {
+        GAUGES.put(name, value);
+    }
+
+    /** Counters, gauges and timer percentiles in microseconds, keyed by name. */
+    public static Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("timestamp", System.currentTimeMillis());
+        Map<String, Long> counters = new TreeMap<>();
+        COUNTERS.forEach((name, counter) -> counters.put(name, counter.sum()));
+        snapshot.put("counters", counters);
+        Map<String, Long> gauges = new TreeMap<>();
+        GAUGES.forEach((name, gauge) -> gauges.put(name, gauge.getAsLong()));
+        snapshot.put("gauges", gauges);
+        Map<String, Map<String, Long>> timers = new TreeMap<>();
+        TIMERS.forEach((name, histogram) -> {
+            Map<String, Long> timer = new LinkedHashMap<>();
+            timer.put("count", histogram.count());
+            timer.put("mean_us", micros(histogram.meanNanos()));
+            timer.put("p50_us", micros(histogram.percentileNanos(50)));
+            timer.put("p90_us", micros(histogram.percentileNanos(90)));
+            timer.put("p99_us", micros(histogram.percentileNanos(99)));
+            timer.put("p999_us", micros(histogram.percentileNanos(99.9)));
+            timer.put("max_us", micros(histogram.maxNanos()));
+            timers.put(name, timer);
+        });
+        snapshot.put("timers", timers);
+        return snapshot;
+    }
+
+    public static String dump() {
+        StringBuilder out = new StringBuilder();
+        out.append(String.format("%-32s %10s %10s %10s %10s %10s %10s%n", "timer (us)", "count", "mean", "p50", "p99", "p99.9", "max"));
+        new TreeMap<>(TIMERS).forEach((name, histogram) -> {
+            if (histogram.count() > 0) {
+                out.append(String.format("%-32s %10d %10d %10d %10d %10d %10d%n", name, histogram.count(),
+                        micros(histogram.meanNanos()), micros(histogram.percentileNanos(50)),
+                        micros(histogram.percentileNanos(99)), micros(histogram.percentileNanos(99.9)),
+                        micros(histogram.maxNanos())));
+            }
+        });
+        new TreeMap<>(COUNTERS).forEach((name, counter) -> out.append(String.format("%-32s %10d%n", name, counter.sum())));
+        new TreeMap<>(GAUGES).forEach((name, gauge) -> out.append(String.format("%-32s %10d%n", name, gauge.getAsLong())));
+        return out.toString();
+    }
+
+    public static void writeSnapshot(File file) throws IOException {
+        file.getAbsoluteFile().getParentFile().mkdirs();
+        File tempFile = new File(file.getPath() + ".tmp");
+        OBJECT_MAPPER.writeValue(tempFile, snapshot());
+        Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /** Rewrites the snapshot file periodically on a daemon thread; later calls are ignored. */
+    public static synchronized void startSnapshots(File file) {
+        if (snapshotter != null) {
+            return;
+        }
+        snapshotter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        snapshotter.scheduleWithFixedDelay(() -> {
+            try {
+                writeSnapshot(file);
+            } catch (IOException ex) {
+                System.err.println("Error writing metrics snapshot: " + ex.getMessage());
+            }
+        }, SNAPSHOT_SECONDS, SNAPSHOT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    private static long micros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+}
@@ -0,0 +1,128 @@
+package org.example.util;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.RateLimiter;
+import org.mindrot.jbcrypt.BCrypt;
+
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs bcrypt on a small dedicated pool so a burst of logins cannot occupy every core.
+ * Work beyond the queue capacity is rejected instead of piling up, and login attempts
+ * are rate limited globally and per user name.
+ * <p>
+ * Tuned with system properties: {@code bcrypt.cost}, {@code bcrypt.threads},
+ * {@code bcrypt.queue}, {@code login.rate.global} and {@code login.rate.perUser}
+ * (both in attempts per second) and {@code login.rate.users}, the number of user names
+ * whose limiters are remembered. Timings go to the shared {@link Metrics} timers
+ * {@code auth.bcrypt_hash}, {@code auth.bcrypt_verify} and {@code auth.bcrypt_queue_wait}.
+ */
+public class PasswordHasher {
+    private static final PasswordHasher SHARED = new PasswordHasher(
+            Integer.getInteger("bcrypt.cost", 10),
+            Integer.getInteger("bcrypt.threads", Math.max(1, Runtime.getRuntime().availableProcessors() / 2)),
+            Integer.getInteger("bcrypt.queue", 256),
+            Double.parseDouble(System.getProperty("login.rate.global", "100")),
+            Double.parseDouble(System.getProperty("login.rate.perUser", "1")),
+            Integer.getInteger("login.rate.users", 100_000));
+
+    private final int cost;
+    private final ThreadPoolExecutor executor;
+    private final RateLimiter globalLogins;
+    private final double perUserRate;
+    private final Cache<String, RateLimiter> userLogins;
+    private final LatencyHistogram hashLatency = Metrics.timer("auth.bcrypt_hash");
+    private final LatencyHistogram verifyLatency = Metrics.timer("auth.bcrypt_verify");
+    private final LatencyHistogram queueWait = Metrics.timer("auth.bcrypt_queue_wait");
+
+    public static PasswordHasher getInstance() {
+        return SHARED;
+    }
+
+    public PasswordHasher(int cost, int threads, int queueCapacity, double globalLoginsPerSecond, double loginsPerUserPerSecond,
+                          int limitedUsers) {
+        this.cost = cost;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "bcrypt-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+        this.globalLogins = RateLimiter.create(globalLoginsPerSecond);
+        this.perUserRate = loginsPerUserPerSecond;
+        this.userLogins = CacheBuilder.newBuilder()
+                .maximumSize(limitedUsers)
+                .expireAfterAccess(10, TimeUnit.MINUTES)
+                .build();
+    }
+
+    public String hash(String plainPassword) {
+        return run(() -> BCrypt.hashpw(plainPassword, BCrypt.gensalt(cost)), hashLatency);
+    }
+
+    public boolean verify(String plainPassword, String hashedPassword) {
+        return run(() -> BCrypt.checkpw(plainPassword, hashedPassword), verifyLatency);
+    }
+
+    /**
+     * Takes a login permit for the user; false means the attempt should be refused. The
+     * global limiter is asked first so a refusal there does not use up the user's permit.
+     */
+    public boolean tryAcquireLogin(String userName) {
+        String key = userName.toLowerCase(Locale.ROOT);
+        try {
+            if (!globalLogins.tryAcquire()) {
+                return false;
+            }
+            return userLogins.get(key, () -> RateLimiter.create(perUserRate)).tryAcquire();
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException(ex.getCause());
+        }
+    }
+
+    public LatencyHistogram hashLatency() {
+        return hashLatency;
+    }
+
+    public LatencyHistogram verifyLatency() {
+        return verifyLatency;
+    }
+
+    public LatencyHistogram queueWait() {
+        return queueWait;
+    }
+
+    private <T> T run(Callable<T> task, LatencyHistogram latency) {
+        long submitted = System.nanoTime();
+        Future<T> future = executor.submit(() -> {
+            long started = System.nanoTime();
+            queueWait.record(started - submitted);
+            try {
+                return task.call();
+            } finally {
+                latency.record(System.nanoTime() - started);
+            }
+        });
+        try {
+            return future.get();
+        } catch (InterruptedException ex) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for bcrypt", ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw new IllegalStateException(ex.getCause());
+        }
+    }
+}
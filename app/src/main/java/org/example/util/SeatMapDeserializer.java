@@ -0,0 +1,47 @@
+package org.example.util;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import org.example.entities.SeatMap;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads the {@code [[1,0,...],...]} seat matrix straight into a {@link SeatMap}
+ * without materialising boxed lists.
+ */
+public class SeatMapDeserializer extends StdDeserializer<SeatMap> {
+
+    public SeatMapDeserializer() {
+        super(SeatMap.class);
+    }
+
+    @Override
+    public SeatMap deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            return (SeatMap) context.handleUnexpectedToken(SeatMap.class, parser);
+        }
+        List<long[]> rows = new ArrayList<>();
+        while (parser.nextToken() == JsonToken.START_ARRAY) {
+            long[] row = new long[8];
+            int size = 0;
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                if (size == row.length) {
+                    row = Arrays.copyOf(row, size * 2);
+                }
+                row[size++] = parser.getLongValue();
+            }
+            rows.add(Arrays.copyOf(row, size));
+        }
+        int[] rowLengths = new int[rows.size()];
+        for (int i = 0; i < rows.size(); i++) {
+            rowLengths[i] = rows.get(i).length;
+        }
+        return SeatMap.fromEncoded(rowLengths, rows.toArray(new long[0][]));
+    }
+}
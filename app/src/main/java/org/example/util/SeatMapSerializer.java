@@ -0,0 +1,28 @@
+package org.example.util;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import org.example.entities.SeatMap;
+
+import java.io.IOException;
+
+public class SeatMapSerializer extends StdSerializer<SeatMap> {
+
+    public SeatMapSerializer() {
+        super(SeatMap.class);
+    }
+
+    @Override
+    public void serialize(SeatMap seatMap, JsonGenerator generator, SerializerProvider provider) throws IOException {
+        generator.writeStartArray();
+        for (int row = 0; row < seatMap.rowCount(); row++) {
+            generator.writeStartArray();
+            for (int seat = 0; seat < seatMap.seatsInRow(row); seat++) {
+                generator.writeNumber(seatMap.encoded(row, seat));
+            }
+            generator.writeEndArray();
+        }
+        generator.writeEndArray();
+    }
+}
@@ -0,0 +1,211 @@
+package org.example.util;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hierarchical timing wheel for large numbers of timeouts that are mostly cancelled.
+ * <p>
+ * Time advances in fixed ticks. Four wheels of 64 slots each cover 64, 4096, 262144 and
+ * 16777216 ticks; a timeout goes into the finest wheel its deadline fits in, and when a
+ * coarser slot comes round its timeouts are moved down a wheel. Scheduling and
+ * cancelling are O(1) and lock-free, and each timeout is moved at most once per wheel,
+ * so expiry cost does not grow with the number outstanding. Deadlines beyond the
+ * coarsest wheel wait in its last slot and are placed again when it comes round.
+ * <p>
+ * New timeouts are queued by the scheduling thread and placed in the wheels by the one
+ * thread that advances time, either {@link #start()}'s daemon or a caller of
+ * {@link #advanceTo}. Cancelled timeouts are dropped when their slot is reached.
+ * Expired tasks run on the given executor, so a slow task never delays the ticks.
+ */
+public class TimerWheel {
+    private static final int WHEEL_BITS = 6;
+    private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+    private static final int WHEELS = 4;
+    private static final long MAX_TICKS = 1L << (WHEEL_BITS * WHEELS);
+
+    private static final int PENDING = 0;
+    private static final int CANCELLED = 1;
+    private static final int EXPIRED = 2;
+
+    /** A scheduled task; cancel it once it is no longer needed. */
+    public static final class Timeout {
+        private final Runnable task;
+        private final long deadlineTick;
+        private final AtomicInteger state = new AtomicInteger(PENDING);
+        private final TimerWheel wheel;
+        private Timeout next;
+
+        private Timeout(TimerWheel wheel, Runnable task, long deadlineTick) {
+            this.wheel = wheel;
+            this.task = task;
+            this.deadlineTick = deadlineTick;
+        }
+
+        /** Stops the task from running; false if it has already run or been cancelled. */
+        public boolean cancel() {
+            if (!state.compareAndSet(PENDING, CANCELLED)) {
+                return false;
+            }
+            wheel.pending.decrementAndGet();
+            return true;
+        }
+
+        public boolean isExpired() {
+            return state.get() == EXPIRED;
+        }
+
+        public boolean isCancelled() {
+            return state.get() == CANCELLED;
+        }
+    }
+
+    private final long tickNanos;
+    private final long startNanos;
+    private final Executor executor;
+    private final Timeout[][] wheels = new Timeout[WHEELS][WHEEL_SIZE];
+    private final Queue<Timeout> scheduled = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private volatile long currentTick;
+    private volatile Thread ticker;
+
+    public TimerWheel(long tick, TimeUnit unit, Executor executor) {
+        this(unit.toNanos(tick), System.nanoTime(), executor);
+    }
+
+    /** A wheel whose tick 0 starts at {@code startNanos} on the {@link System#nanoTime()} scale. */
+    public TimerWheel(long tickNanos, long startNanos, Executor executor) {
+        if (tickNanos <= 0) {
+            throw new IllegalArgumentException("Tick must be positive, got " + tickNanos + " ns");
+        }
+        this.tickNanos = tickNanos;
+        this.startNanos = startNanos;
+        this.executor = executor;
+    }
+
+    /** Runs the task once the delay has passed, rounded up to the next tick. */
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        return scheduleAt(task, System.nanoTime() + unit.toNanos(Math.max(0, delay)));
+    }
+
+    /** Runs the task once {@link System#nanoTime()} reaches the deadline, rounded up to the next tick. */
+    public Timeout scheduleAt(Runnable task, long deadlineNanos) {
+        long ticks = Math.max(0, deadlineNanos - startNanos);
+        Timeout timeout = new Timeout(this, task, (ticks + tickNanos - 1) / tickNanos);
+        pending.incrementAndGet();
+        scheduled.add(timeout);
+        return timeout;
+    }
+
+    /** Timeouts neither run nor cancelled yet. */
+    public int pending() {
+        return pending.get();
+    }
+
+    /** Starts a daemon thread that advances the wheel once per tick. */
+    public synchronized void start() {
+        if (ticker != null) {
+            return;
+        }
+        ticker = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                advanceTo(System.nanoTime());
+                LockSupport.parkNanos(tickNanos);
+            }
+        }, "timer-wheel");
+        ticker.setDaemon(true);
+        ticker.start();
+    }
+
+    public synchronized void stop() {
+        if (ticker != null) {
+            ticker.interrupt();
+            ticker = null;
+        }
+    }
+
+    /**
+     * Places newly scheduled timeouts and expires every tick up to {@code nowNanos}.
+     * Must only be called from one thread at a time; returns the number of tasks run.
+     */
+    public int advanceTo(long nowNanos) {
+        placeScheduled();
+        long target = (nowNanos - startNanos) / tickNanos;
+        int expired = 0;
+        while (currentTick < target) {
+            currentTick++;
+            expired += tick();
+        }
+        return expired;
+    }
+
+    private void placeScheduled() {
+        Timeout timeout;
+        while ((timeout = scheduled.poll()) != null) {
+            if (timeout.state.get() == PENDING) {
+                // Deadlines already passed fire on the next tick; the current one has run.
+                place(timeout, Math.max(timeout.deadlineTick, currentTick + 1));
+            }
+        }
+    }
+
+    private int tick() {
+        long tick = currentTick;
+        // Coarse wheels first, so a timeout cascading from wheel 2 to wheel 1 is moved
+        // again if wheel 1's slot is also due on this tick.
+        for (int wheel = WHEELS - 1; wheel > 0; wheel--) {
+            if ((tick & ((1L << (WHEEL_BITS * wheel)) - 1)) == 0) {
+                Timeout timeout = take(wheel, slot(tick, wheel));
+                while (timeout != null) {
+                    Timeout next = timeout.next;
+                    timeout.next = null;
+                    if (timeout.state.get() == PENDING) {
+                        place(timeout, timeout.deadlineTick);
+                    }
+                    timeout = next;
+                }
+            }
+        }
+        int expired = 0;
+        Timeout timeout = take(0, slot(tick, 0));
+        while (timeout != null) {
+            Timeout next = timeout.next;
+            timeout.next = null;
+            if (timeout.state.compareAndSet(PENDING, EXPIRED)) {
+                pending.decrementAndGet();
+                executor.execute(timeout.task);
+                expired++;
+            }
+            timeout = next;
+        }
+        return expired;
+    }
+
+    /** Puts the timeout in the finest wheel that reaches its deadline. */
+    private void place(Timeout timeout, long deadlineTick) {
+        long delta = deadlineTick - currentTick;
+        long tick = delta >= MAX_TICKS ? currentTick + MAX_TICKS - 1 : deadlineTick;
+        int wheel = 0;
+        while (wheel < WHEELS - 1 && delta >= 1L << (WHEEL_BITS * (wheel + 1))) {
+            wheel++;
+        }
+        int slot = slot(tick, wheel);
+        timeout.next = wheels[wheel][slot];
+        wheels[wheel][slot] = timeout;
+    }
+
+    private Timeout take(int wheel, int slot) {
+        Timeout head = wheels[wheel][slot];
+        wheels[wheel][slot] = null;
+        return head;
+    }
+
+    private static int slot(long tick, int wheel) {
+        return (int) ((tick >>> (WHEEL_BITS * wheel)) & WHEEL_MASK);
+    }
+}
@@ -1,14 +1,12 @@
 package org.example.util;
 
-import org.mindrot.jbcrypt.BCrypt;
-
 public class UserServiceUtil
 {
     public static String hashPassword(String plainPassword) {
-        return BCrypt.hashpw(plainPassword, BCrypt.gensalt());
+        return PasswordHasher.getInstance().hash(plainPassword);
     }
 
     public static boolean checkPassword(String plainPassword, String hashedPassword) {
-        return BCrypt.checkpw(plainPassword, hashedPassword);
+        return PasswordHasher.getInstance().verify(plainPassword, hashedPassword);
     }
-}
\ No newline at end of file
+}
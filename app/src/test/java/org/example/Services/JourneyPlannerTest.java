@@ -0,0 +1,81 @@
+package org.example.Services;
+
+import org.example.entities.Journey;
+import org.example.entities.TestTrains;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class JourneyPlannerTest {
+
+    private static List<String> trains(Journey journey) {
+        return journey.getLegs().stream().map(Journey.Leg::getTrainId).collect(Collectors.toList());
+    }
+
+    private static int at(int hours, int minutes) {
+        return hours * 3600 + minutes * 60;
+    }
+
+    private final JourneyPlanner planner = new JourneyPlanner(Arrays.asList(
+            TestTrains.timed("direct", "bangalore", "08:00", "chennai", "12:00", "delhi", "23:00"),
+            TestTrains.timed("fast", "bangalore", "09:00", "hyderabad", "12:00"),
+            TestTrains.timed("tight", "hyderabad", "12:05", "delhi", "16:00"),
+            TestTrains.timed("relaxed", "hyderabad", "12:30", "delhi", "17:00"),
+            TestTrains.timed("night", "delhi", "22:00", "jaipur", "01:30")));
+
+    @Test public void earliestArrivalChangesTrainsWhenThatIsFaster() {
+        Journey journey = planner.earliestArrival("Bangalore", "delhi", at(7, 0), 10 * 60).get();
+
+        assertEquals(Arrays.asList("fast", "relaxed"), trains(journey));
+        assertEquals(at(9, 0), journey.getDeparture());
+        assertEquals(at(17, 0), journey.getArrival());
+        assertEquals(1, journey.getTransfers());
+        assertEquals("hyderabad", journey.getLegs().get(0).getTo());
+    }
+
+    @Test public void minimumConnectionTimeDecidesWhichTrainCanBeCaught() {
+        assertEquals(Arrays.asList("fast", "tight"), trains(planner.earliestArrival("bangalore", "delhi", at(7, 0), 5 * 60).get()));
+        assertEquals(Arrays.asList("direct"), trains(planner.earliestArrival("bangalore", "delhi", at(7, 0), 60 * 60).get()));
+    }
+
+    @Test public void fewestTransfersPrefersTheDirectTrain() {
+        Journey journey = planner.fewestTransfers("bangalore", "delhi", at(7, 0), 5 * 60, 3).get();
+
+        assertEquals(Arrays.asList("direct"), trains(journey));
+        assertEquals(0, journey.getTransfers());
+        assertFalse(planner.fewestTransfers("bangalore", "jaipur", at(7, 0), 5 * 60, 0).isPresent());
+        assertEquals(Arrays.asList("fast", "tight", "night"),
+                trains(planner.fewestTransfers("bangalore", "jaipur", at(7, 0), 5 * 60, 2).get()));
+    }
+
+    @Test public void departuresBeforeTheRequestedTimeAreIgnored() {
+        assertEquals(Arrays.asList("fast", "tight"), trains(planner.earliestArrival("bangalore", "delhi", at(8, 30), 5 * 60).get()));
+        assertFalse(planner.earliestArrival("bangalore", "delhi", at(9, 30), 5 * 60).isPresent());
+    }
+
+    @Test public void overnightLegsArriveOnTheNextDay() {
+        Journey journey = planner.earliestArrival("delhi", "jaipur", 0, 0).get();
+
+        assertEquals(at(25, 30), journey.getArrival());
+        assertTrue(journey.getJourneyInfo().contains("(+1d)"));
+    }
+
+    @Test public void unknownOrUnreachableStationsHaveNoJourney() {
+        assertFalse(planner.earliestArrival("nowhere", "delhi", 0, 0).isPresent());
+        assertFalse(planner.earliestArrival("delhi", "bangalore", 0, 0).isPresent());
+        assertFalse(planner.earliestArrival("delhi", "delhi", 0, 0).isPresent());
+    }
+
+    @Test public void trainsWithoutTimesAreLeftOut() {
+        JourneyPlanner partial = new JourneyPlanner(Arrays.asList(
+                TestTrains.timed("timed", "a", "10:00", "b", "11:00"),
+                TestTrains.route("untimed", "a", "c")));
+
+        assertEquals(1, partial.connectionCount());
+        assertFalse(partial.earliestArrival("a", "c", 0, 0).isPresent());
+    }
+}
@@ -0,0 +1,40 @@
+package org.example.Services;
+
+import org.example.entities.TestTrains;
+import org.example.entities.Train;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class RouteIndexTest {
+
+    private static List<String> ids(List<Train> trains) {
+        return trains.stream().map(Train::getTrainId).collect(Collectors.toList());
+    }
+
+    @Test public void findsTrainsThatVisitSourceBeforeDestination() {
+        RouteIndex index = new RouteIndex();
+        index.addOrReplace(TestTrains.route("t1", "bangalore", "jaipur", "delhi"));
+        index.addOrReplace(TestTrains.route("t2", "delhi", "jaipur", "bangalore"));
+        index.addOrReplace(TestTrains.route("t3", "pune", "jaipur", "delhi"));
+
+        assertEquals(Arrays.asList("t1", "t3"), ids(index.search("jaipur", "delhi")));
+        assertEquals(Arrays.asList("t1"), ids(index.search("Bangalore", "DELHI")));
+        assertTrue(index.search("delhi", "pune").isEmpty());
+        assertTrue(index.search("nowhere", "delhi").isEmpty());
+    }
+
+    @Test public void replacingATrainMovesItsPostings() {
+        RouteIndex index = new RouteIndex();
+        index.addOrReplace(TestTrains.route("t1", "bangalore", "jaipur", "delhi"));
+        index.addOrReplace(TestTrains.route("t2", "bangalore", "delhi"));
+        index.addOrReplace(TestTrains.route("T1", "delhi", "jaipur"));
+
+        assertEquals(Arrays.asList("t2"), ids(index.search("bangalore", "delhi")));
+        assertEquals(Arrays.asList("T1"), ids(index.search("delhi", "jaipur")));
+    }
+}
@@ -0,0 +1,116 @@
+package org.example.Services;
+
+import org.example.entities.SeatMap;
+import org.example.entities.TestTrains;
+import org.example.entities.Train;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class SearchCacheTest {
+
+    @Test public void repeatedSearchesAreServedFromTheCache() {
+        SearchCache cache = new SearchCache(100, 100);
+        AtomicInteger searches = new AtomicInteger();
+        List<Train> result = List.of(TestTrains.route("t1", "bangalore", "delhi"));
+
+        cache.trains("Bangalore ", "delhi", (source, destination) -> {
+            assertEquals("bangalore", source);
+            searches.incrementAndGet();
+            return result;
+        });
+        List<Train> again = cache.trains("bangalore", "DELHI", (source, destination) -> {
+            searches.incrementAndGet();
+            return result;
+        });
+
+        assertEquals(1, searches.get());
+        assertEquals(result, again);
+        assertEquals(1, cache.routeStats().hitCount());
+        assertEquals(1, cache.routeStats().missCount());
+    }
+
+    @Test public void aChangedTrainDropsOnlyThePairsItServes() {
+        SearchCache cache = new SearchCache(100, 100);
+        Train before = TestTrains.route("t1", "bangalore", "jaipur", "delhi");
+        cache.trains("bangalore", "delhi", (source, destination) -> List.of(before));
+        cache.trains("jaipur", "delhi", (source, destination) -> List.of(before));
+        cache.trains("pune", "mumbai", (source, destination) -> List.of());
+
+        cache.trainChanged(before);
+        cache.trainChanged(TestTrains.route("t1", "jaipur", "bangalore"));
+
+        assertEquals(1, cache.routeEntries());
+        cache.trains("pune", "mumbai", (source, destination) -> {
+            throw new AssertionError("pune -> mumbai should still be cached");
+        });
+    }
+
+    @Test public void routeEntriesAreEvictedByWeight() {
+        SearchCache cache = new SearchCache(10, 100);
+        List<Train> many = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            many.add(TestTrains.route("t" + i, "a", "b"));
+        }
+        for (int i = 0; i < 6; i++) {
+            cache.trains("a" + i, "b", (source, destination) -> many);
+        }
+
+        assertTrue(cache.routeEntries() <= 2);
+        assertTrue(cache.routeStats().evictionCount() >= 4);
+    }
+
+    @Test public void bookingInvalidatesTheSeatCountOfThatDateOnly() {
+        Train train = TestTrains.route("t1", "bangalore", "jaipur", "delhi");
+        train.setSeats(new SeatMap(new int[]{4}, 2));
+        TrainService trainService = new TrainService(List.of(train));
+
+        assertEquals(4, trainService.availableSeats(train, "2024-01-01", "bangalore", "delhi"));
+        assertEquals(4, trainService.availableSeats(train, "2024-01-02", "bangalore", "delhi"));
+        trainService.seatsFor(train, "2024-01-01").book(0, 0, 0, 1);
+        assertEquals(4, trainService.availableSeats(train, "2024-01-01T09:00:00Z", "bangalore", "delhi"));
+
+        trainService.seatsChanged("T1", "2024-01-01");
+
+        assertEquals(3, trainService.availableSeats(train, "2024-01-01", "bangalore", "delhi"));
+        assertEquals(4, trainService.availableSeats(train, "2024-01-01", "jaipur", "delhi"));
+        assertEquals(4, trainService.availableSeats(train, "2024-01-02", "bangalore", "delhi"));
+        assertEquals(2, trainService.availabilityCacheStats().hitCount());
+    }
+
+    @Test public void seatCountsAreKeptPerTrainAndDateAndEvictedWhole() {
+        SearchCache cache = new SearchCache(100, 2);
+        AtomicInteger counts = new AtomicInteger();
+        for (String date : List.of("2024-01-01", "2024-01-02", "2024-01-03")) {
+            cache.availableSeats("t1", date, 0, 1, counts::incrementAndGet);
+            cache.availableSeats("t1", date, 0, 2, counts::incrementAndGet);
+        }
+
+        assertEquals(6, counts.get());
+        assertEquals(2, cache.availabilityEntries());
+        assertEquals(1, cache.availabilityStats().evictionCount());
+        assertEquals(6, cache.availabilityStats().missCount());
+
+        cache.seatsChanged("t1", "2024-01-03");
+        assertEquals(1, cache.availabilityEntries());
+        assertEquals(4, cache.availableSeats("t1", "2024-01-02", 0, 2, () -> {
+            throw new AssertionError("2024-01-02 should still be cached");
+        }));
+    }
+
+    @Test public void aCountTakenAcrossABookingIsNotServed() {
+        SearchCache cache = new SearchCache(100, 100);
+        int stale = cache.availableSeats("t1", "2024-01-01", 0, 1, () -> {
+            // A booking lands while the seats are being counted.
+            cache.seatsChanged("t1", "2024-01-01");
+            return 4;
+        });
+
+        assertEquals(4, stale);
+        assertEquals(3, cache.availableSeats("t1", "2024-01-01", 0, 1, () -> 3));
+    }
+}
@@ -0,0 +1,53 @@
+package org.example.Services;
+
+import org.example.entities.SeatMap;
+import org.example.entities.SeatRequest;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SeatAllocatorTest {
+    private final SeatAllocator allocator = new SeatAllocator();
+
+    @Test public void togetherFindsFirstFreeRunOnTheSegment() {
+        SeatMap seats = new SeatMap(new int[]{6, 6}, 2);
+        seats.book(0, 2, 0, 1);
+        seats.book(1, 1, 1, 2);
+
+        long[] chosen = allocator.allocate(seats, 0, 2, new SeatRequest(3).together(true)).get();
+        assertArrayEquals(new long[]{SeatMap.pack(0, 3), SeatMap.pack(0, 4), SeatMap.pack(0, 5)}, chosen);
+        assertFalse(seats.isFree(0, 4, 1, 2));
+        assertFalse(allocator.allocate(seats, 0, 2, new SeatRequest(5).together(true)).isPresent());
+        assertTrue(allocator.allocate(seats, 0, 1, new SeatRequest(4).together(true)).isPresent());
+    }
+
+    @Test public void windowPreferenceBeatsRowOrder() {
+        SeatMap seats = new SeatMap(new int[]{6, 6}, 1);
+        seats.book(0, 0);
+        seats.book(0, 5);
+
+        long[] chosen = allocator.allocate(seats, 0, 1, new SeatRequest(2).together(true).window(true)).get();
+        assertEquals(SeatMap.pack(1, 0), chosen[0]);
+
+        long[] single = allocator.allocate(seats, 0, 1, new SeatRequest(1).window(true)).get();
+        assertEquals(SeatMap.pack(1, 5), single[0]);
+    }
+
+    @Test public void partySpillsAcrossRowsOnlyWhenNoRowFits() {
+        SeatMap seats = new SeatMap(new int[]{3, 3}, 1);
+        seats.book(0, 1);
+        seats.book(1, 0);
+
+        long[] chosen = allocator.allocate(seats, 0, 1, new SeatRequest(3)).get();
+        assertEquals(3, chosen.length);
+        assertEquals(0, seats.freeSeats(0) + seats.freeSeats(1) - 1);
+        assertFalse(allocator.allocate(seats, 0, 1, new SeatRequest(2).coach(1)).isPresent());
+    }
+
+    @Test public void runStartsCrossWordBoundaries() {
+        long[] free = {1L << 63, 0b11};
+        long[] starts = SeatAllocator.runStarts(free, 3);
+        assertEquals(1L << 63, starts[0]);
+        assertEquals(0, starts[1]);
+    }
+}
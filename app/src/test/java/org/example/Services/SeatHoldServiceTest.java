@@ -0,0 +1,158 @@
+package org.example.Services;
+
+import org.example.entities.SeatHold;
+import org.example.entities.SeatMap;
+import org.example.entities.TestTrains;
+import org.example.entities.Train;
+import org.example.persistence.BookingLog;
+import org.example.persistence.MutationRecord;
+import org.example.util.TimerWheel;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+public class SeatHoldServiceTest {
+    private static final long TICK = TimeUnit.MILLISECONDS.toNanos(10);
+
+    @Rule public TemporaryFolder temp = new TemporaryFolder();
+
+    private File directory;
+    private Train train;
+    private TrainService trainService;
+    private BookingLog bookingLog;
+    private final List<String> released = new ArrayList<>();
+    private TimerWheel wheel;
+    private SeatHoldService holds;
+    private final AtomicBoolean diskFull = new AtomicBoolean();
+
+    @Before
+    public void setUp() throws Exception {
+        directory = temp.getRoot();
+        train = TestTrains.seated("hold123", new int[]{2, 2}, "bangalore", "jaipur", "delhi");
+        trainService = new TrainService(List.of(train));
+        bookingLog = new BookingLog(new File(directory, "bookings.log")) {
+            @Override
+            protected void append(ByteBuffer buffer) throws IOException {
+                if (diskFull.get()) {
+                    throw new IOException("No space left on device");
+                }
+                super.append(buffer);
+            }
+        };
+        holds = open();
+    }
+
+    @After
+    public void tearDown() {
+        bookingLog.close();
+    }
+
+    private SeatHoldService open() throws Exception {
+        wheel = new TimerWheel(TICK, System.nanoTime(), Runnable::run);
+        return new SeatHoldService(trainService, bookingLog, new File(directory, "holds.json"),
+                (trainId, date) -> released.add(trainId + "@" + date), wheel);
+    }
+
+    private void passTime(Duration duration) {
+        wheel.advanceTo(System.nanoTime() + duration.toNanos() + 2 * TICK);
+    }
+
+    @Test public void aHoldTakesTheSeatUntilItExpires() throws Exception {
+        SeatHold hold = holds.hold("u1", train, 0, 1, "bangalore", "delhi", "2024-02-01", Duration.ofSeconds(30)).orElseThrow();
+        SeatMap seats = trainService.seatsFor(train, "2024-02-01");
+        assertFalse(seats.isFree(0, 1, 0, 2));
+        assertTrue(holds.hold("u2", train, 0, 1, "jaipur", "delhi", "2024-02-01", Duration.ofSeconds(30)).isEmpty());
+
+        passTime(Duration.ofSeconds(10));
+        assertTrue(holds.find(hold.getHoldId()).isPresent());
+        passTime(Duration.ofSeconds(30));
+
+        assertTrue(holds.find(hold.getHoldId()).isEmpty());
+        assertTrue(seats.isFree(0, 1, 0, 2));
+        assertEquals(List.of("hold123@2024-02-01"), released);
+        assertEquals(0, wheel.pending());
+    }
+
+    @Test public void confirmingKeepsTheSeatAndEndsTheHold() throws Exception {
+        SeatHold hold = holds.hold("u1", train, 1, 0, "bangalore", "jaipur", "2024-02-02", Duration.ofSeconds(30)).orElseThrow();
+        assertTrue(holds.confirm(hold.getHoldId(), (confirmed, outcome) -> List.of(MutationRecord.ticketAdded(confirmed.getUserId(),
+                confirmed.getHoldId(), confirmed.getSource(), confirmed.getDestination(), confirmed.getDateOfTravel(),
+                confirmed.getTrainId(), confirmed.getRow(), confirmed.getSeat()))).isPresent());
+        assertTrue(holds.confirm(hold.getHoldId(), (confirmed, outcome) -> List.of()).isEmpty());
+
+        passTime(Duration.ofMinutes(1));
+        assertFalse(trainService.seatsFor(train, "2024-02-02").isFree(1, 0, 0, 1));
+        assertTrue(released.isEmpty());
+        assertEquals(0, wheel.pending());
+    }
+
+    @Test public void releasingPutsTheSeatBackStraightAway() throws Exception {
+        SeatHold hold = holds.hold("u1", train, 0, 0, "bangalore", "delhi", "2024-02-03", Duration.ofSeconds(30)).orElseThrow();
+        assertTrue(holds.release(hold.getHoldId()));
+        assertFalse(holds.release(hold.getHoldId()));
+        assertTrue(trainService.seatsFor(train, "2024-02-03").isFree(0, 0, 0, 2));
+        assertEquals(0, wheel.pending());
+    }
+
+    @Test public void openHoldsSurviveARestartFromTheLogAndFromACheckpoint() throws Exception {
+        SeatHold logged = holds.hold("u1", train, 0, 0, "bangalore", "delhi", "2024-02-04", Duration.ofSeconds(30)).orElseThrow();
+        SeatHold ended = holds.hold("u1", train, 0, 1, "bangalore", "delhi", "2024-02-04", Duration.ofSeconds(30)).orElseThrow();
+        holds.release(ended.getHoldId());
+
+        SeatHoldService restarted = open();
+        assertTrue(restarted.find(logged.getHoldId()).isPresent());
+        assertTrue(restarted.find(ended.getHoldId()).isEmpty());
+
+        bookingLog.checkpoint();
+        SeatHold later = restarted.hold("u2", train, 1, 1, "jaipur", "delhi", "2024-02-04", Duration.ofMinutes(5)).orElseThrow();
+        restarted = open();
+        assertEquals(2, restarted.size());
+        assertEquals(logged.getExpiresAt(), restarted.find(logged.getHoldId()).orElseThrow().getExpiresAt());
+
+        passTime(Duration.ofSeconds(30));
+        assertTrue(restarted.find(logged.getHoldId()).isEmpty());
+        assertTrue(restarted.find(later.getHoldId()).isPresent());
+    }
+
+    @Test public void holdsThatCannotBeLoggedChangeNothing() throws Exception {
+        diskFull.set(true);
+        try {
+            holds.hold("u1", train, 0, 0, "bangalore", "delhi", "2024-02-05", Duration.ofSeconds(30));
+            fail("Expected the hold to fail");
+        } catch (IOException expected) {
+            assertTrue(trainService.seatsFor(train, "2024-02-05").isFree(0, 0, 0, 2));
+            assertEquals(0, holds.size());
+            assertEquals(0, wheel.pending());
+        }
+    }
+
+    @Test public void anExpiryThatCannotBeLoggedKeepsTheHoldAndRetries() throws Exception {
+        SeatHold hold = holds.hold("u1", train, 0, 0, "bangalore", "delhi", "2024-02-06", Duration.ofSeconds(30)).orElseThrow();
+        SeatMap seats = trainService.seatsFor(train, "2024-02-06");
+        diskFull.set(true);
+
+        passTime(Duration.ofSeconds(30));
+        assertTrue(holds.find(hold.getHoldId()).isPresent());
+        assertFalse(seats.isFree(0, 0, 0, 2));
+        assertTrue(released.isEmpty());
+
+        diskFull.set(false);
+        passTime(Duration.ofSeconds(32));
+        assertTrue(holds.find(hold.getHoldId()).isEmpty());
+        assertTrue(seats.isFree(0, 0, 0, 2));
+        assertEquals(List.of("hold123@2024-02-06"), released);
+    }
+}
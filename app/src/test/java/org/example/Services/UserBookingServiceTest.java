@@ -0,0 +1,228 @@
+package org.example.Services;
+
+import org.example.entities.BookingRequest;
+import org.example.entities.SeatMap;
+import org.example.entities.SeatRequest;
+import org.example.entities.TestTrains;
+import org.example.entities.Ticket;
+import org.example.entities.Train;
+import org.example.entities.User;
+import org.example.persistence.BookingLog;
+import org.example.util.UserServiceUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+public class UserBookingServiceTest {
+    @Rule public TemporaryFolder temp = new TemporaryFolder();
+    private Train train;
+    private TrainService trainService;
+    private BookingLog bookingLog;
+    private UserBookingService service;
+    private String token;
+    private final AtomicBoolean diskFull = new AtomicBoolean();
+
+    @Before
+    public void setUp() throws Exception {
+        File directory = temp.getRoot();
+        train = TestTrains.seated("bacs123", new int[]{4, 4}, "bangalore", "jaipur", "delhi");
+        trainService = new TrainService(List.of(train));
+        bookingLog = new BookingLog(new File(directory, "bookings.log")) {
+            @Override
+            protected void append(ByteBuffer buffer) throws IOException {
+                if (diskFull.get()) {
+                    throw new IOException("No space left on device");
+                }
+                super.append(buffer);
+            }
+        };
+        service = new UserBookingService(new File(directory, "users.json"), trainService, bookingLog,
+                new SessionManager(Duration.ofMinutes(5)));
+        String name = "agent-" + UUID.randomUUID();
+        service.signUp(new User(name, null, UserServiceUtil.hashPassword("pw"), new ArrayList<>(), UUID.randomUUID().toString()));
+        token = service.login(name, "pw").orElseThrow();
+    }
+
+    @After
+    public void tearDown() {
+        bookingLog.close();
+    }
+
+    @Test public void batchBooksEverySeatInOneGo() {
+        List<Ticket> tickets = service.bookBatch(token, List.of(
+                new BookingRequest(train, "bangalore", "delhi", "2024-01-01").seat(0, 0).seat(0, 1),
+                new BookingRequest(train, "bangalore", "jaipur", "2024-01-01").seat(1, 0),
+                new BookingRequest(train, "jaipur", "delhi", "2024-01-01").seat(1, 0)));
+
+        assertEquals(4, tickets.size());
+        SeatMap seats = trainService.seatsFor(train, "2024-01-01");
+        assertFalse(seats.isFree(0, 1, 1, 2));
+        assertFalse(seats.isFree(1, 0, 0, 2));
+        assertEquals(4, service.tickets(token).size());
+    }
+
+    @Test public void batchIsAllOrNothing() {
+        assertTrue(service.bookTrainSeat(token, train, 1, 3, "jaipur", "delhi", "2024-01-02"));
+
+        List<Ticket> tickets = service.bookBatch(token, List.of(
+                new BookingRequest(train, "bangalore", "jaipur", "2024-01-02").seat(0, 0).seat(0, 1),
+                new BookingRequest(train, "bangalore", "delhi", "2024-01-02").seat(1, 3)));
+
+        assertTrue(tickets.isEmpty());
+        assertTrue(trainService.seatsFor(train, "2024-01-02").isFree(0, 0, 0, 2));
+        assertEquals(1, service.tickets(token).size());
+        assertTrue(service.bookBatch(token, List.of(
+                new BookingRequest(train, "bangalore", "jaipur", "2024-01-02").seat(0, 0).seat(0, 0))).isEmpty());
+    }
+
+    @Test public void cancellingReleasesTheSeatRightAway() {
+        assertTrue(service.bookTrainSeat(token, train, 0, 2, "bangalore", "jaipur", "2024-01-03"));
+        Ticket ticket = service.tickets(token).get(0);
+        assertEquals(0, ticket.getRow());
+        assertEquals(2, ticket.getSeat());
+        assertSame(ticket, service.findTicket(ticket.getTicketId()).get());
+        assertEquals(7, trainService.availableSeats(train, "2024-01-03", "bangalore", "jaipur"));
+
+        assertTrue(service.cancelBooking(token, ticket.getTicketId()));
+
+        assertTrue(trainService.seatsFor(train, "2024-01-03").isFree(0, 2, 0, 1));
+        assertEquals(8, trainService.availableSeats(train, "2024-01-03", "bangalore", "jaipur"));
+        assertTrue(service.findTicket(ticket.getTicketId()).isEmpty());
+        assertTrue(service.tickets(token).isEmpty());
+        assertFalse(service.cancelBooking(token, ticket.getTicketId()));
+        assertTrue(service.bookTrainSeat(token, train, 0, 2, "bangalore", "delhi", "2024-01-03"));
+    }
+
+    @Test public void onlyTheOwnerCanCancel() throws Exception {
+        assertTrue(service.bookTrainSeat(token, train, 1, 1, "bangalore", "delhi", "2024-01-04"));
+        String ticketId = service.tickets(token).get(0).getTicketId();
+        String other = "agent-" + UUID.randomUUID();
+        service.signUp(new User(other, null, UserServiceUtil.hashPassword("pw"), new ArrayList<>(), UUID.randomUUID().toString()));
+        String otherToken = service.login(other, "pw").orElseThrow();
+
+        assertFalse(service.cancelBooking(otherToken, ticketId));
+        assertTrue(service.tickets(otherToken).isEmpty());
+        assertFalse(trainService.seatsFor(train, "2024-01-04").isFree(1, 1, 0, 2));
+        assertTrue(service.findTicket(ticketId).isPresent());
+    }
+
+    @Test public void oneSessionCanBookAndCancelFromManyThreads() throws Exception {
+        int threads = 8;
+        int dates = 25;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int row = t / 4;
+            int seat = t % 4;
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int day = 0; day < dates; day++) {
+                    assertTrue(service.bookTrainSeat(token, train, row, seat, "bangalore", "delhi",
+                            LocalDate.of(2025, 1, 1).plusDays(day).toString()));
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        List<Ticket> tickets = service.tickets(token);
+        assertEquals(threads * dates, tickets.size());
+
+        futures.clear();
+        for (Ticket ticket : tickets) {
+            futures.add(executor.submit(() -> assertTrue(service.cancelBooking(token, ticket.getTicketId()))));
+        }
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+        assertTrue(service.tickets(token).isEmpty());
+        assertEquals(8, trainService.availableSeats(train, "2025-01-01", "bangalore", "delhi"));
+    }
+
+    @Test public void cancellationPromotesTheWaitlist() throws Exception {
+        for (int seat = 0; seat < 4; seat++) {
+            assertTrue(service.bookTrainSeat(token, train, 0, seat, "bangalore", "delhi", "2024-01-05"));
+            assertTrue(service.bookTrainSeat(token, train, 1, seat, "bangalore", "delhi", "2024-01-05"));
+        }
+        String other = "agent-" + UUID.randomUUID();
+        service.signUp(new User(other, null, UserServiceUtil.hashPassword("pw"), new ArrayList<>(), UUID.randomUUID().toString()));
+        String otherToken = service.login(other, "pw").orElseThrow();
+        CompletableFuture<List<Ticket>> waiting = service.joinWaitlist(otherToken, train, "jaipur", "delhi", "2024-01-05",
+                new SeatRequest(1), 0);
+        assertFalse(service.bookTrainSeat(otherToken, train, 1, 2, "jaipur", "delhi", "2024-01-05"));
+
+        Ticket freed = service.tickets(token).get(5);
+        assertTrue(service.cancelBooking(token, freed.getTicketId()));
+
+        List<Ticket> promoted = waiting.get(10, TimeUnit.SECONDS);
+        assertEquals(1, promoted.size());
+        assertEquals(freed.getRow(), promoted.get(0).getRow());
+        assertEquals(freed.getSeat(), promoted.get(0).getSeat());
+        assertEquals(promoted, service.tickets(otherToken));
+        assertEquals(0, service.waitlistLength(train, "2024-01-05"));
+    }
+
+    @Test public void aPartyLargerThanTheTrainIsNotWaitlisted() throws Exception {
+        CompletableFuture<List<Ticket>> waiting = service.joinWaitlist(token, train, "bangalore", "delhi", "2024-01-07",
+                new SeatRequest(9), 0);
+        assertTrue(waiting.get(10, TimeUnit.SECONDS).isEmpty());
+        assertEquals(0, service.waitlistLength(train, "2024-01-07"));
+    }
+
+    @Test public void bookingsNeedAnIsoTravelDate() {
+        assertFalse(service.bookTrainSeat(token, train, 0, 0, "bangalore", "delhi", "06/01/2024"));
+        assertTrue(service.bookBestAvailable(token, train, "bangalore", "delhi", "next friday", new SeatRequest(1)).isEmpty());
+        assertTrue(service.bookBatch(token, List.of(
+                new BookingRequest(train, "bangalore", "jaipur", "2024-13-01").seat(1, 0))).isEmpty());
+        assertTrue(service.holdSeat(token, train, 0, 0, "bangalore", "delhi", "2024/01/06", Duration.ofMinutes(1)).isEmpty());
+        assertTrue(service.tickets(token).isEmpty());
+        assertTrue(service.bookTrainSeat(token, train, 0, 0, "bangalore", "delhi", "2024-01-06T09:00:00Z"));
+    }
+
+    @Test public void failedLogWriteLeavesNoPhantomBooking() {
+        assertTrue(service.bookTrainSeat(token, train, 0, 0, "bangalore", "delhi", "2024-01-06"));
+        Ticket kept = service.tickets(token).get(0);
+        diskFull.set(true);
+
+        assertFalse(service.bookTrainSeat(token, train, 0, 1, "bangalore", "delhi", "2024-01-06"));
+        assertTrue(service.bookBestAvailable(token, train, "bangalore", "delhi", "2024-01-06", new SeatRequest(2)).isEmpty());
+        assertTrue(service.bookBatch(token, List.of(
+                new BookingRequest(train, "bangalore", "jaipur", "2024-01-06").seat(1, 0).seat(1, 1))).isEmpty());
+        assertFalse(service.cancelBooking(token, kept.getTicketId()));
+
+        SeatMap seats = trainService.seatsFor(train, "2024-01-06");
+        assertEquals(List.of(kept), service.tickets(token));
+        assertFalse(seats.isFree(0, 0, 0, 2));
+        assertEquals(7, seats.freeSeats(0, 2));
+        assertEquals(7, trainService.availableSeats(train, "2024-01-06", "bangalore", "delhi"));
+
+        diskFull.set(false);
+        assertTrue(service.bookTrainSeat(token, train, 0, 1, "bangalore", "delhi", "2024-01-06"));
+        assertTrue(service.cancelBooking(token, kept.getTicketId()));
+        assertTrue(seats.isFree(0, 0, 0, 2));
+    }
+}
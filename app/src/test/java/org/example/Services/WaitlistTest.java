@@ -0,0 +1,114 @@
+package org.example.Services;
+
+import org.example.entities.SeatRequest;
+import org.example.entities.Ticket;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.Assert.*;
+
+public class WaitlistTest {
+    private final List<String> served = new ArrayList<>();
+    private int freeSeats;
+
+    // Runs promotions on the calling thread so each test sees them finish.
+    private final Waitlist waitlist = new Waitlist(this::allocate, Runnable::run);
+
+    private Optional<List<Ticket>> allocate(Waitlist.Request request) {
+        if (request.getTrainId().equals("gone")) {
+            return Optional.empty();
+        }
+        if (request.getSeats().getPartySize() > freeSeats) {
+            return Optional.of(List.of());
+        }
+        freeSeats -= request.getSeats().getPartySize();
+        served.add(request.getUserId());
+        List<Ticket> tickets = new ArrayList<>();
+        for (int i = 0; i < request.getSeats().getPartySize(); i++) {
+            tickets.add(new Ticket("t-" + request.getUserId() + "-" + i, request.getUserId(), request.getSource(),
+                    request.getDestination(), request.getDateOfTravel(), request.getTrainId()));
+        }
+        return Optional.of(tickets);
+    }
+
+    private CompletableFuture<List<Ticket>> join(String userId, int partySize, int priority) {
+        return waitlist.join(userId, "t1", "2024-01-01", "a", "b", new SeatRequest(partySize), priority);
+    }
+
+    @Test public void servesHigherPrioritiesFirstThenInArrivalOrder() {
+        CompletableFuture<List<Ticket>> first = join("first", 1, 0);
+        CompletableFuture<List<Ticket>> second = join("second", 1, 0);
+        CompletableFuture<List<Ticket>> urgent = join("urgent", 1, 5);
+        assertEquals(3, waitlist.waiting("t1", "2024-01-01"));
+
+        freeSeats = 2;
+        waitlist.seatsReleased("t1", "2024-01-01T10:00:00Z");
+
+        assertEquals(List.of("urgent", "first"), served);
+        assertEquals(1, urgent.join().size());
+        assertTrue(first.isDone());
+        assertFalse(second.isDone());
+        assertEquals(1, waitlist.waiting("t1", "2024-01-01"));
+    }
+
+    @Test public void smallerRequestsFurtherBackTakeSeatsTheHeadCannotUse() {
+        CompletableFuture<List<Ticket>> party = join("party", 3, 0);
+        CompletableFuture<List<Ticket>> single = join("single", 1, 0);
+
+        freeSeats = 1;
+        waitlist.seatsReleased("t1", "2024-01-01");
+
+        assertFalse(party.isDone());
+        assertTrue(single.isDone());
+        freeSeats = 3;
+        waitlist.seatsReleased("t1", "2024-01-01");
+        assertEquals(3, party.join().size());
+        assertEquals(0, waitlist.size());
+    }
+
+    @Test public void aServedRequestIsNoLongerCountedWhenItsWaiterWakes() {
+        CompletableFuture<List<Ticket>> waiting = join("waiter", 1, 0);
+        List<Integer> seenByWaiter = new ArrayList<>();
+        waiting.thenRun(() -> seenByWaiter.add(waitlist.waiting("t1", "2024-01-01")));
+
+        freeSeats = 1;
+        waitlist.seatsReleased("t1", "2024-01-01");
+        assertEquals(List.of(0), seenByWaiter);
+    }
+
+    @Test public void aRequestThatCanNeverBeServedCompletesEmpty() {
+        CompletableFuture<List<Ticket>> stranded = waitlist.join("u", "gone", "2024-01-01", "a", "b", new SeatRequest(1), 0);
+        assertTrue(stranded.isDone());
+        assertTrue(stranded.join().isEmpty());
+        assertEquals(0, waitlist.waiting("gone", "2024-01-01"));
+    }
+
+    @Test public void cancellingLeavesTheQueue() {
+        CompletableFuture<List<Ticket>> waiting = join("quitter", 1, 0);
+        assertTrue(waiting.cancel(false));
+        assertEquals(0, waitlist.waiting("t1", "2024-01-01"));
+
+        freeSeats = 1;
+        waitlist.seatsReleased("t1", "2024-01-01");
+        assertTrue(served.isEmpty());
+    }
+
+    @Test public void aFreeSeatIsTakenOnJoining() {
+        freeSeats = 1;
+        assertEquals(1, join("lucky", 1, 0).join().size());
+        assertEquals(0, waitlist.size());
+    }
+
+    @Test public void failedAllocationsFailTheFuture() {
+        Waitlist failing = new Waitlist(request -> {
+            throw new IllegalStateException("log unavailable");
+        }, Runnable::run);
+        CompletableFuture<List<Ticket>> result = failing.join("u", "t1", "2024-01-01", "a", "b", new SeatRequest(1), 0);
+        assertTrue(result.isCompletedExceptionally());
+        assertEquals(0, failing.size());
+    }
+}
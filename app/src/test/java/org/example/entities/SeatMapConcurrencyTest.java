@@ -0,0 +1,95 @@
+package org.example.entities;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class SeatMapConcurrencyTest {
+    private static final int THREADS = 16;
+    private static final int ROWS = 4;
+    private static final int SEATS = 70;
+    private static final int LEGS = 8;
+
+    @Test public void randomSegmentBookingsNeverOverlap() throws Exception {
+        SeatMap seatMap = new SeatMap(new int[]{SEATS, SEATS, SEATS, SEATS}, LEGS);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<List<int[]>>> results = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            long seed = t;
+            results.add(executor.submit(() -> {
+                Random random = new Random(seed);
+                List<int[]> won = new ArrayList<>();
+                start.await();
+                for (int i = 0; i < 20_000; i++) {
+                    int row = random.nextInt(ROWS);
+                    int seat = random.nextInt(SEATS);
+                    int from = random.nextInt(LEGS);
+                    int to = from + 1 + random.nextInt(LEGS - from);
+                    if (seatMap.book(row, seat, from, to)) {
+                        won.add(new int[]{row, seat, from, to});
+                    }
+                }
+                return won;
+            }));
+        }
+        start.countDown();
+
+        int[][][] claims = new int[ROWS][SEATS][LEGS];
+        for (Future<List<int[]>> result : results) {
+            for (int[] booking : result.get(60, TimeUnit.SECONDS)) {
+                for (int leg = booking[2]; leg < booking[3]; leg++) {
+                    claims[booking[0]][booking[1]][leg]++;
+                }
+            }
+        }
+        executor.shutdown();
+
+        for (int row = 0; row < ROWS; row++) {
+            for (int seat = 0; seat < SEATS; seat++) {
+                for (int leg = 0; leg < LEGS; leg++) {
+                    int count = claims[row][seat][leg];
+                    assertTrue("double booking at " + row + "/" + seat + "/" + leg, count <= 1);
+                    assertEquals(count == 1, !seatMap.isFree(row, seat, leg, leg + 1));
+                }
+            }
+        }
+    }
+
+    @Test public void exactlyOneThreadWinsEachSeat() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        for (int round = 0; round < 200; round++) {
+            SeatMap seatMap = new SeatMap(new int[]{2}, LEGS);
+            AtomicInteger winners = new AtomicInteger();
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                int from = t % LEGS;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    // Every segment covers leg LEGS - 1, so all requests conflict.
+                    if (seatMap.book(0, 1, from, LEGS)) {
+                        winners.incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+            assertEquals(1, winners.get());
+        }
+        executor.shutdown();
+    }
+}
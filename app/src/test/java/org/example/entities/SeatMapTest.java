@@ -0,0 +1,72 @@
+package org.example.entities;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class SeatMapTest {
+
+    @Test public void readsAndWritesTheNestedListFormat() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+        String json = "[[1,0,0],[0,0,1,1]]";
+        SeatMap seatMap = objectMapper.readValue(json, SeatMap.class);
+
+        assertEquals(2, seatMap.rowCount());
+        assertEquals(4, seatMap.seatsInRow(1));
+        assertTrue(seatMap.isBooked(0, 0));
+        assertFalse(seatMap.isBooked(0, 1));
+        assertEquals(4, seatMap.freeSeats());
+        assertEquals(json, objectMapper.writeValueAsString(seatMap));
+    }
+
+    @Test public void findsFirstFreeSeatAcrossWords() {
+        SeatMap seatMap = new SeatMap(new int[]{100}, 0);
+        for (int seat = 0; seat < 70; seat++) {
+            assertTrue(seatMap.book(0, seat));
+        }
+        assertFalse(seatMap.book(0, 3));
+        assertEquals(70, seatMap.firstFreeSeat(0));
+        assertEquals(30, seatMap.freeSeats(0));
+
+        seatMap.release(0, 3);
+        assertEquals(3, seatMap.firstFreeSeat(0));
+    }
+
+    @Test public void fullRowHasNoFreeSeat() {
+        SeatMap seatMap = SeatMap.fromRows(Arrays.asList(Arrays.asList(1, 1), Arrays.asList(0, 1)));
+        assertEquals(-1, seatMap.firstFreeSeat(0));
+        assertEquals(0, seatMap.firstFreeSeat(1));
+        assertEquals("[0, 1]", seatMap.formatRow(1));
+    }
+
+    @Test public void seatCanBeSoldOnNonOverlappingLegs() {
+        SeatMap seatMap = new SeatMap(new int[]{6}, 3);
+        assertTrue(seatMap.book(0, 0, 0, 1));
+        assertTrue(seatMap.book(0, 0, 1, 2));
+        assertFalse(seatMap.book(0, 0, 0, 2));
+        assertTrue(seatMap.book(0, 1, 0, 2));
+        assertEquals(2, seatMap.firstFreeSeat(0, 0, 2));
+        assertEquals(SeatMap.pack(0, 0), seatMap.findFreeSeat(2, 3));
+        assertEquals(4, seatMap.freeSeats(0, 1, 2));
+
+        seatMap.release(0, 0, 0, 1);
+        assertTrue(seatMap.isFree(0, 0, 0, 1));
+        assertFalse(seatMap.isFree(0, 0, 1, 2));
+    }
+
+    @Test public void partialBookingsSurviveSerialization() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+        SeatMap seatMap = objectMapper.readValue("[[1,0,0]]", SeatMap.class).withLegCount(3);
+        seatMap.book(0, 1, 1, 3);
+
+        String json = objectMapper.writeValueAsString(seatMap);
+        assertEquals("[[1,12,0]]", json);
+        SeatMap reread = objectMapper.readValue(json, SeatMap.class);
+        assertTrue(reread.isFree(0, 1, 0, 1));
+        assertFalse(reread.isFree(0, 1, 2, 3));
+        assertFalse(reread.isFree(0, 0, 0, 1));
+    }
+}
@@ -0,0 +1,34 @@
+package org.example.entities;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/** Trains for tests, built the way trains.json would describe them. */
+public final class TestTrains {
+
+    private TestTrains() {}
+
+    /** A train over {@code stations} with no timetable and no seats. */
+    public static Train route(String id, String... stations) {
+        return new Train(id, id, new ArrayList<>(), new HashMap<>(), new ArrayList<>(Arrays.asList(stations)));
+    }
+
+    /** A train without seats from alternating station, "HH:mm" time pairs. */
+    public static Train timed(String id, String... stopsAndTimes) {
+        List<String> stations = new ArrayList<>();
+        Map<String, String> times = new HashMap<>();
+        for (int i = 0; i < stopsAndTimes.length; i += 2) {
+            stations.add(stopsAndTimes[i]);
+            times.put(stopsAndTimes[i], stopsAndTimes[i + 1]);
+        }
+        return new Train(id, id, new ArrayList<>(), times, stations);
+    }
+
+    /** An untimed train over {@code stations} with free seats in rows of the given lengths. */
+    public static Train seated(String id, int[] rowLengths, String... stations) {
+        return new Train(id, "12345", new SeatMap(rowLengths, Math.max(1, stations.length - 1)), Map.of(), List.of(stations));
+    }
+}
@@ -0,0 +1,35 @@
+package org.example.entities;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+
+import java.util.Optional;
+
+import static org.junit.Assert.*;
+
+public class TicketTest {
+
+    @Test public void readsEmbeddedTrainAsReference() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+        String legacy = "{\"ticket_id\":\"t1\",\"user_id\":\"u1\",\"source\":\"bangalore\",\"destination\":\"delhi\","
+                + "\"date_of_travel\":\"2024-01-01\",\"train\":{\"train_id\":\"bacs123\",\"train_no\":\"12345\","
+                + "\"seats\":[[0,1],[1,1]],\"station_times\":{},\"stations\":[\"bangalore\",\"delhi\"]}}";
+        Ticket ticket = objectMapper.readValue(legacy, Ticket.class);
+
+        assertTrue(ticket.hasEmbeddedTrain());
+        assertEquals("bacs123", ticket.getTrainId());
+        String compact = objectMapper.writeValueAsString(ticket);
+        assertFalse(compact.contains("\"train\""));
+        assertTrue(compact.contains("\"train_id\":\"bacs123\""));
+        assertFalse(objectMapper.readValue(compact, Ticket.class).hasEmbeddedTrain());
+    }
+
+    @Test public void resolvesTrainLazily() {
+        Train train = TestTrains.seated("bacs123", new int[]{2}, "bangalore", "delhi");
+        Ticket ticket = new Ticket("t1", "u1", "bangalore", "delhi", "2024-01-01", "BACS123");
+        assertNull(ticket.getTrain());
+
+        ticket.setTrainResolver(id -> id.equalsIgnoreCase(train.getTrainId()) ? Optional.of(train) : Optional.empty());
+        assertSame(train, ticket.getTrain());
+    }
+}
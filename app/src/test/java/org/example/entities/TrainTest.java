@@ -0,0 +1,62 @@
+package org.example.entities;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class TrainTest {
+
+    @Test public void jsonIsWrittenBackUnchanged() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+        String json = "{\"train_id\":\"bacs1\",\"train_no\":\"12345\",\"seats\":[[1,0,0],[0,0,0]],"
+                + "\"station_times\":{\"bangalore\":\"13:50:00\",\"jaipur\":\"14:50:00\",\"delhi\":\"15:50:00\"},"
+                + "\"stations\":[\"bangalore\",\"jaipur\",\"delhi\"],\"train_info\":\"Train ID: bacs1 Train No: 12345\"}";
+
+        Train train = objectMapper.readValue(json, Train.class);
+
+        JsonNode written = objectMapper.readTree(objectMapper.writeValueAsString(train));
+        assertEquals(objectMapper.readTree(json), written);
+        assertEquals(List.of("bangalore", "jaipur", "delhi"), train.getStations());
+    }
+
+    @Test public void namesAndTimesAreWrittenAsLoaded() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+        String json = "{\"train_id\":\"bacs2\",\"train_no\":\"12346\",\"seats\":[[0,0]],"
+                + "\"station_times\":{\"Bangalore\":\"13:50\",\"JAIPUR\":\"14:50:00\",\"delhi\":\"15:50\"},"
+                + "\"stations\":[\"Bangalore\",\"JAIPUR\",\"delhi\"],\"train_info\":\"Train ID: bacs2 Train No: 12346\"}";
+
+        Train train = objectMapper.readValue(json, Train.class);
+
+        assertEquals(objectMapper.readTree(json), objectMapper.readTree(objectMapper.writeValueAsString(train)));
+        assertEquals(List.of("Bangalore", "JAIPUR", "delhi"), train.getStations());
+        assertEquals("jaipur", StationDictionary.nameOf(train.stationIds()[1]));
+        assertEquals(1, train.stationIndex("jaipur"));
+        assertEquals(13 * 3600 + 50 * 60, train.departureTime(0));
+    }
+
+    @Test public void routesShareStationIdsAndParsedTimes() {
+        Train first = new Train("t1", "1", new SeatMap(new int[]{2}, 1), Map.of("Bangalore", "08:00", "delhi", "10:30:15"),
+                List.of("Bangalore", "delhi"));
+        Train second = new Train("t2", "2", new SeatMap(new int[]{2}, 1), Map.of(), List.of("delhi", "bangalore"));
+
+        assertArrayEquals(new int[]{first.stationIds()[1], first.stationIds()[0]}, second.stationIds());
+        assertEquals("bangalore", StationDictionary.nameOf(first.stationIds()[0]));
+        assertEquals(1, first.stationIndex("DELHI"));
+        assertEquals(-1, first.stationIndex("nowhere"));
+        assertEquals(8 * 3600, first.departureTime(0));
+        assertEquals(10 * 3600 + 30 * 60 + 15, first.departureTime(1));
+        assertEquals(Train.NO_TIME, second.departureTime(0));
+        assertEquals("08:00", first.getStationTimes().get("Bangalore"));
+        assertEquals(1, first.getSeats().legCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUnreadableTimes() {
+        new Train("t1", "1", new SeatMap(new int[]{2}, 1), Map.of("bangalore", "noon"), List.of("bangalore", "delhi"));
+    }
+}
@@ -0,0 +1,162 @@
+package org.example.http;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.Services.SessionManager;
+import org.example.Services.TrainService;
+import org.example.Services.UserBookingService;
+import org.example.entities.TestTrains;
+import org.example.entities.Train;
+import org.example.persistence.BookingLog;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.math.BigInteger;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+public class BookingServerTest {
+    @Rule public TemporaryFolder temp = new TemporaryFolder();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient client = HttpClient.newHttpClient();
+    private BookingLog bookingLog;
+    private BookingServer server;
+    private String baseUrl;
+
+    @Before
+    public void setUp() throws Exception {
+        File directory = temp.getRoot();
+        bookingLog = new BookingLog(new File(directory, "bookings.log"));
+        Train train = TestTrains.seated("srv123", new int[]{2, 2}, "bangalore", "jaipur", "delhi");
+        UserBookingService service = new UserBookingService(new File(directory, "users.json"),
+                new TrainService(List.of(train)), bookingLog,
+                new SessionManager(Duration.ofMinutes(5)));
+        server = new BookingServer(service, 0, 1);
+        server.start();
+        baseUrl = "http://localhost:" + server.port();
+    }
+
+    @After
+    public void tearDown() {
+        server.stop();
+        bookingLog.close();
+    }
+
+    @Test public void booksAndCancelsWithABearerToken() throws Exception {
+        String name = "http-" + UUID.randomUUID();
+        assertEquals(201, post("/signup", Map.of("name", name, "password", "pw"), null).statusCode());
+        HttpResponse<String> login = post("/login", Map.of("name", name, "password", "pw"), null);
+        assertEquals(200, login.statusCode());
+        String token = objectMapper.readTree(login.body()).path("token").asText();
+
+        HttpResponse<String> booked = post("/bookings", Map.of("train_id", "srv123", "source", "bangalore",
+                "destination", "delhi", "date", "2024-01-01", "row", 0, "seat", 1), token);
+        assertEquals(201, booked.statusCode());
+        String ticketId = objectMapper.readTree(booked.body()).get(0).path("ticket_id").asText();
+
+        JsonNode seats = objectMapper.readTree(get("/trains/srv123/seats?date=2024-01-01&source=jaipur&destination=delhi").body());
+        assertEquals(3, seats.path("free").asInt());
+        assertEquals(1, seats.path("rows").get(0).get(1).asInt());
+
+        assertEquals(409, post("/bookings", Map.of("train_id", "srv123", "source", "jaipur",
+                "destination", "delhi", "date", "2024-01-01", "row", 0, "seat", 1), token).statusCode());
+        assertEquals(204, send(HttpRequest.newBuilder(URI.create(baseUrl + "/bookings/" + ticketId))
+                .header("Authorization", "Bearer " + token).DELETE().build()).statusCode());
+        assertEquals(404, send(HttpRequest.newBuilder(URI.create(baseUrl + "/bookings/" + ticketId))
+                .header("Authorization", "Bearer " + token).DELETE().build()).statusCode());
+    }
+
+    @Test public void rejectsBookingsWithoutASession() throws Exception {
+        assertEquals(401, post("/bookings", Map.of("train_id", "srv123"), null).statusCode());
+        assertEquals(401, post("/bookings", Map.of("train_id", "srv123"), "not-a-token").statusCode());
+    }
+
+    @Test public void reportsBadRequests() throws Exception {
+        assertEquals(400, get("/trains?source=bangalore").statusCode());
+        assertEquals(404, get("/trains/nope/seats?date=2024-01-01&source=bangalore&destination=delhi").statusCode());
+        assertEquals(400, get("/trains/srv123/seats?date=01-01-2024&source=bangalore&destination=delhi").statusCode());
+        assertEquals(400, send(HttpRequest.newBuilder(URI.create(baseUrl + "/login"))
+                .POST(HttpRequest.BodyPublishers.ofString("{not json")).build()).statusCode());
+    }
+
+    @Test public void waitlistsOnlyGenuinelySoldOutRequests() throws Exception {
+        String token = signUpAndLogIn();
+        Map<String, Object> party = new HashMap<>(Map.of("train_id", "srv123", "source", "bangalore",
+                "destination", "delhi", "date", "2024-01-03", "party_size", 4, "waitlist", true));
+        assertEquals(201, post("/bookings", party, token).statusCode());
+        HttpResponse<String> queued = post("/bookings", Map.of("train_id", "srv123", "source", "jaipur",
+                "destination", "delhi", "date", "2024-01-03", "party_size", 1, "waitlist", true), token);
+        assertEquals(202, queued.statusCode());
+        assertEquals(1, objectMapper.readTree(queued.body()).path("waitlisted").asInt());
+
+        party.put("party_size", 5);
+        assertEquals(409, post("/bookings", party, token).statusCode());
+        party.put("party_size", 1);
+        party.put("source", "delhi");
+        assertEquals(400, post("/bookings", party, token).statusCode());
+        assertEquals(400, post("/bookings", Map.of("train_id", "srv123", "source", "bangalore", "destination", "delhi",
+                "date", "2024-01-03", "row", 0, "seat", 0, "waitlist", true), token).statusCode());
+        assertEquals(400, post("/bookings", Map.of("train_id", "srv123", "source", "bangalore", "destination", "delhi",
+                "date", "2024-01-03", "row", 7, "seat", 0), token).statusCode());
+    }
+
+    private String signUpAndLogIn() throws Exception {
+        String name = "http-" + UUID.randomUUID();
+        post("/signup", Map.of("name", name, "password", "pw"), null);
+        return objectMapper.readTree(post("/login", Map.of("name", name, "password", "pw"), null).body())
+                .path("token").asText();
+    }
+
+    @Test public void rejectsHoldsOutsideTheAllowedLifetime() throws Exception {
+        String token = signUpAndLogIn();
+        Map<String, Object> hold = Map.of("train_id", "srv123", "source", "bangalore", "destination", "delhi",
+                "date", "2024-01-02", "row", 1, "seat", 1);
+
+        for (Object ttl : List.of(0, UserBookingService.MAX_HOLD_TTL.toSeconds() + 1, Long.MAX_VALUE,
+                new BigInteger("100000000000000000000"))) {
+            Map<String, Object> request = new HashMap<>(hold);
+            request.put("ttl_seconds", ttl);
+            assertEquals(String.valueOf(ttl), 400, post("/holds", request, token).statusCode());
+        }
+        Map<String, Object> request = new HashMap<>(hold);
+        request.put("ttl_seconds", UserBookingService.MAX_HOLD_TTL.toSeconds());
+        assertEquals(201, post("/holds", request, token).statusCode());
+    }
+
+    @Test public void turnsAwayASignupBurstWithRetryAfter() throws Exception {
+        assertEquals(201, post("/signup", Map.of("name", "burst-" + UUID.randomUUID(), "password", "pw"), null).statusCode());
+        HttpResponse<String> refused = post("/signup", Map.of("name", "burst-" + UUID.randomUUID(), "password", "pw"), null);
+        assertEquals(429, refused.statusCode());
+        assertEquals("1", refused.headers().firstValue("Retry-After").orElseThrow());
+    }
+
+    private HttpResponse<String> get(String path) throws Exception {
+        return send(HttpRequest.newBuilder(URI.create(baseUrl + path)).GET().build());
+    }
+
+    private HttpResponse<String> post(String path, Object body, String token) throws Exception {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body)));
+        if (token != null) {
+            builder.header("Authorization", "Bearer " + token);
+        }
+        return send(builder.build());
+    }
+
+    private HttpResponse<String> send(HttpRequest request) throws Exception {
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+}
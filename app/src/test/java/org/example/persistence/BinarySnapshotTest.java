@@ -0,0 +1,80 @@
+package org.example.persistence;
+
+import org.example.entities.SeatMap;
+import org.example.entities.Ticket;
+import org.example.entities.Train;
+import org.example.entities.User;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class BinarySnapshotTest {
+
+    @Rule public TemporaryFolder temp = new TemporaryFolder();
+
+    @Test public void trainsRoundTripWithSegmentBookings() throws Exception {
+        SeatMap seats = new SeatMap(new int[]{70, 3}, 2);
+        seats.book(0, 65, 1, 2);
+        seats.book(1, 2);
+        Train train = new Train("bacs123", "12345", seats, Map.of("bangalore", "10:00:00"),
+                List.of("bangalore", "jaipur", "delhi"));
+        File file = tempFile();
+        BinarySnapshot.writeTrains(file, List.of(train, new Train("empty", null, (SeatMap) null, null, null)));
+
+        List<Train> read = BinarySnapshot.readTrains(file);
+        assertEquals(2, read.size());
+        Train copy = read.get(0);
+        assertEquals("12345", copy.getTrainNo());
+        assertEquals(List.of("bangalore", "jaipur", "delhi"), copy.getStations());
+        assertEquals("10:00:00", copy.getStationTimes().get("bangalore"));
+        assertTrue(copy.getSeats().isFree(0, 65, 0, 1));
+        assertFalse(copy.getSeats().isFree(0, 65, 1, 2));
+        assertTrue(copy.getSeats().isBooked(1, 2));
+        assertEquals(seats.freeSeats(), copy.getSeats().freeSeats());
+        assertNull(read.get(1).getSeats());
+    }
+
+    @Test public void usersRoundTripWithoutPlainPasswords() throws Exception {
+        List<Ticket> tickets = new ArrayList<>();
+        tickets.add(new Ticket("t1", "u1", "bangalore", "delhi", "2024-01-01", "bacs123"));
+        tickets.get(0).assignSeat(3, 4);
+        User user = new User("alice", "secret", "$2a$hash", tickets, "u1");
+        File file = tempFile();
+        BinarySnapshot.writeUsers(file, List.of(user));
+
+        List<User> read = new ArrayList<>();
+        assertEquals(1, BinarySnapshot.readUsers(file, read::add));
+        User copy = read.get(0);
+        assertEquals("alice", copy.getName());
+        assertNull(copy.getPassword());
+        assertEquals("$2a$hash", copy.getHashedPassword());
+        assertEquals("bacs123", copy.getTicketsBooked().get(0).getTrainId());
+        assertEquals("u1", copy.getTicketsBooked().get(0).getUserId());
+        assertEquals(3, copy.getTicketsBooked().get(0).getRow());
+        assertEquals(4, copy.getTicketsBooked().get(0).getSeat());
+    }
+
+    @Test(expected = IOException.class)
+    public void corruptionIsDetected() throws Exception {
+        File file = tempFile();
+        BinarySnapshot.writeUsers(file, List.of(new User("alice", null, "$2a$hash", new ArrayList<>(), "u1")));
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(20);
+            raf.write(raf.read() ^ 0x40);
+        }
+        BinarySnapshot.readUsers(file, user -> { });
+    }
+
+    private File tempFile() throws IOException {
+        return new File(temp.newFolder(), "state.bin");
+    }
+}
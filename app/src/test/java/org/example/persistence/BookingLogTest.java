@@ -0,0 +1,176 @@
+package org.example.persistence;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class BookingLogTest {
+
+    @Rule public TemporaryFolder temp = new TemporaryFolder();
+    private final List<BookingLog> logs = new ArrayList<>();
+
+    @After
+    public void tearDown() {
+        logs.forEach(BookingLog::close);
+    }
+
+    private File logFile() throws IOException {
+        return new File(temp.newFolder(), "bookings.log");
+    }
+
+    private BookingLog open(File file) throws IOException {
+        BookingLog log = new BookingLog(file);
+        logs.add(log);
+        return log;
+    }
+
+    @Test public void recordsSurviveReopen() throws Exception {
+        File file = logFile();
+        BookingLog log = open(file);
+        log.commit(outcome -> List.of(MutationRecord.userCreated("u1", "asha", "$2a$hash")));
+        log.commit(outcome -> List.of(
+                MutationRecord.seatBooked("bacs1", "2024-01-01", 1, 2, 0, 2),
+                MutationRecord.ticketAdded("u1", "t1", "bangalore", "delhi", "2024-01-01", "bacs1", 2, 3)));
+        log.commit(outcome -> List.of(MutationRecord.seatReleased("bacs1", "2024-01-01", 1, 2, 0, 2)));
+        assertFalse(log.commit(outcome -> List.of()));
+
+        List<MutationRecord> records = open(file).readAll();
+        assertEquals(4, records.size());
+        assertEquals(MutationRecord.Type.USER_CREATED, records.get(0).getType());
+        assertEquals("asha", records.get(0).getName());
+        assertEquals(2, records.get(1).getSeat());
+        assertEquals(2, records.get(1).getToLeg());
+        assertEquals("2024-01-01", records.get(1).getDateOfTravel());
+        assertEquals("bacs1", records.get(2).getTrainId());
+        assertEquals(3, records.get(2).getSeat());
+        assertEquals(MutationRecord.Type.SEAT_RELEASED, records.get(3).getType());
+        assertEquals(1, records.get(3).getRow());
+    }
+
+    @Test public void tornTailIsDiscarded() throws Exception {
+        File file = logFile();
+        BookingLog log = open(file);
+        log.commit(outcome -> List.of(MutationRecord.ticketCancelled("u1", "t1")));
+        long intact = file.length();
+        log.commit(outcome -> List.of(MutationRecord.ticketCancelled("u1", "t2")));
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(file.length() - 3);
+        }
+
+        BookingLog reopened = open(file);
+        assertEquals(1, reopened.readAll().size());
+        assertEquals(intact, file.length());
+    }
+
+    @Test public void concurrentCommitsAreAllDurable() throws Exception {
+        File file = logFile();
+        BookingLog log = open(file);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        AtomicInteger next = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 400; i++) {
+            futures.add(executor.submit(() -> {
+                log.commit(outcome -> List.of(MutationRecord.ticketCancelled("u", "t" + next.incrementAndGet())));
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+        assertEquals(400, open(file).readAll().size());
+    }
+
+    @Test public void failedAppendUndoesTheMutation() throws Exception {
+        File file = logFile();
+        AtomicBoolean diskFull = new AtomicBoolean(true);
+        BookingLog log = new BookingLog(file) {
+            @Override
+            protected void append(ByteBuffer buffer) throws IOException {
+                if (diskFull.get()) {
+                    throw new IOException("No space left on device");
+                }
+                super.append(buffer);
+            }
+        };
+        logs.add(log);
+        List<String> state = new ArrayList<>();
+        List<String> durable = new ArrayList<>();
+
+        try {
+            log.commit(outcome -> {
+                state.add("booked");
+                outcome.onFailure(() -> state.remove("booked"));
+                outcome.onDurable(() -> durable.add("released"));
+                return List.of(MutationRecord.ticketCancelled("u1", "t1"));
+            });
+            fail("Expected the append to fail");
+        } catch (IOException expected) {
+            assertEquals("No space left on device", expected.getCause().getMessage());
+        }
+        assertTrue(state.isEmpty());
+        assertTrue(durable.isEmpty());
+        assertEquals(0, file.length());
+
+        diskFull.set(false);
+        assertTrue(log.commit(outcome -> {
+            outcome.onFailure(() -> fail("Undo ran after a durable commit"));
+            outcome.onDurable(() -> durable.add("released"));
+            return List.of(MutationRecord.ticketCancelled("u1", "t2"));
+        }));
+        assertEquals(List.of("released"), durable);
+        assertEquals(1, open(file).readAll().size());
+    }
+
+    @Test public void throwingMutationIsUndone() throws Exception {
+        BookingLog log = open(logFile());
+        List<String> state = new ArrayList<>();
+        try {
+            log.commit(outcome -> {
+                state.add("first");
+                outcome.onFailure(() -> state.remove("first"));
+                throw new IllegalStateException("second step failed");
+            });
+            fail("Expected the mutation to throw");
+        } catch (IllegalStateException expected) {
+            assertTrue(state.isEmpty());
+        }
+    }
+
+    @Test public void closingRefusesLaterCommitsAndRunsTheHooks() throws Exception {
+        File file = logFile();
+        BookingLog log = open(file);
+        AtomicInteger closed = new AtomicInteger();
+        log.onClose(closed::incrementAndGet);
+        log.commit(outcome -> List.of(MutationRecord.ticketCancelled("u1", "t1")));
+
+        log.close();
+        assertEquals(1, closed.get());
+        assertEquals(0, file.length());
+        try {
+            log.commit(outcome -> {
+                fail("A closed log ran a mutation");
+                return List.of();
+            });
+            fail("Expected the closed log to refuse the commit");
+        } catch (IOException expected) {
+            assertTrue(expected.getMessage().contains("closed"));
+        }
+    }
+}
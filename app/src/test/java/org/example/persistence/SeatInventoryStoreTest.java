@@ -0,0 +1,179 @@
+package org.example.persistence;
+
+import org.example.entities.SeatMap;
+import org.example.entities.TestTrains;
+import org.example.entities.Train;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.Assert.*;
+
+public class SeatInventoryStoreTest {
+
+    @Rule public TemporaryFolder temp = new TemporaryFolder();
+    private final List<SeatInventoryStore> stores = new ArrayList<>();
+
+    @After
+    public void tearDown() {
+        stores.forEach(SeatInventoryStore::close);
+    }
+
+    private SeatInventoryStore open(File directory, int shards) throws IOException {
+        SeatInventoryStore store = new SeatInventoryStore(directory, shards, 4096);
+        stores.add(store);
+        return store;
+    }
+
+    private static Train train() {
+        return TestTrains.seated("bacs123", new int[]{4, 4}, "bangalore", "jaipur", "agra", "delhi");
+    }
+
+    @Test public void datesAreIndependentAndSurviveReopen() throws Exception {
+        File directory = temp.getRoot();
+        Train train = train();
+        SeatInventoryStore store = open(directory, 4);
+        assertTrue(store.seatsFor(train, "2024-01-01T10:00:00Z").book(1, 2, 0, 2));
+        assertTrue(store.seatsFor(train, "2024-01-02").book(1, 2, 0, 2));
+        assertFalse(store.seatsFor(train, "2024-01-01").book(1, 2, 1, 3));
+        store.force();
+
+        SeatInventoryStore reopened = open(directory, 4);
+        assertEquals(2, reopened.trainDateCount());
+        SeatMap seats = reopened.seatsFor(train, "2024-01-01");
+        assertFalse(seats.isFree(1, 2, 1, 2));
+        assertTrue(seats.isFree(1, 2, 2, 3));
+        assertTrue(reopened.seatsFor(train, "2024-01-03").isFree(1, 2, 0, 3));
+    }
+
+    @Test public void aLayoutChangeMovesBookingsOntoTheNewSeatMap() throws Exception {
+        File directory = temp.getRoot();
+        for (SeatInventoryStore store : List.of(SeatInventoryStore.inMemory(), open(directory, 1))) {
+            assertTrue(store.seatsFor(train(), "2024-01-01").book(0, 1, 0, 3));
+            assertTrue(store.seatsFor(train(), "2024-01-01").book(1, 3, 0, 3));
+            Train extended = TestTrains.seated("bacs123", new int[]{4, 2, 4},
+                    "bangalore", "jaipur", "agra", "delhi", "amritsar");
+
+            SeatMap seats = store.seatsFor(extended, "2024-01-01");
+            assertEquals(3, seats.rowCount());
+            assertEquals(4, seats.legCount());
+            assertFalse(seats.isFree(0, 1, 0, 3));
+            assertTrue(seats.isFree(0, 1, 3, 4));
+            assertTrue("row 1 lost its fourth seat", seats.isFree(1, 1, 0, 4));
+            assertSame(seats, store.seatsFor(extended, "2024-01-01"));
+            assertEquals(1, store.trainDateCount());
+        }
+        SeatMap reopened = open(directory, 1).seatsFor(
+                new Train("bacs123", "12345", new SeatMap(new int[]{4, 2, 4}, 4), Map.of(), List.of()), "2024-01-01");
+        assertFalse(reopened.isFree(0, 1, 0, 3));
+    }
+
+    @Test public void onlyIsoDaysAreTravelDates() {
+        assertTrue(SeatInventoryStore.isTravelDate("2024-01-01"));
+        assertTrue(SeatInventoryStore.isTravelDate(" 2024-01-01T10:00:00Z "));
+        for (String date : new String[] {null, "", "tomorrow", "01/02/2024", "2024-1-1", "2024-02-30", "2024-01-01junk"}) {
+            assertFalse(date, SeatInventoryStore.isTravelDate(date));
+        }
+    }
+
+    @Test public void interruptedClaimIsRolledBack() throws Exception {
+        File directory = temp.getRoot();
+        Train train = train();
+        SeatInventoryStore store = open(directory, 1);
+        assertTrue(store.seatsFor(train, "2024-01-01").book(0, 1, 0, 3));
+        store.force();
+        // As if the process died while claiming legs [0, 3) after holding legs 0 and 1.
+        long intent = 1L << 63 | 1L << 24 | 3L << 8 | 2L;
+        try (RandomAccessFile raf = new RandomAccessFile(new File(directory, "shard-00.dat"), "rw")) {
+            raf.seek(144);
+            raf.writeLong(Long.reverseBytes(intent));
+        }
+
+        SeatMap seats = open(directory, 1).seatsFor(train, "2024-01-01");
+        assertTrue(seats.isFree(0, 1, 0, 2));
+        assertFalse(seats.isFree(0, 1, 2, 3));
+    }
+
+    @Test public void tornRegionHeaderIsDiscarded() throws Exception {
+        File directory = temp.getRoot();
+        SeatInventoryStore store = open(directory, 1);
+        store.seatsFor(train(), "2024-01-01").book(0, 0);
+        store.force();
+        try (RandomAccessFile raf = new RandomAccessFile(new File(directory, "shard-00.dat"), "rw")) {
+            raf.seek(12);
+            raf.write('x');
+        }
+
+        SeatInventoryStore reopened = open(directory, 1);
+        assertEquals(0, reopened.trainDateCount());
+        assertTrue(reopened.seatsFor(train(), "2024-01-01").isFree(0, 0, 0, 3));
+    }
+
+    @Test public void claimsMissingFromTheLogAreFreedAfterACrash() throws Exception {
+        File directory = temp.getRoot();
+        Train train = train();
+        train.getSeats().book(1, 3, 0, 1);
+        SeatInventoryStore store = open(directory, 1);
+        SeatMap seats = store.seatsFor(train, "2024-01-01");
+        assertTrue(seats.book(0, 0, 0, 3));
+        assertTrue(seats.book(0, 1, 0, 2));
+        // Claimed, then the process died before the booking log record was durable.
+        assertTrue(seats.book(0, 2, 1, 3));
+        assertTrue(seats.book(0, 1, 2, 3));
+        store.force();
+
+        SeatInventoryStore reopened = open(directory, 1);
+        assertTrue(reopened.needsReconcile());
+        List<MutationRecord> logged = List.of(
+                MutationRecord.seatBooked("bacs123", "2024-01-01", 0, 0, 0, 3),
+                MutationRecord.seatBooked("bacs123", "2024-01-01", 0, 1, 0, 2));
+        assertEquals(2, reopened.reconcile(id -> Optional.of(train), logged));
+
+        SeatMap reconciled = reopened.seatsFor(train, "2024-01-01");
+        assertFalse(reconciled.isFree(0, 0, 0, 3));
+        assertFalse(reconciled.isFree(0, 1, 0, 2));
+        assertTrue(reconciled.isFree(0, 1, 2, 3));
+        assertTrue(reconciled.isFree(0, 2, 0, 3));
+        assertFalse("booked in trains.json", reconciled.isFree(1, 3, 0, 1));
+        assertFalse(reopened.needsReconcile());
+        assertEquals(0, reopened.reconcile(id -> Optional.of(train), List.of()));
+    }
+
+    @Test public void trainDatesWithTicketsOfUnknownSeatAreLeftAlone() throws Exception {
+        File directory = temp.getRoot();
+        Train train = train();
+        SeatInventoryStore store = open(directory, 1);
+        assertTrue(store.seatsFor(train, "2024-01-01").book(0, 0, 0, 3));
+        assertTrue(store.seatsFor(train, "2024-01-02").book(0, 0, 0, 3));
+        store.force();
+
+        SeatInventoryStore reopened = open(directory, 1);
+        assertEquals(1, reopened.reconcile(id -> Optional.of(train),
+                List.of(MutationRecord.seatBooked("bacs123", "2024-01-01", -1, -1, 0, 0))));
+        assertFalse(reopened.seatsFor(train, "2024-01-01").isFree(0, 0, 0, 3));
+        assertTrue(reopened.seatsFor(train, "2024-01-02").isFree(0, 0, 0, 3));
+    }
+
+    @Test public void aCleanCloseSkipsReconciling() throws Exception {
+        File directory = temp.getRoot();
+        Train train = train();
+        SeatInventoryStore store = open(directory, 1);
+        assertTrue(store.seatsFor(train, "2024-01-01").book(0, 0, 0, 3));
+        store.markClean();
+
+        SeatInventoryStore reopened = open(directory, 1);
+        assertFalse(reopened.needsReconcile());
+        assertEquals(0, reopened.reconcile(id -> Optional.of(train), List.of()));
+        assertFalse(reopened.seatsFor(train, "2024-01-01").isFree(0, 0, 0, 3));
+        assertTrue("the marker only covers one clean close", open(directory, 1).needsReconcile());
+    }
+}
@@ -0,0 +1,47 @@
+package org.example.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.entities.User;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class JsonArrayLoaderTest {
+
+    @Rule public TemporaryFolder temp = new TemporaryFolder();
+
+    @Test public void parallelLoadKeepsFileOrder() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            users.add(new User("user-" + i, null, "hash", new ArrayList<>(), "uid-" + i));
+        }
+        File file = temp.newFile("users.json");
+        objectMapper.writeValue(file, users);
+
+        for (int threads : new int[]{1, 4}) {
+            List<User> loaded = new ArrayList<>();
+            int count = new JsonArrayLoader(objectMapper, threads).load(file, "users",
+                    parser -> objectMapper.readValue(parser, User.class), loaded::add);
+            assertEquals(2_000, count);
+            for (int i = 0; i < users.size(); i++) {
+                assertEquals("uid-" + i, loaded.get(i).getUserId());
+            }
+        }
+    }
+
+    @Test(expected = java.io.IOException.class)
+    public void rejectsNonArrayDocument() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+        File file = temp.newFile("users.json");
+        Files.writeString(file.toPath(), "{\"name\":\"x\"}");
+        new JsonArrayLoader(objectMapper).load(file, "users", parser -> objectMapper.readValue(parser, User.class), user -> { });
+    }
+}
@@ -0,0 +1,58 @@
+package org.example.util;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class LatencyHistogramTest {
+
+    @Test public void bucketsCoverEveryValueContiguously() {
+        long previousUpper = -1;
+        for (int bucket = 0; LatencyHistogram.upperBound(bucket) < Long.MAX_VALUE; bucket++) {
+            long upper = LatencyHistogram.upperBound(bucket);
+            assertEquals(bucket, LatencyHistogram.bucketOf(previousUpper + 1));
+            assertEquals(bucket, LatencyHistogram.bucketOf(upper));
+            previousUpper = upper;
+        }
+        assertEquals(LatencyHistogram.bucketOf(Long.MAX_VALUE), LatencyHistogram.bucketOf(previousUpper + 1));
+    }
+
+    @Test public void bucketWidthStaysWithinThreePercent() {
+        for (long value = 32; value > 0 && value < Long.MAX_VALUE / 2; value = value * 3 / 2) {
+            long upper = LatencyHistogram.upperBound(LatencyHistogram.bucketOf(value));
+            assertTrue(value + " -> " + upper, upper >= value);
+            assertTrue(value + " -> " + upper, (upper - value) <= value / 32 + 1);
+        }
+    }
+
+    @Test public void percentilesTrackTheExactValues() {
+        Random random = new Random(42);
+        LatencyHistogram histogram = new LatencyHistogram();
+        long[] values = new long[100_000];
+        for (int i = 0; i < values.length; i++) {
+            // Log-normal-ish spread from microseconds to a few hundred milliseconds.
+            values[i] = (long) Math.exp(7 + random.nextGaussian() * 2.5);
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+
+        assertEquals(values.length, histogram.count());
+        assertEquals(values[values.length - 1], histogram.maxNanos());
+        for (double percentile : new double[] {50, 90, 99, 99.9}) {
+            long exact = values[(int) Math.ceil(values.length * percentile / 100.0) - 1];
+            long reported = histogram.percentileNanos(percentile);
+            assertTrue(percentile + ": " + reported + " vs " + exact, reported >= exact);
+            assertTrue(percentile + ": " + reported + " vs " + exact, reported <= exact * 1.03 + 1);
+        }
+    }
+
+    @Test public void emptyHistogramReportsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.count());
+        assertEquals(0, histogram.percentileNanos(99));
+        assertEquals(0, histogram.meanNanos());
+    }
+}
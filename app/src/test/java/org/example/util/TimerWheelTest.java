@@ -0,0 +1,97 @@
+package org.example.util;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class TimerWheelTest {
+    private static final long TICK = 1_000_000;
+
+    private final List<Long> fired = new ArrayList<>();
+    private final TimerWheel wheel = new TimerWheel(TICK, 0, Runnable::run);
+    private long now;
+
+    private TimerWheel.Timeout at(long tick) {
+        return wheel.scheduleAt(() -> fired.add(now / TICK), tick * TICK);
+    }
+
+    private void advance(long ticks) {
+        for (long i = 0; i < ticks; i++) {
+            now += TICK;
+            wheel.advanceTo(now);
+        }
+    }
+
+    @Test public void firesOnTheDeadlineTickAcrossEveryWheel() {
+        long[] deadlines = {1, 63, 64, 65, 4095, 4096, 4097, 70_000, 262_143, 262_144, 300_001};
+        for (long deadline : deadlines) {
+            at(deadline);
+        }
+        assertEquals(deadlines.length, wheel.pending());
+
+        advance(300_001);
+
+        List<Long> expected = new ArrayList<>();
+        for (long deadline : deadlines) {
+            expected.add(deadline);
+        }
+        assertEquals(expected, fired);
+        assertEquals(0, wheel.pending());
+    }
+
+    @Test public void deadlinesBeyondTheCoarsestWheelWaitTheirTurn() {
+        // Placed without advancing tick by tick so the test stays fast.
+        long deadline = (1L << 24) + 12_345;
+        at(deadline);
+        now = (deadline - 1) * TICK;
+        wheel.advanceTo(now);
+        assertTrue(fired.isEmpty());
+        advance(1);
+        assertEquals(List.of(deadline), fired);
+    }
+
+    @Test public void cancelledTimeoutsNeverRun() {
+        TimerWheel.Timeout cancelled = at(10);
+        TimerWheel.Timeout kept = at(10);
+        advance(5);
+        assertTrue(cancelled.cancel());
+        assertFalse(cancelled.cancel());
+        advance(10);
+
+        assertEquals(List.of(10L), fired);
+        assertTrue(cancelled.isCancelled());
+        assertTrue(kept.isExpired());
+        assertFalse(kept.cancel());
+    }
+
+    @Test public void passedDeadlinesFireOnTheNextTick() {
+        advance(100);
+        at(3);
+        advance(1);
+        assertEquals(List.of(101L), fired);
+    }
+
+    @Test public void manyRandomTimeoutsEachFireOnceOnTime() {
+        Random random = new Random(24);
+        AtomicInteger late = new AtomicInteger();
+        AtomicInteger runs = new AtomicInteger();
+        int count = 100_000;
+        for (int i = 0; i < count; i++) {
+            long deadline = 1 + random.nextInt(20_000);
+            wheel.scheduleAt(() -> {
+                runs.incrementAndGet();
+                if (now / TICK != deadline) {
+                    late.incrementAndGet();
+                }
+            }, deadline * TICK);
+        }
+        advance(20_000);
+        assertEquals(count, runs.get());
+        assertEquals(0, late.get());
+    }
+}